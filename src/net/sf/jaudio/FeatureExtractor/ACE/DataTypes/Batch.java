@@ -52,6 +52,10 @@ public class Batch implements Serializable {
 
 	int outputType;
 
+	boolean streaming = false;
+
+	int workers = 1;
+
 	transient DataModel dm_;
 
 	HashMap<String, Boolean> activated;
@@ -82,6 +86,8 @@ public class Batch implements Serializable {
 	 */
 	public void execute() throws Exception {
 		applyAttributes();
+		dm_.streaming = streaming;
+		dm_.workers = workers;
 		dm_.extract(windowSize, windowOverlap, samplingRate, normalise,
 				perWindow, overall, recording, outputType);
 	}
@@ -280,9 +286,15 @@ public class Batch implements Serializable {
 				"</overallStats>").append(sep);
 		if (outputType == 0) {
 			ret.append("\t\t\t<outputType>ACE</outputType>").append(sep);
+		} else if (outputType == 2) {
+			ret.append("\t\t\t<outputType>JSON</outputType>").append(sep);
 		} else {
 			ret.append("\t\t\t<outputType>ARFF</outputType>").append(sep);
 		}
+		ret.append("\t\t\t<streaming>").append(streaming).append(
+				"</streaming>").append(sep);
+		ret.append("\t\t\t<workers>").append(workers).append("</workers>")
+				.append(sep);
 		Set s = attributes.entrySet();
 		for (Iterator<Map.Entry<String, String[]>> iterator = s.iterator(); iterator
 				.hasNext();) {
@@ -480,6 +492,44 @@ public class Batch implements Serializable {
 		this.outputType = outputType;
 	}
 
+	/**
+	 * Are recordings extracted in streaming mode?
+	 *
+	 * @return whether only the window history that features depend on is kept
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * Set whether recordings are extracted in streaming mode, keeping only the
+	 * window history that features depend on.
+	 *
+	 * @param streaming extract in streaming mode or not
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Get the number of recordings that are extracted at the same time
+	 *
+	 * @return number of extraction workers
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * Set the number of recordings that are extracted at the same time. The
+	 * output is the same for any number of workers.
+	 *
+	 * @param workers number of extraction workers, at least 1
+	 */
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
 	/**
 	 * Should aggregated per-file results be generated?
 	 *
@@ -58,6 +58,10 @@ public class ParseBatchJobHandler extends ParseFileHandler {
 	public static final int AGGREGATOR_FEATURE = 19;
 	
 	public static final int AGGREGATOR_PARAMETER = 20;
+	
+	public static final int STREAMING = 21;
+	
+	public static final int WORKERS = 22;
 
 	LinkedList<File> fileSet = new LinkedList<File>();
 
@@ -97,6 +101,10 @@ public class ParseBatchJobHandler extends ParseFileHandler {
 
 	int outputType;
 
+	boolean streaming = false;
+
+	int workers = 1;
+
 	String destinationFV;
 
 	String destinationFK;
@@ -175,10 +183,29 @@ public class ParseBatchJobHandler extends ParseFileHandler {
 			case OUTPUT_TYPE:
 				if (data.equals("ACE")) {
 					outputType = 0;
+				} else if (data.equals("JSON")) {
+					outputType = 2;
 				} else {
 					outputType = 1;
 				}
 				break;
+			case STREAMING:
+				if (data.equals("true")) {
+					streaming = true;
+				} else {
+					streaming = false;
+				}
+				break;
+			case WORKERS:
+				try {
+					workers = Integer.parseInt(data);
+				} catch (NumberFormatException e) {
+					throw new SAXException("workers data must be an integer");
+				}
+				if (workers < 1) {
+					throw new SAXException("workers must be at least 1");
+				}
+				break;
 			case FEATURE:
 				break;
 			case ACTIVE:
@@ -239,6 +266,8 @@ public class ParseBatchJobHandler extends ParseFileHandler {
 				// set the analysis settings to apply to this batch
 				batch.setSettings(windowSize, windowOverlap, sampleRate, normalise,
 						saveWindows, overall, outputType);
+				batch.setStreaming(streaming);
+				batch.setWorkers(workers);
 				batch.setDestination(destinationFK,destinationFV);
 				
 				// set the features attributes
@@ -261,6 +290,8 @@ public class ParseBatchJobHandler extends ParseFileHandler {
 				tmpAggregatorParameters.clear();
 				destinationFV = null;
 				destinationFK = null;
+				streaming = false;
+				workers = 1;
 				tagType = BATCH_FILE;
 				break;
 			case FILE_SET:
@@ -295,6 +326,12 @@ public class ParseBatchJobHandler extends ParseFileHandler {
 			case OUTPUT_TYPE:
 				tagType = SETTINGS;
 				break;
+			case STREAMING:
+				tagType = SETTINGS;
+				break;
+			case WORKERS:
+				tagType = SETTINGS;
+				break;
 			case FEATURE:
 				tagType = SETTINGS;
 				featureAttributeSet.put(featureName,tmpAttributeSet.toArray(new String[]{}));
@@ -347,6 +384,8 @@ public class ParseBatchJobHandler extends ParseFileHandler {
 		tmpAggregatorFeatures.clear();
 		tmpAggregatorParameters.clear();
 		aggregatorParameters.clear();
+		streaming = false;
+		workers = 1;
 		tagType = -1;
 	}
 
@@ -385,6 +424,10 @@ public class ParseBatchJobHandler extends ParseFileHandler {
 			tagType = OVERALL_STATS;
 		} else if (localName.equals("outputType")||qName.equals("outputType")) {
 			tagType = OUTPUT_TYPE;
+		} else if (localName.equals("streaming")||qName.equals("streaming")) {
+			tagType = STREAMING;
+		} else if (localName.equals("workers")||qName.equals("workers")) {
+			tagType = WORKERS;
 		} else if (localName.equals("feature")||qName.equals("feature")) {
 			tagType = FEATURE;
 		}else if (localName.equals("name")||qName.equals("name")){
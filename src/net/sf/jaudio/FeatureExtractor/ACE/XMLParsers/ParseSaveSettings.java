@@ -54,6 +54,10 @@ public class ParseSaveSettings extends ParseFileHandler {
 
 	private String outputType = "";
 
+	private boolean streaming = false;
+
+	private int workers = 1;
+
 	Pattern t = Pattern.compile(".*true.*");
 
 	Pattern f = Pattern.compile(".*false.*");
@@ -74,6 +78,8 @@ public class ParseSaveSettings extends ParseFileHandler {
 		aggregatorParameters = new LinkedList<String[]>();
 		tmpAggregatorFeature_ = new LinkedList<String>();
 		tmpAggregatorParameters_ = new LinkedList<String>();
+		streaming = false;
+		workers = 1;
 		count = 0;
 		tagType = -1;
 	}
@@ -84,7 +90,6 @@ public class ParseSaveSettings extends ParseFileHandler {
 	public void characters(char[] ch, int start, int length)
 			throws SAXException {
 		String tmp = new String(ch,start,length);
-		tmp = tmp.substring(start, start + length);
 		switch (tagType){
 			case 0:
 				break;
@@ -171,6 +176,28 @@ public class ParseSaveSettings extends ParseFileHandler {
 			case 15:
 				tmpAggregatorParameters_.add(tmp);
 				break;
+			case 16:
+				tm = t.matcher(tmp);
+				fm = f.matcher(tmp);
+				if (tm.matches()) {
+					streaming = true;
+				} else if (fm.matches()) {
+					streaming = false;
+				} else {
+					throw new SAXException("Valid states are true or false, not "
+							+ tmp);
+				}
+				break;
+			case 17:
+				try {
+					workers = Integer.parseInt(tmp.trim());
+				} catch (NumberFormatException e) {
+					throw new SAXException("workers must be an integer");
+				}
+				if (workers < 1) {
+					throw new SAXException("workers must be at least 1");
+				}
+				break;
 			default:
 				throw new SAXException("Unknwon Tag Type " + tagType + "in characters");
 		}
@@ -180,7 +207,7 @@ public class ParseSaveSettings extends ParseFileHandler {
 	 * Logical end of an XML file
 	 */
 	public void endDocument() throws SAXException {
-		parsed_file_contents = new Object[12];
+		parsed_file_contents = new Object[14];
 		int i = 0;
 		parsed_file_contents[i++] = windowLength;
 		parsed_file_contents[i++] = windowOverlap;
@@ -193,7 +220,9 @@ public class ParseSaveSettings extends ParseFileHandler {
 		parsed_file_contents[i++] = attributeMap_;
 		parsed_file_contents[i++] = aggregatorNames;
 		parsed_file_contents[i++] = aggregatorFeatures;
-		parsed_file_contents[i] = aggregatorParameters;
+		parsed_file_contents[i++] = aggregatorParameters;
+		parsed_file_contents[i++] = Boolean.valueOf(streaming);
+		parsed_file_contents[i] = Integer.valueOf(workers);
 		count = -1;
 	}
 
@@ -237,7 +266,7 @@ public class ParseSaveSettings extends ParseFileHandler {
 	public void startElement(String uri, String localName, String qName,
 			Attributes attributes) throws SAXException {
 		if (count == 0) {
-			if (!localName.equals("save_settings")&&!qName.equals("name")) {
+			if (!localName.equals("save_settings")&&!qName.equals("save_settings")) {
 				throw new SAXException("\n\nIt is in reality of the type ["
 						+ localName + "].");
 			}
@@ -273,6 +302,10 @@ public class ParseSaveSettings extends ParseFileHandler {
 			tagType = 14;
 		} else if(localName.equals("aggregatorAttribute")||qName.equals("aggregatorAttribute")){
 			tagType = 15;
+		} else if(localName.equals("streaming")||qName.equals("streaming")){
+			tagType = 16;
+		} else if(localName.equals("workers")||qName.equals("workers")){
+			tagType = 17;
 		}
 	}
 }
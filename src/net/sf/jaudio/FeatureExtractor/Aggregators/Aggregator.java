@@ -4,11 +4,13 @@
 package net.sf.jaudio.FeatureExtractor.Aggregators;
 
 import java.io.DataOutputStream;
+import java.io.IOException;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.AggregatorDefinition;
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
 import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
 import net.sf.jaudio.FeatureExtractor.GeneralTools.StringMethods;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.FeatureOutputStream;
 
 /**
  * Aggregator is an interface for specifying the mechanism for collapsing
@@ -149,9 +151,9 @@ public abstract class Aggregator {
 		output.writeBytes("		<feature>" + LINE_SEP);
 		output.writeBytes("			<name>" + definition.name + "</name>" + LINE_SEP);
 		for (int i = 0; i < result.length; ++i) {
-			output.writeBytes("			<v>"
-					+ StringMethods.getDoubleInScientificNotation(result[i], 4)
-					+ "</v>" + LINE_SEP);
+			output.writeBytes("			<v>");
+			writeValue(output, result[i]);
+			output.writeBytes("</v>" + LINE_SEP);
 		}
 		output.writeBytes("		</feature>" + LINE_SEP);
 	}
@@ -179,13 +181,81 @@ public abstract class Aggregator {
 	 */
 	public void outputARFFValueEntries(DataOutputStream output)
 			throws Exception {
-		output.writeBytes(StringMethods.getDoubleInScientificNotation(
-				result[0], 4));
+		writeValue(output, result[0]);
 		for (int i = 1; i < definition.dimensions; ++i) {
-			output
-					.writeBytes(","
-							+ StringMethods.getDoubleInScientificNotation(
-									result[i], 4));
+			output.writeByte(',');
+			writeValue(output, result[i]);
+		}
+	}
+
+	/**
+	 * Output the definition of this particular instantiation of the
+	 * aggregator as a JSON object, for a JSON feature definition file.
+	 * 
+	 * @param output stream to write the definition to
+	 * @throws Exception
+	 */
+	public void outputJSONFeatureKeyEntries(DataOutputStream output)
+			throws Exception {
+		output.writeBytes("{\"name\":" + StringMethods.getJSONString(definition.name)
+				+ ",\"description\":"
+				+ StringMethods.getJSONString(definition.description)
+				+ ",\"is_sequential\":" + definition.is_sequential
+				+ ",\"dimensions\":" + definition.dimensions + "}");
+	}
+
+	/**
+	 * Output the values of the aggregator as a JSON member, the name of the
+	 * aggregator followed by an array of its values.  Values that are not
+	 * finite are written as null, since JSON has no representation for them.
+	 * 
+	 * @param output stream to write the values to
+	 * @throws Exception
+	 */
+	public void outputJSONValueEntries(DataOutputStream output) throws Exception {
+		output.writeBytes(StringMethods.getJSONString(definition.name));
+		output.writeBytes(":[");
+		for (int i = 0; i < result.length; ++i) {
+			if (i > 0) {
+				output.writeByte(',');
+			}
+			writeJSONValue(output, result[i]);
+		}
+		output.writeByte(']');
+	}
+
+	/**
+	 * Writes a value as writeValue does, or null if it is not finite.
+	 * 
+	 * @param output stream to write the value to
+	 * @param value value to write
+	 * @throws IOException
+	 */
+	protected static void writeJSONValue(DataOutputStream output, double value)
+			throws IOException {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			output.writeBytes("null");
+		} else {
+			writeValue(output, value);
+		}
+	}
+
+	/**
+	 * Writes a value in the scientific notation used by ACE and ARFF files,
+	 * with 4 significant digits. Values are formatted straight into the
+	 * buffer of a FeatureOutputStream.
+	 * 
+	 * @param output stream to write the value to
+	 * @param value value to write
+	 * @throws IOException
+	 */
+	protected static void writeValue(DataOutputStream output, double value)
+			throws IOException {
+		if (output instanceof FeatureOutputStream) {
+			((FeatureOutputStream) output).writeScientific(value, 4);
+		} else {
+			output.writeBytes(StringMethods.getDoubleInScientificNotation(
+					value, 4));
 		}
 	}
 
@@ -6,7 +6,6 @@
 package net.sf.jaudio.FeatureExtractor.Aggregators;
 
 import java.io.DataOutputStream;
-import java.io.Writer;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Vector;
@@ -31,6 +30,10 @@ public class AggregatorContainer {
 
 	Vector<Integer> featureIndecis2FeatureListMapping;
 
+	// Copies of the windows given to accept, kept for aggregators that are
+	// not OnlineAggregators, or null if there are none
+	LinkedList<double[][]> acceptedWindows;
+
 	/**
 	 * Construct a new, empty container.
 	 */
@@ -117,6 +120,68 @@ public class AggregatorContainer {
 		}
 	}
 
+	/**
+	 * Starts aggregating a recording one window at a time, as an alternative to aggregate. Call accept with each 
+	 * window in turn and then finish, after which the results are the same as if aggregate had been called with 
+	 * all the windows. Aggregators that are OnlineAggregators only keep running values.  Copies of the windows are 
+	 * kept for any other aggregators, which are aggregated over all of them by finish.
+	 *
+	 * @throws Exception if an aggregator cannot be started.
+	 */
+	public void begin() throws Exception{
+		acceptedWindows = null;
+		for (int i = 0; i < aggregatorList.size(); ++i) {
+			if(aggregatorList.get(i) instanceof OnlineAggregator){
+				((OnlineAggregator)aggregatorList.get(i)).begin();
+			}else{
+				acceptedWindows = new LinkedList<double[][]>();
+			}
+		}
+	}
+
+	/**
+	 * Gives the next window of the recording to every aggregator.  The window can be reused once this returns.
+	 *
+	 * @param window the values of every feature for this window, indexed by feature and then feature value.
+	 * @throws Exception if an aggregator cannot accept the window.
+	 */
+	public void accept(double[][] window) throws Exception{
+		for (int i = 0; i < aggregatorList.size(); ++i) {
+			if(aggregatorList.get(i) instanceof OnlineAggregator){
+				((OnlineAggregator)aggregatorList.get(i)).accept(window);
+			}
+		}
+		if(acceptedWindows != null){
+			double[][] copy = new double[window.length][];
+			for(int i=0;i<window.length;++i){
+				if(window[i] != null){
+					copy[i] = window[i].clone();
+				}
+			}
+			acceptedWindows.add(copy);
+		}
+	}
+
+	/**
+	 * Calculates the results of every aggregator from the windows given to accept since begin was called.
+	 *
+	 * @throws Exception if an aggregator cannot calculate its results.
+	 */
+	public void finish() throws Exception{
+		double[][][] values = null;
+		if(acceptedWindows != null){
+			values = acceptedWindows.toArray(new double[acceptedWindows.size()][][]);
+			acceptedWindows = null;
+		}
+		for (int i = 0; i < aggregatorList.size(); ++i) {
+			if(aggregatorList.get(i) instanceof OnlineAggregator){
+				((OnlineAggregator)aggregatorList.get(i)).finish();
+			}else{
+				aggregatorList.get(i).aggregate(values);
+			}
+		}
+	}
+
 	/**
 	 * Output the header file for the ACE machine learning format.
 	 * 
@@ -171,22 +236,40 @@ public class AggregatorContainer {
 		output.writeBytes(Aggregator.LINE_SEP);
 	}
 
-    /**
-     * Output the content in a Weka data format.
-     *
-     * @param output data stream to place the Weka data in.
-     * @throws Exception IO error occurs.
-     */
-//    public void outputJSONEntries(Writer output) throws Exception {
-//        output.write("{"+Aggregator.LINE_SEP);
-//        for (int i = 0; i < aggregatorList.size(); ++i) {
-//            aggregatorList.get(i).outputJSONEntries(output);
-//            if(i< aggregatorList.size()-1){
-//                output.write(",");
-//            }
-//        }
-//        output.write("}"+Aggregator.LINE_SEP);
-//    }
+	/**
+	 * Output the definitions of the aggregators as a JSON array.
+	 * 
+	 * @param output data stream to place the definitions in.
+	 * @throws Exception IO error occurs.
+	 */
+	public void outputJSONFeatureKeyEntries(DataOutputStream output)
+			throws Exception {
+		output.writeByte('[');
+		for (int i = 0; i < aggregatorList.size(); ++i) {
+			if (i > 0) {
+				output.writeByte(',');
+			}
+			aggregatorList.get(i).outputJSONFeatureKeyEntries(output);
+		}
+		output.writeByte(']');
+	}
+
+	/**
+	 * Output the content as a JSON object, with a member for each aggregator.
+	 * 
+	 * @param output data stream to place the JSON data in.
+	 * @throws Exception IO error occurs.
+	 */
+	public void outputJSONEntries(DataOutputStream output) throws Exception {
+		output.writeByte('{');
+		for (int i = 0; i < aggregatorList.size(); ++i) {
+			if (i > 0) {
+				output.writeByte(',');
+			}
+			aggregatorList.get(i).outputJSONValueEntries(output);
+		}
+		output.writeByte('}');
+	}
 
     void buildAggregatorList() throws Exception{
 		aggregatorList.clear();
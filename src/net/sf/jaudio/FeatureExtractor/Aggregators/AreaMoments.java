@@ -30,12 +30,27 @@ import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
  * @author Daniel McEnnis
  *
  */
-public class AreaMoments extends Aggregator {
+public class AreaMoments extends Aggregator implements OnlineAggregator {
 
 	String[] featureNames = null;
 	int[] featureNameIndecis = null;
 
     int order = 7;
+
+	// The number of windows given to accept, and the first of them with values for every feature
+	int windows;
+
+	int offset;
+
+	// The power of two that positions are divided by
+	double scale;
+
+	// For each feature, power of the scaled window position and dimension, the sum of the values multiplied by 
+	// that power of the position
+	double[][][] sums;
+
+	// The number of dimensions of each feature in the last window, or -1 if the feature was not extracted
+	int[] lastDimensions;
 	
 	/**
 	 * Constructs an AreaMoments aggregator.  This isn't valid until specific features are adde to the system (in a particular order).
@@ -47,37 +62,142 @@ public class AreaMoments extends Aggregator {
 	
 	@Override
 	public void aggregate(double[][][] values) {
+		begin();
+		for (int i = 0; i < values.length; ++i) {
+			accept(values[i]);
+		}
+		finish();
+	}
+
+	public void begin() {
+		windows = 0;
+		offset = -1;
+		scale = 1.0;
+		sums = new double[featureNameIndecis.length][order][0];
+		lastDimensions = new int[featureNameIndecis.length];
+	}
+
+	/**
+	 * The row of a window depends on how many windows there are in total, so rather than the moments this keeps,
+	 * for each feature dimension, the sums of its values multiplied by each power of the window's position.  
+	 * finish expands the powers of the row from these.  Positions are divided by a power of two at least as 
+	 * large as the last position, so high orders cannot overflow however long the recording is.
+	 */
+	public void accept(double[][] window) {
+		int index = windows++;
+		boolean complete = true;
+		for (int i = 0; i < featureNameIndecis.length; ++i) {
+			double[] values = window[featureNameIndecis[i]];
+			if (values == null) {
+				lastDimensions[i] = -1;
+				complete = false;
+			} else {
+				lastDimensions[i] = values.length;
+			}
+		}
+		if (!complete) {
+			return;
+		}
+		if (offset < 0) {
+			offset = index;
+		}
+		int position = index - offset;
+		while (position > scale) {
+			scale *= 2.0;
+			for (int i = 0; i < sums.length; ++i) {
+				for (int x = 1; x < order; ++x) {
+					for (int j = 0; j < sums[i][x].length; ++j) {
+						sums[i][x][j] = Math.scalb(sums[i][x][j], -x);
+					}
+				}
+			}
+		}
+		double scaled = position / scale;
+		for (int i = 0; i < featureNameIndecis.length; ++i) {
+			double[] values = window[featureNameIndecis[i]];
+			if (values.length > sums[i][0].length) {
+				for (int x = 0; x < order; ++x) {
+					sums[i][x] = java.util.Arrays.copyOf(sums[i][x], values.length);
+				}
+			}
+			double xpow = 1.0;
+			for (int x = 0; x < order; ++x) {
+				for (int j = 0; j < values.length; ++j) {
+					sums[i][x][j] += values[j] * xpow;
+				}
+				xpow *= scaled;
+			}
+		}
+	}
+
+	/**
+	 * The features and dimensions used are those present in the last window.
+	 */
+	public void finish() {
 		result = new double[order*order];
 		java.util.Arrays.fill(result,0.0);
-		int offset = super.calculateOffset(values,featureNameIndecis);
-		int[][] featureIndecis = super.collapseFeatures(values,featureNameIndecis);
-        for (int i=offset; i < values.length; ++i) {
-            double row = (2.0*((double)(i-offset))/((double)(values.length - offset))) - 1.0;
-            for (int j = 0; j < featureIndecis.length; ++j) {
-                double column = (2.0*((double)j)/((double)(featureIndecis.length)))-1.0;
-                double xpow = 1.0;
-                for(int x=0;x<order;++x){
-                    double ypow = 1.0;
-                    for (int y=0;y<order;++y){
-                        result[order*x+y] += values[i][featureIndecis[j][0]][featureIndecis[j][1]] * xpow * ypow;
-                        ypow *= column;
-                    }
-                    xpow *= row;
-                }
-            }
-        }
+		if (offset < 0) {
+			return;
+		}
+
+		// row = factor * scaled position - 1, so its powers are binomial expansions of the sums
+		double factor = 2.0 * scale / ((double)(windows - offset));
+		double[][] expansion = new double[order][order];
+		double[] binomial = new double[order];
+		for (int x = 0; x < order; ++x) {
+			for (int k = x; k > 0; --k) {
+				binomial[k] += binomial[k-1];
+			}
+			binomial[0] = 1.0;
+			double power = 1.0;
+			for (int k = 0; k <= x; ++k) {
+				expansion[x][k] = (((x - k) % 2 == 0) ? 1.0 : -1.0) * binomial[k] * power;
+				power *= factor;
+			}
+		}
+
+		int columns = 0;
+		for (int i = 0; i < lastDimensions.length; ++i) {
+			if (lastDimensions[i] > 0) {
+				columns += lastDimensions[i];
+			}
+		}
+		int j = 0;
+		for (int i = 0; i < lastDimensions.length; ++i) {
+			for (int d = 0; d < lastDimensions[i]; ++d) {
+				double column = (2.0*((double)j)/((double)columns))-1.0;
+				for (int x = 0; x < order; ++x) {
+					double moment = 0.0;
+					if (d < sums[i][0].length) {
+						for (int k = 0; k <= x; ++k) {
+							moment += expansion[x][k] * sums[i][k][d];
+						}
+					}
+					double ypow = 1.0;
+					for (int y = 0; y < order; ++y) {
+						result[order*x+y] += moment * ypow;
+						ypow *= column;
+					}
+				}
+				j++;
+			}
+		}
 	}
 
 	@Override
 	public Object clone() {
 		AreaMoments ret = new AreaMoments();
+		ret.order = order;
 		if(featureNames != null){
 			ret.featureNames = featureNames.clone();
+			ret.definition = new FeatureDefinition(definition.name,
+					definition.description, definition.is_sequential,
+					definition.dimensions);
 		}
 		if(featureNameIndecis != null){
 			ret.featureNameIndecis = featureNameIndecis.clone();
 		}
-		return new AreaMoments();
+		return ret;
 	}
 
 	@Override
@@ -10,7 +10,6 @@ package net.sf.jaudio.FeatureExtractor.Aggregators;
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.AggregatorDefinition;
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
 import cern.colt.matrix.impl.DenseDoubleMatrix2D;
-import cern.colt.matrix.DoubleMatrix2D;
 import cern.colt.matrix.linalg.Algebra;
 
 /**
@@ -26,26 +25,43 @@ import cern.colt.matrix.linalg.Algebra;
  * minimization matrix solver (colt matrix function).
  * </p>
  * <p>
+ * The window indices are divided by the number of windows and the dimension
+ * indices by the number of dimensions, so that both lie between 0 and 1. The
+ * least squares fit is found from the normal equations, whose sums are
+ * updated as each window is added, so the windows themselves are not kept.
+ * </p>
+ * <p>
  * Utilizes the Colt java matrix package.
  * </p>
  * 
  * @author Daniel McEnnis
  *
  */
-public class AreaPolynomialApproximation extends Aggregator {
+public class AreaPolynomialApproximation extends Aggregator implements OnlineAggregator {
 
     int xDim = 20;
     int yDim = 5;
 
-    int windowLength = 1;
-    int featureLength = 1;
+    String[] featureNames = null;
+    int[] featureNameIndecis = null;
 
-    DenseDoubleMatrix2D terms;
+    // The number of windows given to accept, and the first of them with
+    // values for every feature
+    int windows;
+    int offset;
 
-    DenseDoubleMatrix2D z;
+    // The power of two that window indices are divided by
+    double scale;
 
-    String[] featureNames = null;
-    int[] featureNameIndecis = null;
+    // The number of values given to accept, and the largest number in one
+    // window
+    int points;
+    int dimensions;
+
+    // The sums over every value of each power of its window index times each
+    // power of its dimension index, and the same sums weighted by the value
+    double[][] powerSums;
+    double[][] valueSums;
 
     public AreaPolynomialApproximation() {
         this.metadata = new AggregatorDefinition(
@@ -55,31 +71,150 @@ public class AreaPolynomialApproximation extends Aggregator {
     }
 
     @Override
-    public void aggregate(double[][][] values) {
-        this.result = null;
-        int offset = super.calculateOffset(values, this.featureNameIndecis);
-        int[][] featureIndecis = super.collapseFeatures(values,
-                this.featureNameIndecis);
-        this.result[0] = 0.0;
-        this.windowLength = this.featureNameIndecis.length - offset;
-        this.featureLength = featureIndecis[0].length;
-        for (int i = offset; i < values.length; ++i) {
-            for (int j = 0; j < featureIndecis.length; ++j) {
-                this.result[0] += values[i][featureIndecis[j][0]][featureIndecis[j][1]];
+    public void aggregate(double[][][] values) throws Exception {
+        begin();
+        for (int i = 0; i < values.length; ++i) {
+            accept(values[i]);
+        }
+        finish();
+    }
+
+    public void begin() {
+        this.windows = 0;
+        this.offset = -1;
+        this.scale = 1.0;
+        this.points = 0;
+        this.dimensions = 0;
+        this.powerSums = new double[2 * this.xDim - 1][2 * this.yDim - 1];
+        this.valueSums = new double[this.xDim][this.yDim];
+    }
+
+    /**
+     * Adds the window's terms to the sums that make up the normal equations
+     * of the least squares fit. Positions are divided by a power of two at
+     * least as large as the last position, so high orders cannot overflow
+     * however long the recording is.
+     */
+    public void accept(double[][] window) {
+        int index = this.windows++;
+        for (int i = 0; i < this.featureNameIndecis.length; ++i) {
+            if (window[this.featureNameIndecis[i]] == null) {
+                return;
+            }
+        }
+        if (this.offset < 0) {
+            this.offset = index;
+        }
+        int position = index - this.offset;
+        while (position > this.scale) {
+            this.scale *= 2.0;
+            for (int i = 1; i < this.powerSums.length; ++i) {
+                for (int j = 0; j < this.powerSums[i].length; ++j) {
+                    this.powerSums[i][j] = Math.scalb(this.powerSums[i][j], -i);
+                }
+            }
+            for (int i = 1; i < this.xDim; ++i) {
+                for (int j = 0; j < this.yDim; ++j) {
+                    this.valueSums[i][j] = Math.scalb(this.valueSums[i][j], -i);
+                }
+            }
+        }
+        double[] xpow = new double[this.powerSums.length];
+        xpow[0] = 1.0;
+        for (int i = 1; i < xpow.length; ++i) {
+            xpow[i] = xpow[i - 1] * (position / this.scale);
+        }
+
+        // sum the powers of every dimension index in this window, and the
+        // values weighted by them
+        double[] columnSums = new double[this.powerSums[0].length];
+        double[] weightedSums = new double[this.yDim];
+        int y = 0;
+        for (int i = 0; i < this.featureNameIndecis.length; ++i) {
+            double[] values = window[this.featureNameIndecis[i]];
+            for (int j = 0; j < values.length; ++j) {
+                double ypow = 1.0;
+                for (int k = 0; k < columnSums.length; ++k) {
+                    columnSums[k] += ypow;
+                    if (k < this.yDim) {
+                        weightedSums[k] += values[j] * ypow;
+                    }
+                    ypow *= y;
+                }
+                y++;
+            }
+        }
+        for (int i = 0; i < this.powerSums.length; ++i) {
+            for (int j = 0; j < columnSums.length; ++j) {
+                this.powerSums[i][j] += xpow[i] * columnSums[j];
             }
         }
-        this.terms = new DenseDoubleMatrix2D(this.xDim * this.yDim, this.windowLength
-                * this.featureLength);
-        this.z = new DenseDoubleMatrix2D(1, this.featureLength);
-        calcTerms(this.terms);
-        this.result = ((new Algebra()).solve(this.terms, this.z)).viewRow(0).toArray();
+        for (int i = 0; i < this.xDim; ++i) {
+            for (int j = 0; j < this.yDim; ++j) {
+                this.valueSums[i][j] += xpow[i] * weightedSums[j];
+            }
+        }
+        this.points += y;
+        if (y > this.dimensions) {
+            this.dimensions = y;
+        }
+    }
+
+    /**
+     * Solves the normal equations. If there are fewer values than
+     * coefficients, or the values cannot determine every coefficient, the
+     * coefficients are all 0.
+     */
+    public void finish() {
+        int terms = this.xDim * this.yDim;
+        this.definition.dimensions = terms;
+        this.result = new double[terms];
+        if (this.points < terms) {
+            return;
+        }
+
+        // scale the window indices by the number of windows and the
+        // dimension indices by the number of dimensions
+        double[] xscale = new double[this.powerSums.length];
+        double[] yscale = new double[this.powerSums[0].length];
+        xscale[0] = 1.0;
+        for (int i = 1; i < xscale.length; ++i) {
+            xscale[i] = xscale[i - 1] * this.scale / (this.windows - this.offset);
+        }
+        yscale[0] = 1.0;
+        for (int j = 1; j < yscale.length; ++j) {
+            yscale[j] = yscale[j - 1] / this.dimensions;
+        }
+        DenseDoubleMatrix2D normal = new DenseDoubleMatrix2D(terms, terms);
+        DenseDoubleMatrix2D z = new DenseDoubleMatrix2D(terms, 1);
+        for (int i = 0; i < this.xDim; ++i) {
+            for (int j = 0; j < this.yDim; ++j) {
+                for (int k = 0; k < this.xDim; ++k) {
+                    for (int l = 0; l < this.yDim; ++l) {
+                        normal.set(this.yDim * i + j, this.yDim * k + l,
+                                this.powerSums[i + k][j + l] * xscale[i + k] * yscale[j + l]);
+                    }
+                }
+                z.set(this.yDim * i + j, 0, this.valueSums[i][j] * xscale[i] * yscale[j]);
+            }
+        }
+        try {
+            this.result = ((new Algebra()).solve(normal, z)).viewColumn(0).toArray();
+        } catch (IllegalArgumentException e) {
+            // the matrix is singular
+        }
     }
 
     @Override
     public Object clone() {
         AreaPolynomialApproximation ret = new AreaPolynomialApproximation();
+        ret.xDim = this.xDim;
+        ret.yDim = this.yDim;
         if (this.featureNames != null) {
             ret.featureNames = this.featureNames.clone();
+            ret.definition = new FeatureDefinition(this.definition.name,
+                    this.definition.description, this.definition.is_sequential,
+                    this.definition.dimensions);
         }
         if (this.featureNameIndecis != null) {
             ret.featureNameIndecis = this.featureNameIndecis.clone();
@@ -111,20 +246,6 @@ public class AreaPolynomialApproximation extends Aggregator {
         return new String[] { Integer.toString(this.xDim), Integer.toString(this.yDim) };
     }
 
-    private void calcTerms(DoubleMatrix2D terms) {
-        terms.assign(0.0);
-        for (int x = 0; x < this.windowLength; ++x) {
-            for (int y = 0; y < this.featureLength; ++y) {
-                for (int i = 0; i < this.xDim; ++i) {
-                    for (int j = 0; j < this.yDim; ++j) {
-                        terms.set(this.yDim * i + j, this.featureLength * x + y,
-                                Math.pow(x, i) * Math.pow(y, j));
-                    }
-                }
-            }
-        }
-    }
-
     @Override
     public void setParameters(String[] featureNames, String[] params)
             throws Exception {
@@ -167,6 +288,6 @@ public class AreaPolynomialApproximation extends Aggregator {
         }
         this.definition = new FeatureDefinition("2D Polynomial Approximation: "
                 + names, "2D moments constructed from features " + names + ".",
-                true, 0);
+                true, this.xDim * this.yDim);
     }
 }
@@ -6,6 +6,7 @@
 package net.sf.jaudio.FeatureExtractor.Aggregators;
 
 import java.io.DataOutputStream;
+import java.util.LinkedList;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.AggregatorDefinition;
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
@@ -14,22 +15,29 @@ import net.sf.jaudio.FeatureExtractor.GeneralTools.Statistics;
 import net.sf.jaudio.FeatureExtractor.GeneralTools.StringMethods;
 
 import org.oc.ocvolume.dsp.featureExtraction;
-import org.oc.ocvolume.dsp.fft;
+import org.oc.ocvolume.dsp.mfccEngine;
 
 /**
  * MFCC Aggregator
  * 
  * MFCC Aggregator is a general aggregator that produces the fist 10 MFCCs of each feature dimension independently.
  * Treats a signal as a 16 KHz signal, then calculates the MFCC's of this signal.
+ * <p>
+ * The cepstra depend on the spectrum of every window of the recording, so this is not calculated from running
+ * values: accept keeps a copy of the values of this aggregator's feature in every window, and so uses memory in
+ * proportion to the length of the recording, though it keeps no other feature.
  *
  * @author Daniel McEnnis
  * 
  */
-public class MFCC extends Aggregator {
+public class MFCC extends Aggregator implements OnlineAggregator {
 
 	featureExtraction fe = new featureExtraction();
 
 	int index = -1;
+
+	// The values of the feature in each window given to accept
+	LinkedList<double[][]> windows;
 	
 	/**
 	 * Constructs a MFCC aggregator
@@ -40,6 +48,31 @@ public class MFCC extends Aggregator {
 
 	@Override
 	public void aggregate(double[][][] values) {
+		calculate(values, index);
+	}
+
+	public void begin() {
+		windows = new LinkedList<double[][]>();
+	}
+
+	/**
+	 * Keeps a copy of the values of this aggregator's feature.
+	 */
+	public void accept(double[][] window) {
+		double[][] kept = new double[1][];
+		if (window[index] != null) {
+			kept[0] = window[index].clone();
+		}
+		windows.add(kept);
+	}
+
+	public void finish() {
+		double[][][] values = windows.toArray(new double[windows.size()][][]);
+		windows = null;
+		calculate(values, 0);
+	}
+
+	private void calculate(double[][][] values, int index) {
 		fe.numCepstra = 4;
 		int valuesOffset = 0;
 		while((valuesOffset<values.length)&&(values[valuesOffset][index]==null)){
@@ -53,37 +86,29 @@ public class MFCC extends Aggregator {
 				result[i] = 0.0;
 			}
 		}else{
-			result = new double[values[values.length-1][index].length*4];
+			int dimensions = values[valuesOffset][index].length;
+			result = new double[dimensions*4];
 			definition.dimensions = result.length;
 			// get needed power of two array length for FFT.
 			int size = Statistics.ensureIsPowerOfN(values.length-valuesOffset,2);
 			double[] fftArray = new double[size];		
 			java.util.Arrays.fill(fftArray,0.0);
-			for(int i=0;i<values[values.length-1][index].length;++i){
+			for(int i=0;i<dimensions;++i){
 				// build the next fft array
 				java.util.Arrays.fill(fftArray,0.0);
 				for(int fftArrayIndex = 0; fftArrayIndex+valuesOffset < values.length;++fftArrayIndex){
-					fftArray[fftArrayIndex]=values[fftArrayIndex+valuesOffset][index][i];
+					double[] window = values[fftArrayIndex+valuesOffset][index];
+					if((window != null)&&(i < window.length)){
+						fftArray[fftArrayIndex]=window[i];
+					}
 				}
 				
-				fft data = new fft();
-				
-		        double magSpectrum[] = new double[fftArray.length];
-		        
-		        // calculate FFT for current frame
-		        fft.computeFFT( fftArray );
-		        
 		        // calculate magnitude spectrum
-		        for (int j = 0; j < fftArray.length; j++){
-		            magSpectrum[j] = Math.pow(fft.real[j] * fft.real[j] + fft.imag[j] * fft.imag[j], 0.5);
-		        }
-
-				int[] cbin = fe.fftBinIndices(16000,
-						magSpectrum.length);
-				double[] fbank = fe.melFilter(magSpectrum,
-						cbin);
-				double[] f = fe.nonLinearTransformation(fbank);
-				double[] cepc = fe.cepCoefficients(f);
+		        double magSpectrum[] = fe.magnitudeSpectrum(fftArray);
+
+				mfccEngine engine = fe.getEngine(16000, magSpectrum.length);
+				double[] cepc = engine.process(magSpectrum,
+						new double[engine.getNumCepstra()]);
 				for(int j=0;j<cepc.length;++j){
 					result[i*4+j] = cepc[j];
 				}
@@ -6,6 +6,7 @@
 package net.sf.jaudio.FeatureExtractor.Aggregators;
 
 import java.io.DataOutputStream;
+import java.util.Arrays;
 import java.util.Vector;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.AggregatorDefinition;
@@ -23,9 +24,18 @@ import net.sf.jaudio.FeatureExtractor.GeneralTools.StringMethods;
  * 
  * @author Daniel McEnnis
  */
-public class Mean extends Aggregator {
+public class Mean extends Aggregator implements OnlineAggregator {
 	
 	int feature;
+
+	// The number of windows given to accept
+	int windows;
+
+	// The running mean of each dimension, and the number of windows that
+	// have that dimension
+	double[] means;
+
+	int[] counts;
 	
 	public Mean(){
 		metadata = new AggregatorDefinition("Mean","This is the overall average over all windows.",true,null);
@@ -83,43 +93,52 @@ public class Mean extends Aggregator {
 	 * @see jAudioFeatureExtractor.Aggregators.Aggregator#aggregate(double[][][])
 	 */
 	public void aggregate(double[][][] values) {
-		if ((values == null) || (values.length == 0)) {
+		begin();
+		if (values != null) {
+			for (int i = 0; i < values.length; ++i) {
+				accept(values[i]);
+			}
+		}
+		finish();
+	}
+
+	public void begin() {
+		windows = 0;
+		means = new double[0];
+		counts = new int[0];
+	}
+
+	/**
+	 * Updates the running mean of each dimension with Welford's method, which
+	 * keeps the mean accurate however many windows there are.
+	 */
+	public void accept(double[][] window) {
+		windows++;
+		double[] values = window[feature];
+		if (values == null) {
+			return;
+		}
+		if (values.length > means.length) {
+			means = Arrays.copyOf(means, values.length);
+			counts = Arrays.copyOf(counts, values.length);
+		}
+		for (int i = 0; i < values.length; ++i) {
+			counts[i]++;
+			means[i] += (values[i] - means[i]) / counts[i];
+		}
+	}
+
+	public void finish() {
+		if (windows == 0) {
 			result = new double[1];
 			result[0] = Double.NaN;
 			definition.dimensions = 1;
+		} else if (means.length == 0) {
+			result = new double[] { 0.0 };
+			definition.dimensions = 1;
 		} else {
-			// find the max number of dimensions
-			int max = -1;
-			for (int i = 0; i < values.length; ++i) {
-				if ((values[i][feature] != null)
-						&& (values[i][feature].length > max)) {
-					max = values[i][feature].length;
-				}
-			}
-			if (max <= 0) {
-				result = new double[] { 0.0 };
-				definition.dimensions = 1;
-			} else {
-				// now calculate means over all the dimensions
-				result = new double[max];
-				definition.dimensions = max;
-				for (int i = 0; i < max; ++i) {
-					int count = 0;
-					double sum = 0.0;
-					for (int j = 0; j < values.length; ++j) {
-						if ((values[j][feature] != null)
-								&& (values[j][feature].length > i)) {
-							sum += values[j][feature][i];
-							count++;
-						}
-					}
-					if (count == 0) {
-						result[i] = 0.0;
-					} else {
-						result[i] = sum / ((double) count);
-					}
-				}
-			}
+			result = means.clone();
+			definition.dimensions = result.length;
 		}
 	}
 
@@ -7,6 +7,7 @@
 package net.sf.jaudio.FeatureExtractor.Aggregators;
 
 import java.io.DataOutputStream;
+import java.util.LinkedList;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.AggregatorDefinition;
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
@@ -21,13 +22,17 @@ area method of moments, captures cross-feature information.  However, this featu
 large feature set that grows exponentially with the number of features added.  On the positive side, the order
 of the features is irrelevant to its performance.
 </p>
+<p>The bins of each dimension are set by its range over the whole recording, so this is not calculated from running
+values: accept keeps a copy of the values of the features being combined in every window, and so uses memory in
+proportion to the length of the recording, though it keeps no other features.
+</p>
 <h2>Histogram Binning History</h2>
 <p>First used in 2000, it was not formally published until McEnnis and Fujinaga 2005.</p>
  *
  * @author Daniel McEnnis
  * 
  */
-public class MultipleFeatureHistogram extends Aggregator {
+public class MultipleFeatureHistogram extends Aggregator implements OnlineAggregator {
 
 	String[] base = null;
 
@@ -35,6 +40,9 @@ public class MultipleFeatureHistogram extends Aggregator {
 
 	int binsPerDimension;
 
+	// The values of the features in each window given to accept
+	LinkedList<double[][]> windows;
+
 	/**
 	 * Constructs a new aggregator.  This aggregator is not valid until it has a feature list set as a parameter.
 	 */
@@ -107,6 +115,37 @@ public class MultipleFeatureHistogram extends Aggregator {
 
 	@Override
 	public void aggregate(double[][][] values) throws Exception{
+		calculate(values, indecis);
+	}
+
+	public void begin() {
+		windows = new LinkedList<double[][]>();
+	}
+
+	/**
+	 * Keeps a copy of the values of the features being combined.
+	 */
+	public void accept(double[][] window) {
+		double[][] kept = new double[indecis.length][];
+		for (int i = 0; i < indecis.length; ++i) {
+			if (window[indecis[i]] != null) {
+				kept[i] = window[indecis[i]].clone();
+			}
+		}
+		windows.add(kept);
+	}
+
+	public void finish() throws Exception {
+		double[][][] values = windows.toArray(new double[windows.size()][][]);
+		windows = null;
+		int[] kept = new int[indecis.length];
+		for (int i = 0; i < kept.length; ++i) {
+			kept[i] = i;
+		}
+		calculate(values, kept);
+	}
+
+	private void calculate(double[][][] values, int[] indecis) throws Exception{
 
 		// flatten features/dimensions into a single array
 		int[][] featureList = super.collapseFeatures(values, indecis);
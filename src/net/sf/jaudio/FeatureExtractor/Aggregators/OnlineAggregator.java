@@ -0,0 +1,56 @@
+/**
+ * Online Aggregator
+ *
+ * Published under the LGPL see license.txt or at http://www.fsf.org
+ */
+package net.sf.jaudio.FeatureExtractor.Aggregators;
+
+/**
+ * <h2>Online Aggregator</h2>
+ * <p>
+ * Implemented by aggregators that can be given the windows of a recording one
+ * at a time as they are extracted, rather than all at once through aggregate.
+ * A recording is aggregated by calling begin, then accept once for each
+ * window in order, then finish, after which the results are available from
+ * getResults exactly as they are after aggregate.
+ * </p>
+ * <p>
+ * The window passed to accept may be reused by the caller as soon as accept
+ * returns, so implementations must copy any values they keep. Most
+ * implementations keep only running sums, so the memory they use does not
+ * depend on the length of the recording.
+ * </p>
+ */
+public interface OnlineAggregator {
+
+	/**
+	 * Discards the state of any previous recording, ready for the first
+	 * window of a new one. This should not be called until after the
+	 * specific features have been specified by the init function.
+	 *
+	 * @throws Exception
+	 *             if the aggregator has not been initialised.
+	 */
+	public void begin() throws Exception;
+
+	/**
+	 * Adds the next window of the recording.
+	 *
+	 * @param window
+	 *            the values of every feature for this window, indexed by
+	 *            feature and then feature value, as one window of the array
+	 *            passed to aggregate. Features that were not extracted for
+	 *            this window are null.
+	 * @throws Exception
+	 *             if the window cannot be added.
+	 */
+	public void accept(double[][] window) throws Exception;
+
+	/**
+	 * Calculates the results from the windows added since begin was called.
+	 *
+	 * @throws Exception
+	 *             if the results cannot be calculated.
+	 */
+	public void finish() throws Exception;
+}
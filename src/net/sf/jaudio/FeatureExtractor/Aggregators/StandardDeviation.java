@@ -6,6 +6,8 @@
  */
 package net.sf.jaudio.FeatureExtractor.Aggregators;
 
+import java.util.Arrays;
+
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.AggregatorDefinition;
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
 import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
@@ -21,10 +23,22 @@ import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
  * @author Daniel McEnnis
  * 
  */
-public class StandardDeviation extends Aggregator {
+public class StandardDeviation extends Aggregator implements OnlineAggregator {
 
     int feature = -1;
 
+    // The running mean of each dimension, the sum of the squared differences
+    // from it, and the number of windows that have that dimension
+    double[] means;
+
+    double[] squares;
+
+    int[] counts;
+
+    // The number of dimensions of the feature in the last window given to
+    // accept, or -1 if it was not extracted from that window
+    int lastDimensions = -1;
+
     /**
      * Constructs a new standard deviation aggregator.
      */
@@ -35,36 +49,61 @@ public class StandardDeviation extends Aggregator {
 
     @Override
     public void aggregate(double[][][] values) {
-        if (values[values.length - 1][this.feature] == null) {
+        begin();
+        for (int i = 0; i < values.length; ++i) {
+            accept(values[i]);
+        }
+        finish();
+    }
+
+    public void begin() {
+        this.lastDimensions = -1;
+        this.means = new double[0];
+        this.squares = new double[0];
+        this.counts = new int[0];
+    }
+
+    /**
+     * Updates the running mean and sum of squared differences from the mean
+     * of each dimension with Welford's method, which avoids the cancellation
+     * of subtracting two large sums of squares.
+     */
+    public void accept(double[][] window) {
+        double[] values = window[this.feature];
+        if (values == null) {
+            this.lastDimensions = -1;
+            return;
+        }
+        this.lastDimensions = values.length;
+        if (values.length > this.means.length) {
+            this.means = Arrays.copyOf(this.means, values.length);
+            this.squares = Arrays.copyOf(this.squares, values.length);
+            this.counts = Arrays.copyOf(this.counts, values.length);
+        }
+        for (int i = 0; i < values.length; ++i) {
+            this.counts[i]++;
+            double difference = values[i] - this.means[i];
+            this.means[i] += difference / this.counts[i];
+            this.squares[i] += difference * (values[i] - this.means[i]);
+        }
+    }
+
+    /**
+     * The number of dimensions of the result is that of the last window.
+     */
+    public void finish() {
+        if (this.lastDimensions < 0) {
             this.definition.dimensions = 1;
             this.result = new double[] { 0.0 };
         } else {
-            int max = values[values.length - 1][this.feature].length;
+            int max = this.lastDimensions;
             this.definition.dimensions = max;
             this.result = new double[max];
             for (int i = 0; i < max; ++i) {
-                int count = 0;
-                double average = 0.0;
-              
-                for (int j = 0; j < values.length; ++j) {
-                    if ((values[j][this.feature] != null)
-                            && (values[j][this.feature].length > i)) {
-                        average += values[j][this.feature][i];
-                        count++;
-                    }
-                }
-                if (count < 2) {
+                if (this.counts[i] < 2) {
                     this.result[i] = 0.0;
                 } else {
-                    average /= ((double) count);
-                    for (int j = 0; j < values.length; ++j) {
-                        if ((values[j][this.feature] != null)
-                                && (values[j][this.feature].length > i)) {
-                            this.result[i] += Math.pow(values[j][this.feature][i]
-                                    - average, 2.0);
-                        }
-                    }
-                    this.result[i] = Math.sqrt(this.result[i] / (((double) count) - 1.0));
+                    this.result[i] = Math.sqrt(this.squares[i] / (((double) this.counts[i]) - 1.0));
                 }
             }
         }
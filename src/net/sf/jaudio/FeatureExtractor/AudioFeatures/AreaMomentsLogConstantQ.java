@@ -22,24 +22,6 @@ public class AreaMomentsLogConstantQ extends FeatureExtractor {
 
     int lengthOfWindow = 10;
 
-    double x;
-
-    double y;
-
-    double x2;
-
-    double xy;
-
-    double y2;
-
-    double x3;
-
-    double x2y;
-
-    double xy2;
-
-    double y3;
-
     /**
      * Constructor that sets description, dependencies, and offsets from
      * FeatureExtractor
@@ -67,6 +49,15 @@ public class AreaMomentsLogConstantQ extends FeatureExtractor {
             double[][] other_feature_values) throws Exception {
         double[] ret = new double[10];
         double sum = 0.0;
+        double x = 0.0;
+        double y = 0.0;
+        double x2 = 0.0;
+        double xy = 0.0;
+        double y2 = 0.0;
+        double x3 = 0.0;
+        double x2y = 0.0;
+        double xy2 = 0.0;
+        double y3 = 0.0;
         for (int i = 0; i < other_feature_values.length; ++i) {
             for (int j = 0; j < other_feature_values[i].length; ++j) {
                 sum += other_feature_values[i][j];
@@ -79,27 +70,27 @@ public class AreaMomentsLogConstantQ extends FeatureExtractor {
         for (int i = 0; i < other_feature_values.length; ++i) {
             for (int j = 0; j < other_feature_values[i].length; ++j) {
                 double tmp = other_feature_values[i][j] / sum;
-                this.x += tmp * i;
-                this.y += tmp * j;
-                this.x2 += tmp * i * i;
-                this.xy += tmp * i * j;
-                this.y2 += tmp * j * j;
-                this.x3 += tmp * i * i * i;
-                this.x2y += tmp * i * i * j;
-                this.xy2 += tmp * i * j * j;
-                this.y3 += tmp * j * j * j;
+                x += tmp * i;
+                y += tmp * j;
+                x2 += tmp * i * i;
+                xy += tmp * i * j;
+                y2 += tmp * j * j;
+                x3 += tmp * i * i * i;
+                x2y += tmp * i * i * j;
+                xy2 += tmp * i * j * j;
+                y3 += tmp * j * j * j;
             }
         }
         ret[0] = sum;
-        ret[1] = this.x;
-        ret[2] = this.y;
-        ret[3] = this.x2 - this.x * this.x;
-        ret[4] = this.xy - this.x * this.y;
-        ret[5] = this.y2 - this.y * this.y;
-        ret[6] = 2 * Math.pow(this.x, 3.0) - 3 * this.x * this.x2 + this.x3;
-        ret[7] = 2 * this.x * this.xy - this.y * this.x2 + this.x2 * this.y;
-        ret[8] = 2 * this.y * this.xy - this.x * this.y2 + this.y2 * this.x;
-        ret[9] = 2 * Math.pow(this.y, 3.0) - 3 * this.y * this.y2 + this.y3;
+        ret[1] = x;
+        ret[2] = y;
+        ret[3] = x2 - x * x;
+        ret[4] = xy - x * y;
+        ret[5] = y2 - y * y;
+        ret[6] = 2 * Math.pow(x, 3.0) - 3 * x * x2 + x3;
+        ret[7] = 2 * x * xy - y * x2 + x2 * y;
+        ret[8] = 2 * y * xy - x * y2 + y2 * x;
+        ret[9] = 2 * Math.pow(y, 3.0) - 3 * y * y2 + y3;
 
         return ret;
     }
@@ -148,8 +139,10 @@ public class AreaMomentsLogConstantQ extends FeatureExtractor {
 
     @Override
     public Object clone() {
-        AreaMoments ret = new AreaMoments();
+        AreaMomentsLogConstantQ ret = new AreaMomentsLogConstantQ();
         ret.lengthOfWindow = this.lengthOfWindow;
+        ret.dependencies = this.dependencies.clone();
+        ret.offsets = this.offsets.clone();
         return ret;
     }
 
@@ -21,24 +21,6 @@ public class AreaMomentsMFCC extends FeatureExtractor {
 
 	int lengthOfWindow = 10;
 
-	double x;
-
-	double y;
-
-	double x2;
-
-	double xy;
-
-	double y2;
-
-	double x3;
-
-	double x2y;
-
-	double xy2;
-
-	double y3;
-
 	/**
 	 * Constructor that sets description, dependencies, and offsets from
 	 * FeatureExtractor
@@ -86,6 +68,15 @@ public class AreaMomentsMFCC extends FeatureExtractor {
 			double[][] other_feature_values) throws Exception {
 		double[] ret = new double[10];
 		double sum = 0.0;
+		double x = 0.0;
+		double y = 0.0;
+		double x2 = 0.0;
+		double xy = 0.0;
+		double y2 = 0.0;
+		double x3 = 0.0;
+		double x2y = 0.0;
+		double xy2 = 0.0;
+		double y3 = 0.0;
 		for (int i = 0; i < other_feature_values.length; ++i) {
 			for (int j = 0; j < other_feature_values[i].length; ++j) {
 				sum += other_feature_values[i][j];
@@ -195,8 +186,10 @@ public class AreaMomentsMFCC extends FeatureExtractor {
 	 * metafeatures.
 	 */
 	public Object clone() {
-		AreaMoments ret = new AreaMoments();
+		AreaMomentsMFCC ret = new AreaMomentsMFCC();
 		ret.lengthOfWindow = lengthOfWindow;
+		ret.dependencies = dependencies.clone();
+		ret.offsets = offsets.clone();
 		return ret;
 	}
 
@@ -263,6 +263,14 @@ public class AreaPolynomialApproximation extends FeatureExtractor {
 	 */
 	public Object clone() {
 		AreaPolynomialApproximation ret = new AreaPolynomialApproximation();
+		ret.windowLength = windowLength;
+		ret.featureLength = featureLength;
+		ret.k = k;
+		ret.l = l;
+		ret.dependencies = dependencies.clone();
+		ret.offsets = offsets.clone();
+		ret.terms = (DenseDoubleMatrix2D) terms.copy();
+		ret.z = (DenseDoubleMatrix2D) z.copy();
 		return ret;
 	}
 	
@@ -279,7 +279,15 @@ public class AreaPolynomialApproximationConstantQMFCC extends FeatureExtractor {
      * metafeatures.
      */
     public Object clone() {
-        AreaPolynomialApproximation ret = new AreaPolynomialApproximation();
+        AreaPolynomialApproximationConstantQMFCC ret = new AreaPolynomialApproximationConstantQMFCC();
+        ret.windowLength = this.windowLength;
+        ret.featureLength = this.featureLength;
+        ret.k = this.k;
+        ret.l = this.l;
+        ret.dependencies = this.dependencies.clone();
+        ret.offsets = this.offsets.clone();
+        ret.terms = (DenseDoubleMatrix2D) this.terms.copy();
+        ret.z = (DenseDoubleMatrix2D) this.z.copy();
         return ret;
     }
 
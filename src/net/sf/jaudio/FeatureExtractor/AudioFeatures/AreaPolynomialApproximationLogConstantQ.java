@@ -240,7 +240,15 @@ public class AreaPolynomialApproximationLogConstantQ extends FeatureExtractor {
 
     @Override
     public Object clone() {
-        AreaPolynomialApproximation ret = new AreaPolynomialApproximation();
+        AreaPolynomialApproximationLogConstantQ ret = new AreaPolynomialApproximationLogConstantQ();
+        ret.windowLength = this.windowLength;
+        ret.featureLength = this.featureLength;
+        ret.k = this.k;
+        ret.l = this.l;
+        ret.dependencies = this.dependencies.clone();
+        ret.offsets = this.offsets.clone();
+        ret.terms = (DenseDoubleMatrix2D) this.terms.copy();
+        ret.z = (DenseDoubleMatrix2D) this.z.copy();
         return ret;
     }
 
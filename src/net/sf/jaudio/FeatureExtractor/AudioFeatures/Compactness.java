@@ -7,6 +7,7 @@
 package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * <p>
@@ -62,6 +63,20 @@ public class Compactness extends FeatureExtractor {
     @Override
     public double[] extractFeature(double[] samples, double sampling_rate,
             double[][] other_feature_values) throws Exception {
+        return extractFeature(new WindowContext(samples, sampling_rate),
+                other_feature_values, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In the case of this feature, the value is stored in the output
+     * parameter if it has a length of 1.
+     * </p>
+     */
+    @Override
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values, double[] output) throws Exception {
         double[] mag_spec = other_feature_values[0];
         double compactness = 0.0;
         for (int i = 1; i < mag_spec.length - 1; i++) {
@@ -77,7 +92,7 @@ public class Compactness extends FeatureExtractor {
             }
         }
 
-        double[] result = new double[1];
+        double[] result = getOutputBuffer(output, 1);
         result[0] = compactness;
         return result;
     }
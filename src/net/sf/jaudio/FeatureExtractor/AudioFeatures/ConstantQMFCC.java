@@ -57,7 +57,9 @@ public class ConstantQMFCC extends FeatureExtractor {
 
     @Override
     public Object clone() {
-        return new ConstantQ();
+        ConstantQMFCC ret = new ConstantQMFCC();
+        ret.numCepstra = this.numCepstra;
+        return ret;
     }
 
     @Override
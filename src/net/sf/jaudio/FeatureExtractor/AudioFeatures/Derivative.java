@@ -1,6 +1,7 @@
 package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * Class implementing the most basic discrete derivative of a dependent feature.
@@ -77,7 +78,27 @@ public class Derivative extends MetaFeatureFactory {
 	 */
 	public double[] extractFeature(double[] samples, double sampling_rate,
 			double[][] other_feature_values) throws Exception {
-		double[] ret = new double[other_feature_values[0].length];
+		return extractFeature(new WindowContext(samples, sampling_rate),
+				other_feature_values, null);
+	}
+
+	/**
+	 * Extracts the discrete derivative of the underlying feature, storing it
+	 * in the output parameter if it has the same length as the underlying
+	 * feature.
+	 * 
+	 * @param window
+	 *            the window to be analyzed. Not used by this feature
+	 * @param other_feature_values
+	 *            provides most recent and next most recent values to be
+	 *            compared
+	 * @param output
+	 *            buffer that may be overwritten with the result. May be null.
+	 * @return discrete derivative of the underlying feature
+	 */
+	public double[] extractFeature(WindowContext window,
+			double[][] other_feature_values, double[] output) throws Exception {
+		double[] ret = getOutputBuffer(output, other_feature_values[0].length);
 		for (int i = 0; i < ret.length; ++i) {
 			ret[i] = other_feature_values[0][i] - other_feature_values[1][i];
 		}
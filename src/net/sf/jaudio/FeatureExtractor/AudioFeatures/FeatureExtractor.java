@@ -8,6 +8,7 @@ package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.DataModel;
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * <p>
@@ -125,6 +126,82 @@ public abstract class FeatureExtractor {
             double sampling_rate, double[][] other_feature_values)
             throws Exception;
 
+    /**
+     * Extracts this feature from the window described by the given context
+     * and given the other feature values.
+     * <p>
+     * The context caches spectral analyses of the window so that they are only
+     * calculated once for all features extracted from the window. Features
+     * that need a spectrum should override this method and read it from the
+     * context. By default, this method calls the samples based extractFeature
+     * method.
+     * 
+     * @param window
+     *            The window to extract the feature from, along with its
+     *            sampling rate and shared spectral analyses.
+     * @param other_feature_values
+     *            The values of other features that are needed to calculate this
+     *            value, as in the samples based extractFeature method.
+     * @return The extracted feature value(s).
+     * @throws Exception
+     *             Throws an informative exception if the feature cannot be
+     *             calculated.
+     */
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values) throws Exception {
+        return extractFeature(window.getSamples(), window.getSamplingRate(),
+                other_feature_values);
+    }
+
+    /**
+     * Extracts this feature from the window described by the given context,
+     * storing the values in a buffer supplied by the caller where possible.
+     * This is the method called by FeatureProcessor, which passes in the
+     * values that this feature produced for a window that is no longer
+     * needed, so that no new array must be allocated for each window.
+     * <p>
+     * Features that do not allocate their results override this method,
+     * store their values in the output parameter (see getOutputBuffer) and
+     * return it. By default, this method ignores the output parameter and
+     * returns the values of the context based extractFeature method.
+     * 
+     * @param window
+     *            The window to extract the feature from, along with its
+     *            sampling rate and shared spectral analyses.
+     * @param other_feature_values
+     *            The values of other features that are needed to calculate this
+     *            value, as in the samples based extractFeature method.
+     * @param output
+     *            A buffer that may be overwritten with the extracted values.
+     *            May be null.
+     * @return The extracted feature value(s). This is either the output
+     *         parameter or a newly allocated array.
+     * @throws Exception
+     *             Throws an informative exception if the feature cannot be
+     *             calculated.
+     */
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values, double[] output)
+            throws Exception {
+        return extractFeature(window, other_feature_values);
+    }
+
+    /**
+     * Returns the given buffer if it can hold exactly the given number of
+     * feature values, and a new array otherwise.
+     * 
+     * @param output
+     *            The buffer supplied by the caller. May be null.
+     * @param length
+     *            The number of feature values to store.
+     * @return An array of the given length.
+     */
+    protected static double[] getOutputBuffer(double[] output, int length) {
+        if ((output == null) || (output.length != length))
+            return new double[length];
+        return output;
+    }
+
     /**
      * Function permitting an unintelligent outside function (ie. EditFeatures
      * frame) to get the default values used to populate the table's entries.
@@ -6,6 +6,8 @@
 
 package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
+import java.util.Arrays;
+
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
 
 /**
@@ -19,7 +21,8 @@ import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
  * finding what fraction of these 100 windows are below the mean.
  * </p>
  * <p>
- * No extracted feature values are stored in objects of this class.
+ * No extracted feature values are stored in objects of this class, except for
+ * the RMS values of the sliding window used by FeatureProcessor.
  * </p>
  * 
  * @author Cory McKay
@@ -28,10 +31,17 @@ import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
  * @author Daniel McEnnis 05-08-05 added setWindow to permit this feature to be
  *         edited by GlobalWindow frame.
  */
-public class FractionOfLowEnergyWindows extends FeatureExtractor {
+public class FractionOfLowEnergyWindows extends FeatureExtractor implements
+        SlidingWindowFeature {
 
     private int number_windows = 100;
 
+    // The RMS values in the sliding window in ascending order, the number of
+    // them and their sum.
+    private double[] sorted_values = null;
+    private int number_values = 0;
+    private double sum = 0.0;
+
     /**
      * Basic constructor that sets the definition and dependencies (and their
      * offsets) of this feature.
@@ -81,6 +91,79 @@ public class FractionOfLowEnergyWindows extends FeatureExtractor {
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSlidingWindowLength() {
+        return this.dependencies.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetSlidingWindow() {
+        this.sorted_values = null;
+        this.number_values = 0;
+        this.sum = 0.0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The RMS values of the window are kept sorted, so that the number of them
+     * below the running mean is found with a binary search rather than by
+     * comparing each one. Results may differ from those of extractFeature
+     * when a value is within rounding error of the mean.
+     * </p>
+     */
+    @Override
+    public double[] slideWindow(double[] entering, double[] leaving,
+            double[] output) throws Exception {
+        int length = getSlidingWindowLength();
+        if (this.sorted_values == null)
+            this.sorted_values = new double[length];
+
+        // Remove the leaving value and insert the entering one in order
+        if (leaving != null) {
+            int index = Arrays.binarySearch(this.sorted_values, 0,
+                    this.number_values, leaving[0]);
+            System.arraycopy(this.sorted_values, index + 1,
+                    this.sorted_values, index, this.number_values - index - 1);
+            this.number_values--;
+            this.sum += entering[0] - leaving[0];
+        } else
+            this.sum += entering[0];
+        int index = Arrays.binarySearch(this.sorted_values, 0,
+                this.number_values, entering[0]);
+        if (index < 0)
+            index = -index - 1;
+        System.arraycopy(this.sorted_values, index, this.sorted_values,
+                index + 1, this.number_values - index);
+        this.sorted_values[index] = entering[0];
+        this.number_values++;
+
+        if (this.number_values < length)
+            return null;
+
+        // Find the number of values below the mean
+        double average = this.sum / ((double) length);
+        int low = 0;
+        int high = this.number_values;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.sorted_values[middle] < average)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        double[] result = getOutputBuffer(output, 1);
+        result[0] = ((double) low) / ((double) length);
+        return result;
+    }
+
     /**
      * Function that must be overridden to allow this feature to be set globally
      * by GlobalChange frame.
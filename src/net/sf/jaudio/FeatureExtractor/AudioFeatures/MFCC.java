@@ -1,8 +1,10 @@
 package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 import org.oc.ocvolume.dsp.featureExtraction;
+import org.oc.ocvolume.dsp.mfccEngine;
 
 /**
  * <p>
@@ -36,18 +38,33 @@ public class MFCC extends FeatureExtractor {
     @Override
     public double[] extractFeature(double[] samples, double sampling_rate,
             double[][] other_feature_values) throws Exception {
+        return extractFeature(new WindowContext(samples, sampling_rate),
+                other_feature_values, null);
+    }
 
-        int[] cbin = this.fe.fftBinIndices(sampling_rate,
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In the case of this feature, the mel filterbank and DCT tables are
+     * shared by all windows with the same sampling rate, spectrum length and
+     * number of cepstra.
+     * </p>
+     */
+    @Override
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values, double[] output) throws Exception {
+        mfccEngine engine = this.fe.getEngine(window.getSamplingRate(),
                 other_feature_values[0].length);
-        double[] fbank = this.fe.melFilter(other_feature_values[0], cbin);
-        double[] f = this.fe.nonLinearTransformation(fbank);
-        double[] cepc = this.fe.cepCoefficients(f);
-        return cepc;
+        double[] cepc = getOutputBuffer(output, engine.getNumCepstra());
+        return engine.process(other_feature_values[0], cepc);
     }
 
     @Override
     public Object clone() {
-        return new MFCC();
+        MFCC ret = new MFCC();
+        ret.fe.numCepstra = this.fe.numCepstra;
+        ret.definition = this.definition;
+        return ret;
     }
 
     @Override
@@ -8,6 +8,7 @@ package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
 import net.sf.jaudio.FeatureExtractor.jAudioTools.FFT;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * <p>
@@ -69,6 +70,21 @@ public class MagnitudeSpectrum extends FeatureExtractor {
         return fft.getMagnitudeSpectrum();
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * In the case of this feature, the spectrum is read from the given
+     * context, so that the FFT is shared with the other features extracted
+     * from the same window.
+     * </p>
+     */
+    @Override
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values) throws Exception {
+        return window.getMagnitudeSpectrum();
+    }
+
     @Override
     public Object clone() {
         return new MagnitudeSpectrum();
@@ -7,10 +7,16 @@ import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
  * 
  * @author Daniel McEnnis
  */
-public class Mean extends MetaFeatureFactory {
+public class Mean extends MetaFeatureFactory implements SlidingWindowFeature {
 
 	protected int runningAverage = 100;
 
+	// The sum of the values in the sliding window, and the number of values
+	// added since it was last reset.
+	private double[] sum = null;
+
+	private int windows_added = 0;
+
 	/**
 	 * Basic constructor that initializes the metafeatures values properly for
 	 * use as a factory.
@@ -94,6 +100,49 @@ public class Mean extends MetaFeatureFactory {
 		return ret;
 	}
 
+	/**
+	 * Returns the number of windows averaged, which is the number of
+	 * dependencies of this feature.
+	 */
+	public int getSlidingWindowLength() {
+		return offsets.length;
+	}
+
+	/**
+	 * Empties the sliding window.
+	 */
+	public void resetSlidingWindow() {
+		sum = null;
+		windows_added = 0;
+	}
+
+	/**
+	 * Updates the running sum of the sliding window in time proportional to
+	 * the dimensions of the dependency, rather than summing the whole window
+	 * again. Results may differ from those of extractFeature in the last few
+	 * digits.
+	 */
+	public double[] slideWindow(double[] entering, double[] leaving,
+			double[] output) throws Exception {
+		if (sum == null)
+			sum = new double[entering.length];
+		if (leaving != null)
+			for (int i = 0; i < sum.length; ++i)
+				sum[i] += entering[i] - leaving[i];
+		else
+			for (int i = 0; i < sum.length; ++i)
+				sum[i] += entering[i];
+		windows_added++;
+
+		int length = getSlidingWindowLength();
+		if (windows_added < length)
+			return null;
+		double[] ret = getOutputBuffer(output, sum.length);
+		for (int i = 0; i < ret.length; ++i)
+			ret[i] = sum[i] / length;
+		return ret;
+	}
+
 	/**
 	 * Changes the number of dependant samples extracted for each object.
 	 * 
@@ -8,6 +8,7 @@ package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
 import net.sf.jaudio.FeatureExtractor.jAudioTools.FFT;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * A feature extractor that extracts the FFT power spectrum from a set of
@@ -64,6 +65,21 @@ public class PowerSpectrum extends FeatureExtractor {
         return fft.getPowerSpectrum();
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * In the case of this feature, the spectrum is read from the given
+     * context, so that the FFT is shared with the other features extracted
+     * from the same window.
+     * </p>
+     */
+    @Override
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values) throws Exception {
+        return window.getPowerSpectrum();
+    }
+
     @Override
     public Object clone() {
         return new PowerSpectrum();
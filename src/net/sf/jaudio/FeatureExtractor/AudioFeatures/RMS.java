@@ -7,6 +7,7 @@
 package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * <p>
@@ -54,11 +55,26 @@ public class RMS extends FeatureExtractor {
     @Override
     public double[] extractFeature(double[] samples, double sampling_rate,
             double[][] other_feature_values) throws Exception {
+        return extractFeature(new WindowContext(samples, sampling_rate),
+                other_feature_values, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In the case of this feature, the value is stored in the output
+     * parameter if it has a length of 1.
+     * </p>
+     */
+    @Override
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values, double[] output) throws Exception {
+        double[] samples = window.getSamples();
         double sum = 0.0;
         for (int samp = 0; samp < samples.length; samp++)
             sum += Math.pow(samples[samp], 2);
         double rms = Math.sqrt(sum / samples.length);
-        double[] result = new double[1];
+        double[] result = getOutputBuffer(output, 1);
         result[0] = rms;
         return result;
     }
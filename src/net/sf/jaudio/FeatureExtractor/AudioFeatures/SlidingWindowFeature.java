@@ -0,0 +1,67 @@
+/*
+ * @(#)SlidingWindowFeature.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.AudioFeatures;
+
+/**
+ * A feature that summarizes the values of a single dependency over a sliding
+ * window of the most recent analysis windows, and that can be updated
+ * incrementally as the window slides rather than being recalculated from
+ * every value in it.
+ * <p>
+ * Such a feature still declares one dependency on the same feature for each
+ * window that it summarizes, with offsets 0, -1, ..., -(n-1), so that the
+ * samples based extractFeature method and the ordering of features are
+ * unchanged. FeatureProcessor recognizes features that implement this
+ * interface and instead passes them only the value entering the window and
+ * the value leaving it, starting with the first window in which the
+ * dependency is available.
+ * <p>
+ * Objects implementing this interface keep the state of the current sliding
+ * window between calls, so each thread must use its own copy, as made by the
+ * clone method.
+ *
+ * @see FeatureExtractor
+ */
+public interface SlidingWindowFeature {
+
+	/**
+	 * Returns the number of windows that this feature summarizes. This is
+	 * the number of dependencies that it declares.
+	 *
+	 * @return The length of the sliding window.
+	 */
+	public int getSlidingWindowLength();
+
+	/**
+	 * Empties the sliding window. This is called at the start of each
+	 * recording.
+	 */
+	public void resetSlidingWindow();
+
+	/**
+	 * Adds the newest value of the dependency to the sliding window and
+	 * removes the oldest one, and calculates the feature if the window is
+	 * full.
+	 *
+	 * @param entering
+	 *            The value of the dependency in the current window.
+	 * @param leaving
+	 *            The value of the dependency getSlidingWindowLength windows
+	 *            before the current one, which leaves the sliding window. Null
+	 *            if the sliding window is not yet full.
+	 * @param output
+	 *            A buffer that may be overwritten with the extracted values,
+	 *            as in the extractFeature method of FeatureExtractor. May be
+	 *            null.
+	 * @return The extracted feature values, or null if fewer than
+	 *         getSlidingWindowLength values have been added since the sliding
+	 *         window was last reset.
+	 * @throws Exception
+	 *             Throws an informative exception if the feature cannot be
+	 *             calculated.
+	 */
+	public double[] slideWindow(double[] entering, double[] leaving,
+			double[] output) throws Exception;
+}
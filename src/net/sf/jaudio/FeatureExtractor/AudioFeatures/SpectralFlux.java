@@ -7,6 +7,7 @@
 package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * <p>
@@ -63,6 +64,20 @@ public class SpectralFlux extends FeatureExtractor {
     @Override
     public double[] extractFeature(double[] samples, double sampling_rate,
             double[][] other_feature_values) throws Exception {
+        return extractFeature(new WindowContext(samples, sampling_rate),
+                other_feature_values, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In the case of this feature, the value is stored in the output
+     * parameter if it has a length of 1.
+     * </p>
+     */
+    @Override
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values, double[] output) throws Exception {
         double[] this_magnitude_spectrum = other_feature_values[0];
         double[] previous_magnitude_spectrum = other_feature_values[1];
 
@@ -74,7 +89,7 @@ public class SpectralFlux extends FeatureExtractor {
             sum += differences_squared;
         }
 
-        double[] result = new double[1];
+        double[] result = getOutputBuffer(output, 1);
         result[0] = sum;
         return result;
     }
@@ -7,6 +7,7 @@
 package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * A feature extractor that extracts the Spectral Rolloff Point. This is a
@@ -50,6 +51,20 @@ public class SpectralRolloffPoint extends FeatureExtractor {
     @Override
     public double[] extractFeature(double[] samples, double sampling_rate,
             double[][] other_feature_values) throws Exception {
+        return extractFeature(new WindowContext(samples, sampling_rate),
+                other_feature_values, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In the case of this feature, the value is stored in the output
+     * parameter if it has a length of 1.
+     * </p>
+     */
+    @Override
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values, double[] output) throws Exception {
         double[] pow_spectrum = other_feature_values[0];
 
         double total = 0.0;
@@ -67,7 +82,7 @@ public class SpectralRolloffPoint extends FeatureExtractor {
             }
         }
 
-        double[] result = new double[1];
+        double[] result = getOutputBuffer(output, 1);
         result[0] = ((double) point) / ((double) pow_spectrum.length);
         return result;
     }
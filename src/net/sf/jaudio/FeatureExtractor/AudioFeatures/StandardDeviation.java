@@ -8,10 +8,19 @@ import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
  * @author Daniel McEnnis
  *
  */
-public class StandardDeviation extends MetaFeatureFactory {
+public class StandardDeviation extends MetaFeatureFactory implements
+		SlidingWindowFeature {
 
 	int sampleWidth = 100;
 
+	// The sums of the values and of their squares in the sliding window, and
+	// the number of values added since it was last reset.
+	private double[] x = null;
+
+	private double[] x2 = null;
+
+	private int windows_added = 0;
+
 	/**
 	 * Basic constructor that initializes the metafeautres values properly for
 	 * use as a factory.
@@ -104,6 +113,58 @@ public class StandardDeviation extends MetaFeatureFactory {
 		return ret;
 	}
 
+	/**
+	 * Returns the number of windows used, which is the number of dependencies
+	 * of this feature.
+	 */
+	public int getSlidingWindowLength() {
+		return offsets.length;
+	}
+
+	/**
+	 * Empties the sliding window.
+	 */
+	public void resetSlidingWindow() {
+		x = null;
+		x2 = null;
+		windows_added = 0;
+	}
+
+	/**
+	 * Updates the running sums of the values and of their squares in time
+	 * proportional to the dimensions of the dependency, rather than summing
+	 * the whole window again. Results may differ from those of extractFeature
+	 * in the last few digits.
+	 */
+	public double[] slideWindow(double[] entering, double[] leaving,
+			double[] output) throws Exception {
+		if (x == null) {
+			x = new double[entering.length];
+			x2 = new double[entering.length];
+		}
+		for (int i = 0; i < x.length; ++i) {
+			x2[i] += entering[i] * entering[i];
+			x[i] += entering[i];
+		}
+		if (leaving != null)
+			for (int i = 0; i < x.length; ++i) {
+				x2[i] -= leaving[i] * leaving[i];
+				x[i] -= leaving[i];
+			}
+		windows_added++;
+
+		int length = getSlidingWindowLength();
+		if (windows_added < length)
+			return null;
+		double[] ret = getOutputBuffer(output, x.length);
+		for (int i = 0; i < ret.length; ++i) {
+			ret[i] = x[i] * x[i] - x2[i];
+			ret[i] /= length - 1;
+			ret[i] = Math.sqrt(ret[i]);
+		}
+		return ret;
+	}
+
 	/**
 	 * Function permits this class to respond to a global window change request.
 	 * 
@@ -7,6 +7,7 @@
 package net.sf.jaudio.FeatureExtractor.AudioFeatures;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.WindowContext;
 
 /**
  * A feature extractor that extracts the Zero Crossings from a set of samples.
@@ -49,6 +50,21 @@ public class ZeroCrossings extends FeatureExtractor {
     @Override
     public double[] extractFeature(double[] samples, double sampling_rate,
             double[][] other_feature_values) throws Exception {
+        return extractFeature(new WindowContext(samples, sampling_rate),
+                other_feature_values, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In the case of this feature, the value is stored in the output
+     * parameter if it has a length of 1.
+     * </p>
+     */
+    @Override
+    public double[] extractFeature(WindowContext window,
+            double[][] other_feature_values, double[] output) throws Exception {
+        double[] samples = window.getSamples();
         long count = 0;
         for (int samp = 0; samp < samples.length - 1; samp++) {
             if (samples[samp] > 0.0 && samples[samp + 1] < 0.0)
@@ -58,7 +74,7 @@ public class ZeroCrossings extends FeatureExtractor {
             else if (samples[samp] == 0.0 && samples[samp + 1] != 0.0)
                 count++;
         }
-        double[] result = new double[1];
+        double[] result = getOutputBuffer(output, 1);
         result[0] = (double) count;
         return result;
     }
@@ -1,8 +1,8 @@
 package net.sf.jaudio.FeatureExtractor;
 
-import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -12,7 +12,9 @@ import net.sf.jaudio.FeatureExtractor.ACE.XMLParsers.XMLDocumentParser;
 import net.sf.jaudio.FeatureExtractor.Aggregators.Aggregator;
 import net.sf.jaudio.FeatureExtractor.Aggregators.AggregatorContainer;
 import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.SlidingWindowFeature;
 import net.sf.jaudio.FeatureExtractor.jAudioTools.FeatureProcessor;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.SampleSource;
 
 /**
  * Created with IntelliJ IDEA.
@@ -22,23 +24,46 @@ import net.sf.jaudio.FeatureExtractor.jAudioTools.FeatureProcessor;
  * To change this template use File | Settings | File Templates.
  */
 public class AudioStreamProcessor {
-    private FeatureProcessor analysisEngine;
     private AggregatorContainer container;
     private boolean window = false;
     private boolean overall = false;
 
+    // The settings that a FeatureProcessor is created with for each track
+    private int windowLength;
+    private double windowOverlap;
+    private double sampleRate;
+    private boolean normalise;
+    private FeatureExtractor[] features;
+    private boolean[] defaults;
+
+    // The format of the files written by process: 0 for ACE XML, 1 for ARFF
+    // or 2 for JSON, which is used unless the settings name another format
+    private int outputType = 2;
+
+    // Reused for every track whose features are only given to a listener
+    private FeatureProcessor listenerEngine = null;
+
+    // The key of the AudioStreamProcessorPool this was created for, if any
+    String poolKey = null;
+
     public AudioStreamProcessor(String featureFile,String settingsFile){
         DataModel model = new DataModel(featureFile,null);
         try{
             Object[] contents = (Object[])XMLDocumentParser.parseXMLDocument(settingsFile,"save_settings");
-            int windowLength = Integer.parseInt((String)contents[0]);
-            double windowOverlap = Double.parseDouble((String)contents[1]);
-            double sampleRate = (Double)contents[2];
-            boolean normalise = (Boolean)contents[3];
+            this.windowLength = Integer.parseInt((String)contents[0]);
+            this.windowOverlap = Double.parseDouble((String)contents[1]);
+            this.sampleRate = (Double)contents[2];
+            this.normalise = (Boolean)contents[3];
             boolean savePerWindow = (Boolean)contents[4];
             this.window = savePerWindow;
             boolean saveOverall = (Boolean)contents[5];
             this.overall = saveOverall;
+            String outputName = (String)contents[6];
+            if("ACE".equals(outputName)){
+                this.outputType = 0;
+            }else if("ARFF".equals(outputName)){
+                this.outputType = 1;
+            }
             Map<String,Boolean> checked = (Map<String,Boolean>)contents[7];
             Map<String,String[]> attribute = (Map<String,String[]>)contents[8];
             List<String> aggregatorNames = (List<String>)contents[9];
@@ -78,90 +103,148 @@ public class AudioStreamProcessor {
             this.container = new AggregatorContainer();
             this.container.add(list);
             this.container.add(model.features,model.defaults);
-            this.analysisEngine = new FeatureProcessor(windowLength,
-                                         windowOverlap,
-                                         sampleRate,
-                                         normalise,
-                                         model.features,
-                                         model.defaults,
-                                         savePerWindow,
-                                         saveOverall,
+            this.features = model.features;
+            this.defaults = model.defaults;
+        }catch(Exception e){
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Extracts features from a track as its samples are read from the given
+     * source, saving the feature values to filePrefix + "values.xml" and
+     * their definitions to filePrefix + "definitions.xml". JSON output is
+     * saved to filePrefix + "values.json" and "definitions.json" instead,
+     * and ARFF output to filePrefix + "values.arff" alone. Only a window of
+     * samples and the windows needed by dependencies are held in memory, so
+     * a track can be processed while it is still arriving. The files are
+     * deleted if the track cannot be processed, including when the source
+     * throws an exception at the end of the track.
+     *
+     * @param source The samples of the track, at the sampling rate of the settings.
+     * @param filePrefix The path that the names of the output files start with.
+     * @throws Exception if the features cannot be extracted or saved.
+     */
+    public void process(SampleSource source, String filePrefix) throws Exception{
+        String extension = ".xml";
+        if(this.outputType == 1){
+            extension = ".arff";
+        }else if(this.outputType == 2){
+            extension = ".json";
+        }
+        File valuesFile = new File(filePrefix+"values"+extension);
+        File definitionsFile = null;
+        OutputStream values = new FileOutputStream(valuesFile);
+        OutputStream definitions = null;
+        boolean finished = false;
+        try{
+            if(this.outputType != 1){
+                definitionsFile = new File(filePrefix+"definitions"+extension);
+                definitions = new FileOutputStream(definitionsFile);
+            }
+            FeatureProcessor analysisEngine = new FeatureProcessor(this.windowLength,
+                                         this.windowOverlap,
+                                         this.sampleRate,
+                                         this.normalise,
+                                         this.features,
+                                         this.defaults,
+                                         this.window,
+                                         this.overall,
+                                         values,
+                                         definitions,
+                                         this.outputType,
+                                         null,
+                                         this.container
+                    );
+            analysisEngine.extractFeatures(source,filePrefix);
+            analysisEngine.finalize();
+            finished = true;
+        }finally{
+            values.close();
+            if(definitions != null){
+                definitions.close();
+            }
+            if(!finished){
+                valuesFile.delete();
+                if(definitionsFile != null){
+                    definitionsFile.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts features from a track as its samples are read from the given
+     * source, giving the values of each window to the listener as soon as it
+     * has been extracted, and then the overall values. Nothing is saved to
+     * files.
+     *
+     * @param source The samples of the track, at the sampling rate of the settings.
+     * @param identifier The string identifying the track.
+     * @param listener Given the feature values.
+     * @throws Exception if the features cannot be extracted, or the listener fails.
+     */
+    public void process(SampleSource source, String identifier, FeatureListener listener) throws Exception{
+        if(this.listenerEngine == null){
+            // Nothing is written, so the engine can be kept from one track
+            // to the next
+            this.listenerEngine = new FeatureProcessor(this.windowLength,
+                                         this.windowOverlap,
+                                         this.sampleRate,
+                                         this.normalise,
+                                         this.features,
+                                         this.defaults,
+                                         this.window,
+                                         this.overall,
                                          null,
                                          null,
-                                         2,
+                                         0,
                                          null,
                                          this.container
                     );
-        }catch(Exception e){
-            System.out.println(e.getMessage());
         }
+        this.listenerEngine.extractFeatures(source,identifier,listener);
     }
 
-    public void output(String filePrefix) throws java.io.IOException{
- 	if(this.window){       
-	FileWriter windowWriter = new FileWriter(filePrefix+"window.json");
-//        double[][][] w = this.analysisEngine.getWindow_feature_values();
-        windowWriter.write("[\n");
-        boolean w_first = true;
-//        for (double[][] window : w){
-//            if(w_first){
-//                w_first = false;
-//            }else{
-//                windowWriter.write(",");
-//            }
-//            windowWriter.write("\t{\n");
-//            boolean f_first = true;
-//            for(int count = 0; count< window.length;++count){
-//                double[] feature = window[count];
-//                if(f_first){
-//                    f_first = false;
-//                }else{
-//                    windowWriter.write(",");
-//                }
-////                windowWriter.write("\t\t\""+this.analysisEngine.feature_extractors[count]+"\" : [\n");
-//                boolean e_first = true;
-//                if(feature != null){
-//		for(double element : feature){
-//                    if(e_first){
-//                       e_first = false;
-//                    }else{
-//                        windowWriter.write(",");
-//                    }
-//                    windowWriter.write(Double.toString(element));
-//                }
-//		}
-//                windowWriter.write("\t\t]\n");
-//            }
-//            windowWriter.write("\t}\n");
-//        }
-        windowWriter.write("]\n");
-        windowWriter.flush();
-        windowWriter.close();
-	}
-        if(this.overall){
-        FileWriter overallWriter = new FileWriter(filePrefix+"overall.json");
-//        try{
-//            this.container.outputJSONEntries(overallWriter);
-//        }catch(Exception e){
-//            System.out.println(e.getMessage());
-//        }
-        overallWriter.flush();
-        overallWriter.close();
-	System.out.println("Analysis of "+filePrefix+" finished");
+    /**
+     * Clears what the last track left behind in the features and
+     * aggregators, so that this processor can be given to another track
+     * without the previous one showing through, for instance in the overall
+     * values of a track that fails part way.
+     *
+     * @throws Exception if the features and settings were not loaded, or the
+     * aggregators cannot be rebuilt.
+     */
+    public void reset() throws Exception{
+        if(this.features == null){
+            throw new Exception("The features and settings could not be loaded");
+        }
+        for(FeatureExtractor feature : this.features){
+            if(feature instanceof SlidingWindowFeature){
+                ((SlidingWindowFeature)feature).resetSlidingWindow();
+            }
         }
+        this.container.add(this.features,this.defaults);
     }
 
-//    public void process(double[] samples) throws Exception{
-//        this.analysisEngine.extractFeaturesBySample(samples,null);
-//    }
-//
-//    public double[][][] getPerWindowValues(){
-//        return this.analysisEngine.getWindow_feature_values();
-//    }
-//
-//    public int[] getWindowStartIndices(){
-//        return this.analysisEngine.getWindow_start_indices();
-//    }
+    /**
+     * Returns the sampling rate that samples given to process must have.
+     *
+     * @return The sampling rate of the settings.
+     */
+    public double getSampleRate(){
+        return this.sampleRate;
+    }
+
+    /**
+     * Sets the format of the files written by process, overriding the
+     * outputType of the settings file.
+     *
+     * @param outputType 0 for ACE XML, 1 for ARFF or 2 for JSON.
+     */
+    public void setOutputType(int outputType){
+        this.outputType = outputType;
+    }
 
     public double[][] getOverallValues(){
         return this.container.getResults();
@@ -0,0 +1,204 @@
+package net.sf.jaudio.FeatureExtractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import javax.sound.sampled.AudioFormat;
+
+import net.sf.jaudio.FeatureExtractor.jAudioTools.AudioMethodsSynthesis;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.ChannelSampleSource;
+
+/**
+ * Keeps AudioStreamProcessors that have already loaded their features and
+ * settings, so that a server does not parse both files and rebuild its
+ * aggregators for every track.
+ * <p>
+ * Processors are kept by the names of their features and settings files
+ * together with a digest of the contents of both, so editing either file
+ * gives new tracks new processors, and the idle processors loaded from the
+ * old contents are dropped. A processor taken with acquire is only used by
+ * one track at a time, and is reset when it is given back with release.
+ * <p>
+ * prewarm loads processors before the first track arrives and runs
+ * synthetic audio through them, so that the first tracks are not slowed
+ * down by the JIT compiler either.
+ */
+public class AudioStreamProcessorPool {
+    /**
+     * The length in seconds of the synthetic audio used by prewarm.
+     */
+    public final static double PREWARM_SECONDS = 10.0;
+
+    // The largest number of idle processors kept for each key
+    private int maxIdle;
+
+    // The idle processors of each key
+    private HashMap<String,LinkedList<AudioStreamProcessor>> idle = new HashMap<String,LinkedList<AudioStreamProcessor>>();
+
+    // The current key of each pair of feature and settings files
+    private HashMap<String,String> currentKeys = new HashMap<String,String>();
+
+    // The modification times and lengths of each pair of files when their
+    // key was last found
+    private HashMap<String,String> stamps = new HashMap<String,String>();
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param maxIdle The largest number of idle processors kept for each
+     * pair of files, normally the number of tracks processed at once.
+     */
+    public AudioStreamProcessorPool(int maxIdle){
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns a processor for the given files that no other track is using,
+     * loading a new one if none is idle.
+     *
+     * @param featureFile The features file.
+     * @param settingsFile The settings file.
+     * @return The processor, which must be given back with release.
+     * @throws Exception if either file cannot be read or loaded.
+     */
+    public AudioStreamProcessor acquire(String featureFile, String settingsFile) throws Exception{
+        String key = key(featureFile,settingsFile);
+        synchronized(this){
+            LinkedList<AudioStreamProcessor> processors = this.idle.get(key);
+            if((processors != null) && !processors.isEmpty()){
+                return processors.removeFirst();
+            }
+        }
+        return load(featureFile,settingsFile,key);
+    }
+
+    /**
+     * Gives back a processor taken with acquire once its track has finished
+     * or failed. The processor is reset and kept for the next track, unless
+     * its files have changed since it was loaded or enough processors are
+     * already idle.
+     *
+     * @param processor The processor to give back.
+     */
+    public void release(AudioStreamProcessor processor){
+        try{
+            processor.reset();
+        }catch(Exception e){
+            System.out.println("Exception: "+e.getMessage());
+            return;
+        }
+        synchronized(this){
+            LinkedList<AudioStreamProcessor> processors = this.idle.get(processor.poolKey);
+            if((processors != null) && (processors.size() < this.maxIdle)){
+                processors.addLast(processor);
+            }
+        }
+    }
+
+    /**
+     * Loads processors for the given files until the given number are idle,
+     * and runs PREWARM_SECONDS of synthetic audio through each at the
+     * sampling rate of the settings.
+     *
+     * @param featureFile The features file.
+     * @param settingsFile The settings file.
+     * @param count The number of idle processors wanted.
+     * @throws Exception if either file cannot be read or loaded, or features
+     * cannot be extracted from the synthetic audio.
+     */
+    public void prewarm(String featureFile, String settingsFile, int count) throws Exception{
+        String key = key(featureFile,settingsFile);
+        LinkedList<AudioStreamProcessor> loaded = new LinkedList<AudioStreamProcessor>();
+        synchronized(this){
+            LinkedList<AudioStreamProcessor> processors = this.idle.get(key);
+            if(processors != null){
+                count -= processors.size();
+            }
+        }
+        for(int i=0;i<count;++i){
+            AudioStreamProcessor processor = load(featureFile,settingsFile,key);
+            byte[] audio = synthesize((float)processor.getSampleRate());
+            processor.process(new ChannelSampleSource(Channels.newChannel(new ByteArrayInputStream(audio)),
+                    synthesisFormat((float)processor.getSampleRate()),ByteBuffer.allocate(16 * 1024)),
+                    "prewarm",null);
+            loaded.add(processor);
+        }
+        for(AudioStreamProcessor processor : loaded){
+            release(processor);
+        }
+    }
+
+    private AudioStreamProcessor load(String featureFile, String settingsFile, String key) throws Exception{
+        AudioStreamProcessor processor = new AudioStreamProcessor(featureFile,settingsFile);
+        processor.reset();
+        processor.poolKey = key;
+        return processor;
+    }
+
+    /**
+     * Finds the key of the current contents of the given files. The files
+     * are only read again when their modification times or lengths have
+     * changed. When the contents have changed, the idle processors of the
+     * old contents are dropped.
+     */
+    private String key(String featureFile, String settingsFile) throws Exception{
+        String files = featureFile+'\n'+settingsFile;
+        File features = new File(featureFile);
+        File settings = new File(settingsFile);
+        String stamp = features.lastModified()+" "+features.length()+" "
+                +settings.lastModified()+" "+settings.length();
+        synchronized(this){
+            if(stamp.equals(this.stamps.get(files))){
+                return this.currentKeys.get(files);
+            }
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        digest.update(Files.readAllBytes(features.toPath()));
+        digest.update((byte)0);
+        digest.update(Files.readAllBytes(settings.toPath()));
+        StringBuilder key = new StringBuilder(featureFile).append('\n').append(settingsFile).append('\n');
+        for(byte b : digest.digest()){
+            key.append(String.format("%02x",b));
+        }
+        synchronized(this){
+            this.stamps.put(files,stamp);
+            String old = this.currentKeys.put(files,key.toString());
+            if(!key.toString().equals(old)){
+                if(old != null){
+                    this.idle.remove(old);
+                }
+                this.idle.put(key.toString(),new LinkedList<AudioStreamProcessor>());
+            }
+        }
+        return key.toString();
+    }
+
+    private static AudioFormat synthesisFormat(float sampleRate){
+        return new AudioFormat(sampleRate,16,1,true,true);
+    }
+
+    /**
+     * Returns 16 bit audio that sweeps through the spectrum and then turns to
+     * white noise, so that every feature sees both tonal and noisy windows.
+     */
+    private static byte[] synthesize(float sampleRate) throws Exception{
+        AudioFormat format = synthesisFormat(sampleRate);
+        byte[] sweep = new byte[2 * (int)(sampleRate * PREWARM_SECONDS / 2)];
+        byte[] noise = new byte[sweep.length];
+        AudioMethodsSynthesis.synthesizeAndWriteToBuffer(sweep,0.0,format,
+                AudioMethodsSynthesis.getSynthesisTypeCode("FM Sweep"),0.8,0.0,440.0,0.45,0.01);
+        AudioMethodsSynthesis.synthesizeAndWriteToBuffer(noise,0.0,format,
+                AudioMethodsSynthesis.getSynthesisTypeCode("White Noise"),0.8,0.0,440.0,0.45,0.01);
+        byte[] audio = new byte[sweep.length + noise.length];
+        System.arraycopy(sweep,0,audio,0,sweep.length);
+        System.arraycopy(noise,0,audio,sweep.length,noise.length);
+        return audio;
+    }
+}
@@ -1,9 +1,16 @@
 package net.sf.jaudio.FeatureExtractor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
 import net.sf.jaudio.FeatureExtractor.ACE.XMLParsers.XMLDocumentParser;
@@ -88,6 +95,20 @@ public class DataModel {
 
 	public OutputStream featureValue = null;
 
+	/**
+	 * whether recordings are extracted in streaming mode, keeping only the
+	 * window history that feature dependencies need instead of every window
+	 * of a recording.
+	 */
+	public boolean streaming = false;
+
+	/**
+	 * number of recordings that are extracted at the same time. Each worker
+	 * uses its own copies of the features and aggregators, and the output is
+	 * identical to extracting the recordings one at a time.
+	 */
+	public int workers = 1;
+
 	/**
 	 * Initializes each of the arrays with all available efeatures. Place to add
 	 * new features.
@@ -306,16 +327,23 @@ public class DataModel {
 				this.defaults, save_features_for_each_window,
 				save_overall_recording_features, featureValue, featureKey,
 				outputType, cancel_, container);
+		processor.setStreaming(streaming);
 
 		// Extract features from recordings one by one and save them in XML
 		// files
 //		AudioSamples recording_content;
-		for (int i = 0; i < recordings.length; i++) {
-			File load_file = new File(recordings[i].file_path);
-			if (updater != null) {
-				updater.announceUpdate(i, 0);
+		if ((workers > 1) && (recordings.length > 1)) {
+			extractInParallel(processor, window_size, window_overlap,
+					sampling_rate, normalise, save_features_for_each_window,
+					save_overall_recording_features, recordings, outputType);
+		} else {
+			for (int i = 0; i < recordings.length; i++) {
+				File load_file = new File(recordings[i].file_path);
+				if (updater != null) {
+					updater.announceUpdate(i, 0);
+				}
+				processor.extractFeatures(load_file, updater);
 			}
-			processor.extractFeatures(load_file, updater);
 		}
 
 		// Finalize saved XML files
@@ -327,6 +355,241 @@ public class DataModel {
 		// JOptionPane.INFORMATION_MESSAGE);
 	}
 
+	/**
+	 * Extracts features from the given recordings using the number of worker
+	 * threads given by the workers field. Each worker has its own
+	 * FeatureProcessor with cloned features and aggregators, which writes the
+	 * output of each recording to memory. The output of each recording is then
+	 * saved by the given processor in the order of the recordings, so the
+	 * result is the same as extracting the recordings one by one.
+	 * <p>
+	 * The updater is told when each recording is reached in this order, and
+	 * receives the windows of that recording as they are extracted. Windows of
+	 * recordings that were extracted ahead of it are reported when they are
+	 * reached.
+	 * 
+	 * @param processor
+	 *            processor that saves the output of every recording
+	 * @param recordings
+	 *            list of the files that are to be analyzed
+	 * @throws Exception
+	 */
+	void extractInParallel(FeatureProcessor processor, int window_size,
+			double window_overlap, double sampling_rate, boolean normalise,
+			boolean save_features_for_each_window,
+			boolean save_overall_recording_features,
+			final RecordingInfo[] recordings, int outputType)
+			throws Exception {
+		int number_workers = Math.min(workers, recordings.length);
+		final ParallelProgress progress;
+		if (updater != null) {
+			progress = new ParallelProgress(updater, recordings.length);
+		} else {
+			progress = null;
+		}
+
+		// Prepare the workers, each with its own features and aggregators
+		final LinkedBlockingQueue<ExtractionWorker> idle = new LinkedBlockingQueue<ExtractionWorker>();
+		for (int w = 0; w < number_workers; w++) {
+			FeatureExtractor[] worker_features = new FeatureExtractor[features.length];
+			for (int i = 0; i < features.length; i++) {
+				worker_features[i] = (FeatureExtractor) features[i].clone();
+			}
+			Aggregator[] worker_aggregators = new Aggregator[aggregators.length];
+			for (int i = 0; i < aggregators.length; i++) {
+				worker_aggregators[i] = (Aggregator) aggregators[i].clone();
+			}
+			AggregatorContainer worker_container = new AggregatorContainer();
+			worker_container.add(worker_aggregators);
+			worker_container.add(worker_features, defaults);
+
+			ExtractionWorker worker = new ExtractionWorker();
+			worker.processor = new FeatureProcessor(window_size,
+					window_overlap, sampling_rate, normalise, worker_features,
+					defaults, save_features_for_each_window,
+					save_overall_recording_features, worker.values,
+					worker.definitions, outputType, cancel_, worker_container);
+			worker.processor.setStreaming(streaming);
+			idle.add(worker);
+		}
+
+		// Extract the recordings, keeping a limited number of them ahead of
+		// the one being saved, and save them in order
+		ExecutorService executor = Executors.newFixedThreadPool(number_workers);
+		LinkedList<Future<byte[][]>> pending = new LinkedList<Future<byte[][]>>();
+		int submitted = 0;
+		try {
+			for (int i = 0; i < recordings.length; i++) {
+				while ((submitted < recordings.length)
+						&& (submitted < i + 2 * number_workers)) {
+					final int index = submitted;
+					pending.add(executor.submit(new Callable<byte[][]>() {
+						public byte[][] call() throws Exception {
+							ExtractionWorker worker = idle.take();
+							try {
+								Updater worker_updater = null;
+								if (progress != null) {
+									worker_updater = progress.forRecording(index);
+								}
+								return worker.extract(new File(
+										recordings[index].file_path),
+										index == 0, worker_updater);
+							} finally {
+								idle.put(worker);
+							}
+						}
+					}));
+					submitted++;
+				}
+
+				if (progress != null) {
+					progress.reached(i);
+				}
+				byte[][] output;
+				try {
+					output = pending.removeFirst().get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+				processor.saveExtractedRecording(output[0], output[1]);
+				if (progress != null) {
+					progress.saved(i);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * A FeatureProcessor used by one parallel extraction worker, along with the
+	 * buffers that it writes the output of one recording to.
+	 */
+	static class ExtractionWorker {
+
+		ByteArrayOutputStream values = new ByteArrayOutputStream();
+
+		ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+
+		FeatureProcessor processor;
+
+		/**
+		 * Extracts the features of a recording.
+		 * 
+		 * @param recording
+		 *            the audio file to extract features from
+		 * @param first
+		 *            whether this is the first recording of the output
+		 * @param updater
+		 *            told the number of windows of the recording and how many
+		 *            have been extracted, or null
+		 * @return the bytes of the feature values and of the feature
+		 *         definitions written for this recording
+		 * @throws Exception
+		 */
+		byte[][] extract(File recording, boolean first, Updater updater)
+				throws Exception {
+			values.reset();
+			definitions.reset();
+			processor.setFirstRecording(first);
+			processor.extractFeatures(recording, updater);
+			return new byte[][] { values.toByteArray(),
+					definitions.toByteArray() };
+		}
+	}
+
+	/**
+	 * Reports the progress of a parallel extraction to an updater as if the
+	 * recordings were extracted one by one. The windows of the recording that
+	 * is saved next are passed on as the worker extracting it reaches them.
+	 * The windows of any other recording are recorded and passed on once it
+	 * becomes the next to be saved.
+	 */
+	static class ParallelProgress {
+
+		Updater updater;
+
+		int reached = 0;
+
+		int[] lengths;
+
+		int[] windows;
+
+		ParallelProgress(Updater updater, int recordings) {
+			this.updater = updater;
+			lengths = new int[recordings];
+			windows = new int[recordings];
+		}
+
+		/**
+		 * Returns the updater to give to the worker extracting a recording.
+		 * 
+		 * @param index
+		 *            index of the recording in the extraction
+		 * @return updater that reports the windows of this recording
+		 */
+		Updater forRecording(final int index) {
+			return new Updater() {
+				public void announceUpdate(int fileNumber, int fileDone) {
+					// files are only announced in order by reached
+				}
+
+				public void announceUpdate(int fileDone) {
+					window(index, fileDone);
+				}
+
+				public void setNumberOfFiles(int files) {
+				}
+
+				public void setFileLength(int windows) {
+					length(index, windows);
+				}
+			};
+		}
+
+		synchronized void length(int index, int length) {
+			lengths[index] = length;
+			if (index == reached) {
+				updater.setFileLength(length);
+			}
+		}
+
+		synchronized void window(int index, int window) {
+			windows[index] = window;
+			if (index == reached) {
+				updater.announceUpdate(window);
+			}
+		}
+
+		/**
+		 * Announces the recording that is saved next, along with the windows
+		 * of it that have already been extracted.
+		 */
+		synchronized void reached(int index) {
+			reached = index;
+			updater.announceUpdate(index, 0);
+			if (lengths[index] > 0) {
+				updater.setFileLength(lengths[index]);
+			}
+			if (windows[index] > 0) {
+				updater.announceUpdate(windows[index]);
+			}
+		}
+
+		/**
+		 * Announces that every window of a recording has been extracted once
+		 * it has been saved.
+		 */
+		synchronized void saved(int index) {
+			if (lengths[index] > 0) {
+				updater.announceUpdate(lengths[index]);
+			}
+		}
+	}
+
 	/**
 	 * Establish a listener for periodic updates on the feature extraction
 	 * progress.
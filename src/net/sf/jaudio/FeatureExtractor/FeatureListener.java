@@ -0,0 +1,62 @@
+/*
+ * @(#)FeatureListener.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor;
+
+import net.sf.jaudio.FeatureExtractor.Aggregators.AggregatorContainer;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
+
+/**
+ * Interface used by FeatureProcessor to hand over feature values as soon as
+ * they are extracted, without tying the extraction to a particular output
+ * format or destination, such as a network connection.
+ */
+public interface FeatureListener {
+
+	/**
+	 * Called before the first window of a recording is extracted.
+	 *
+	 * @param identifier
+	 *            The string identifying the recording.
+	 * @param features
+	 *            The features extracted from each window, in the order of
+	 *            the values given to windowExtracted.
+	 * @param saved
+	 *            Which of the features are to be saved. The others are only
+	 *            extracted because saved features depend on them.
+	 * @throws Exception
+	 *             Stops the extraction.
+	 */
+	public void recordingStarted(String identifier,
+			FeatureExtractor[] features, boolean[] saved) throws Exception;
+
+	/**
+	 * Called after each window has been extracted.
+	 *
+	 * @param start_sample
+	 *            The indice of the first sample of the window.
+	 * @param values
+	 *            The values of each feature for the window, indexed by
+	 *            feature and then dimension. Values of features that are not
+	 *            saved, or that could not be extracted for this window, may
+	 *            be null. The arrays may be reused once this method returns.
+	 * @throws Exception
+	 *             Stops the extraction.
+	 */
+	public void windowExtracted(int start_sample, double[][] values)
+			throws Exception;
+
+	/**
+	 * Called after the last window of a recording has been extracted and the
+	 * overall recording features, if any, have been aggregated.
+	 *
+	 * @param aggregators
+	 *            The aggregators holding the overall recording features, or
+	 *            null if they are not saved.
+	 * @throws Exception
+	 *             Reports a problem with the recording.
+	 */
+	public void recordingFinished(AggregatorContainer aggregators)
+			throws Exception;
+}
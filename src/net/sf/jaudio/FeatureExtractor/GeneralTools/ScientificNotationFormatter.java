@@ -0,0 +1,247 @@
+/*
+ * @(#)ScientificNotationFormatter.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.GeneralTools;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * A holder class for static methods that write numbers in scientific notation
+ * directly into byte buffers as ASCII characters.
+ *
+ * <p>The text written is identical to that returned by
+ * StringMethods.getDoubleInScientificNotation, which is the format of a
+ * DecimalFormat with a pattern such as 0.###E0: the mantissa is rounded half
+ * even to the given number of significant digits, trailing zeros of the
+ * mantissa and a trailing decimal point are left out, and the exponent is
+ * written without a plus sign. 0.00123456 with 4 significant digits is
+ * written as 1.235E-3, and 1200 as 1.2E3.
+ *
+ * <p>Unlike a DecimalFormat, no objects are created to format a value. The
+ * exception is the rare value that is within rounding error of halfway
+ * between two roundings, or that is subnormal. DecimalFormat rounds the
+ * shortest decimal representation of a value rather than its exact binary
+ * value, so such values are passed on to a DecimalFormat to guarantee the
+ * same result. The methods may be called by any number of threads at once.
+ *
+ * @see		StringMethods
+ */
+public class ScientificNotationFormatter
+{
+	/**
+	 * The largest number of significant digits that can be written.
+	 */
+	public static final int MAX_SIGNIFICANT_DIGITS = 9;
+
+	/**
+	 * The largest number of characters written for a single value.
+	 */
+	public static final int MAX_LENGTH = MAX_SIGNIFICANT_DIGITS + 8;
+
+	// Powers of ten that are represented exactly as doubles.
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// Powers of ten as integers, up to ten to the MAX_SIGNIFICANT_DIGITS.
+	private static final long[] INTEGER_POWERS_OF_TEN = {
+		1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+		100000000L, 1000000000L };
+
+	// How close to one half the fractional part of a scaled value must be
+	// before the value is formatted by a DecimalFormat. This is far larger
+	// than the rounding error of scaling.
+	private static final double TIE_MARGIN = 1e-6;
+
+
+	/**
+	 * Returns whether values can be written with the given number of
+	 * significant digits.
+	 *
+	 * @param	significant_digits	The number of significant digits.
+	 * @return						True if it is between 1 and
+	 *								MAX_SIGNIFICANT_DIGITS.
+	 */
+	public static boolean isSupported(int significant_digits)
+	{
+		return significant_digits >= 1 && significant_digits <= MAX_SIGNIFICANT_DIGITS;
+	}
+
+
+	/**
+	 * Writes the given value in scientific notation to the given buffer as
+	 * ASCII characters.
+	 *
+	 * <p>Values of not a number and of positive or negative infinity are
+	 * written as NaN and Infinity respectively.
+	 *
+	 * @param	value				The number to write.
+	 * @param	significant_digits	The number of significant digits to use.
+	 *								Must be supported, as given by isSupported.
+	 * @param	buffer				The buffer to write to. At least
+	 *								MAX_LENGTH bytes must be available.
+	 * @param	offset				The indice in the buffer to start writing at.
+	 * @return						The indice after the last byte written.
+	 */
+	public static int format(double value, int significant_digits, byte[] buffer, int offset)
+	{
+		if (Double.isNaN(value))
+			return copy("NaN", buffer, offset);
+		if (Double.isInfinite(value))
+			return copy("Infinity", buffer, offset);
+
+		long rounded = round(Math.abs(value), significant_digits);
+		if (rounded < 0L)
+			return copy(StringMethods.formatWithDecimalFormat(value, significant_digits), buffer, offset);
+		if (value < 0.0 || (value == 0.0 && 1.0 / value < 0.0))
+			buffer[offset++] = '-';
+		long mantissa = rounded >> 16;
+		int exponent = (short) rounded;
+
+		// Write the mantissa without its trailing zeros
+		int digits = significant_digits;
+		while (digits > 1 && mantissa % 10 == 0)
+		{
+			mantissa /= 10;
+			digits--;
+		}
+		for (int i = digits; i > 0; i--)
+		{
+			int position = (i > 1) ? offset + i : offset;
+			buffer[position] = (byte) ('0' + mantissa % 10);
+			mantissa /= 10;
+		}
+		if (digits > 1)
+		{
+			buffer[offset + 1] = '.';
+			offset += digits + 1;
+		}
+		else
+		{
+			offset++;
+
+			// The pattern of a single significant digit, 0.E0, always
+			// shows the decimal point
+			if (significant_digits == 1)
+				buffer[offset++] = '.';
+		}
+
+		// Write the exponent
+		buffer[offset++] = 'E';
+		if (exponent < 0)
+		{
+			buffer[offset++] = '-';
+			exponent = -exponent;
+		}
+		int exponent_digits = (exponent >= 100) ? 3 : (exponent >= 10) ? 2 : 1;
+		for (int i = exponent_digits - 1; i >= 0; i--)
+		{
+			buffer[offset + i] = (byte) ('0' + exponent % 10);
+			exponent /= 10;
+		}
+		return offset + exponent_digits;
+	}
+
+
+	/**
+	 * Returns the given value in scientific notation.
+	 *
+	 * @param	value				The number to format.
+	 * @param	significant_digits	The number of significant digits to use.
+	 *								Must be supported, as given by isSupported.
+	 * @return						The formatted value.
+	 */
+	public static String format(double value, int significant_digits)
+	{
+		byte[] buffer = new byte[MAX_LENGTH];
+		return new String(buffer, 0, format(value, significant_digits, buffer, 0),
+			StandardCharsets.US_ASCII);
+	}
+
+
+	/**
+	 * Rounds the given positive value to the given number of significant
+	 * digits.
+	 *
+	 * @param	magnitude			The value to round. Must be positive or
+	 *								zero and finite.
+	 * @param	significant_digits	The number of significant digits.
+	 * @return						The digits of the rounded mantissa as an
+	 *								integer, shifted left by 16 bits, with the
+	 *								decimal exponent in the low 16 bits. -1 if
+	 *								the value must be formatted by a
+	 *								DecimalFormat instead.
+	 */
+	private static long round(double magnitude, int significant_digits)
+	{
+		if (magnitude == 0.0)
+			return 0L;
+		if (magnitude < Double.MIN_NORMAL)
+			return -1L;
+		long lowest = INTEGER_POWERS_OF_TEN[significant_digits - 1];
+		long highest = INTEGER_POWERS_OF_TEN[significant_digits];
+
+		// Scale the value so that its integer part holds the significant
+		// digits. Math.log10 may be one off near powers of ten.
+		int exponent = (int) Math.floor(Math.log10(magnitude));
+		double scaled = scale(magnitude, significant_digits - 1 - exponent);
+		if (scaled < lowest)
+		{
+			exponent--;
+			scaled = scale(magnitude, significant_digits - 1 - exponent);
+		}
+		else if (scaled >= highest)
+		{
+			exponent++;
+			scaled = scale(magnitude, significant_digits - 1 - exponent);
+		}
+
+		// Round, unless the value is so close to a tie that the scaling error
+		// or the way that DecimalFormat breaks ties could affect the result
+		double integer_part = Math.floor(scaled);
+		double fraction = scaled - integer_part;
+		if (Math.abs(fraction - 0.5) < TIE_MARGIN)
+			return -1L;
+		long mantissa = (long) integer_part + ((fraction > 0.5) ? 1 : 0);
+		if (mantissa >= highest)
+		{
+			mantissa /= 10;
+			exponent++;
+		}
+		return (mantissa << 16) | (exponent & 0xFFFF);
+	}
+
+
+	/**
+	 * Multiplies the given value by the given power of ten.
+	 */
+	private static double scale(double value, int power)
+	{
+		while (power > 22)
+		{
+			value *= 1e22;
+			power -= 22;
+		}
+		while (power < -22)
+		{
+			value /= 1e22;
+			power += 22;
+		}
+		if (power >= 0)
+			return value * POWERS_OF_TEN[power];
+		return value / POWERS_OF_TEN[-power];
+	}
+
+
+	/**
+	 * Copies the given text to the given buffer.
+	 */
+	private static int copy(String text, byte[] buffer, int offset)
+	{
+		for (int i = 0; i < text.length(); i++)
+			buffer[offset++] = (byte) text.charAt(i);
+		return offset;
+	}
+}
@@ -170,7 +170,21 @@ public class StringMethods
 			return new String("Infinity");
 //		if (number_to_round == Double.POSITIVE_INFINITY)
 //			return new String("Infinity");
+		if (ScientificNotationFormatter.isSupported(significant_digits))
+			return ScientificNotationFormatter.format(number_to_round, significant_digits);
+		return formatWithDecimalFormat(number_to_round, significant_digits);
+	}
+
 
+	/**
+	 * Formats a finite number in scientific notation with a DecimalFormat, as
+	 * described for getDoubleInScientificNotation.
+	 *
+	 * @param	number_to_round		The number that is to be formatted.
+	 * @param	significant_digits	The number of significant digits to use.
+	 */
+	static String formatWithDecimalFormat(double number_to_round, int significant_digits)
+	{
 		String format_pattern = "0.";
 		for (int i = 0; i < significant_digits - 1; i++)
 			format_pattern += "#";
@@ -213,6 +227,38 @@ public class StringMethods
 	}
 
 
+	/**
+	 * Returns the given text as a JSON string, including the surrounding
+	 * quotation marks. Quotation marks, backslashes, control characters and
+	 * all characters outside of ASCII are escaped, so the result can be
+	 * written one byte per character.
+	 *
+	 * @param	text	The text to quote.
+	 * @return			The text as a JSON string.
+	 */
+	public static String getJSONString(String text)
+	{
+		StringBuilder quoted = new StringBuilder(text.length() + 2);
+		quoted.append('"');
+		for (int i = 0; i < text.length(); i++)
+		{
+			char character = text.charAt(i);
+			if (character == '"' || character == '\\')
+				quoted.append('\\').append(character);
+			else if (character == '\n')
+				quoted.append("\\n");
+			else if (character == '\t')
+				quoted.append("\\t");
+			else if (character < 0x20 || character > 0x7e)
+				quoted.append(String.format("\\u%04x", (int) character));
+			else
+				quoted.append(character);
+		}
+		quoted.append('"');
+		return quoted.toString();
+	}
+
+
 	/**
 	 * Returns the index in the possible_names array where the given_name parameter
 	 * occurs. Throws an exception if it is not there.
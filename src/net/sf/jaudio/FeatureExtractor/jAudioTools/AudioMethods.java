@@ -522,8 +522,10 @@ public class AudioMethods
 	 * Returns an array of doubles representing the samples for each channel
 	 * in the given AudioInputStream.
 	 *
-	 * <p>This method is only compatible with audio with bit depths of 8 or 16 bits
-	 * that is encoded using signed PCM with big endian byte order.
+	 * <p>This method is compatible with integer PCM audio with bit depths of 8,
+	 * 16, 24 or 32 bits and floating point PCM audio with bit depths of 32 or
+	 * 64 bits, in either byte order. Other audio should first be converted
+	 * with the getConvertedAudioStream method. See PCMDecoder for details.
 	 *
 	 * @param	audio_input_stream	The AudioInputStream to convert to sample values.
 	 * @return						A 2-D array of sample values whose first indice indicates
@@ -543,48 +545,42 @@ public class AudioMethods
 		// Note the AudioFormat
 		AudioFormat this_audio_format = audio_input_stream.getFormat();
 
+		// Throws an exception if an incompatible this_audio_format is provided
+		PCMDecoder decoder = new PCMDecoder(this_audio_format);
+
 		// Extract information from this_audio_format
 		int number_of_channels = this_audio_format.getChannels();
-		int bit_depth = this_audio_format.getSampleSizeInBits();
-
-		// Throw exception if incompatible this_audio_format provided
-		if ( (bit_depth != 16 && bit_depth != 8 )||
-		     !this_audio_format.isBigEndian() ||
-		     this_audio_format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED )
-			throw new Exception( "Only 8 or 16 bit signed PCM samples with a big-endian\n" +
-			                     "byte order can be analyzed currently." );
+		int bytes_per_sample = this_audio_format.getSampleSizeInBits() / 8;
 
 		// Find the number of samples in the audio_bytes
 		int number_of_bytes = audio_bytes.length;
-		int bytes_per_sample = bit_depth / 8;
-		int number_samples = number_of_bytes / bytes_per_sample / number_of_channels;
+		int number_samples = number_of_bytes / decoder.getFrameSize();
 
 		// Throw exception if incorrect number of bytes given
-		if ( ((number_samples == 2 || bytes_per_sample == 2) && (number_of_bytes % 2 != 0)) ||
-		     ((number_samples == 2 && bytes_per_sample == 2) && (number_of_bytes % 4 != 0)) )
+		if (number_of_bytes % bytes_per_sample != 0)
 			throw new Exception("Uneven number of bytes for given bit depth and number of channels.");
-		
-		// Find the maximum possible value that a sample may have with the given
-		// bit depth
-		double max_sample_value = AudioMethods.findMaximumSampleValue(bit_depth) + 2.0;
 
 		// Instantiate the sample value holder
 		double[][] sample_values = new double[number_of_channels][number_samples];
 
-		// Convert the bytes to double samples
+		// Convert the bytes to double samples a block at a time, separating
+		// the channels
 		ByteBuffer byte_buffer = ByteBuffer.wrap(audio_bytes);
-		if (bit_depth == 8)
-		{
-			for (int samp = 0; samp < number_samples; samp++)
-				for (int chan = 0; chan < number_of_channels; chan++)
-					sample_values[chan][samp] = (double) byte_buffer.get() / max_sample_value;
-		}
-		else if (bit_depth == 16)
+		if (number_of_channels == 1)
+			decoder.decode(byte_buffer, 0, sample_values[0], 0, number_samples);
+		else
 		{
-			ShortBuffer short_buffer = byte_buffer.asShortBuffer();
-			for (int samp = 0; samp < number_samples; samp++)
-				for (int chan = 0; chan < number_of_channels; chan++)
-					sample_values[chan][samp] = (double) short_buffer.get() / max_sample_value;
+			int block_frames = 4096;
+			double[] interleaved = new double[block_frames * number_of_channels];
+			for (int start = 0; start < number_samples; start += block_frames)
+			{
+				int frames = Math.min(block_frames, number_samples - start);
+				decoder.decode(byte_buffer, start * decoder.getFrameSize(), interleaved, 0, frames * number_of_channels);
+				int position = 0;
+				for (int samp = start; samp < start + frames; samp++)
+					for (int chan = 0; chan < number_of_channels; chan++)
+						sample_values[chan][samp] = interleaved[position++];
+			}
 		}
 
 		// Return the samples
@@ -0,0 +1,144 @@
+/*
+ * @(#)AudioStreamSampleSource.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.nio.ByteBuffer;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * A SampleSource that decodes an AudioInputStream a fixed-size block of
+ * bytes at a time, converting each frame to a sample value and mixing its
+ * channels down as it goes.
+ * <p>
+ * Linear PCM streams in any of the formats supported by PCMDecoder are
+ * decoded directly, and other streams are first converted by
+ * AudioMethods.getConvertedAudioStream. Samples are decoded as
+ * AudioMethods.extractSampleValues does and channels are mixed down as
+ * DSPMethods.getSamplesMixedDownIntoOneChannel does, so the samples read are
+ * identical to those of AudioSamples.getSamplesMixedDown for 8 and 16 bit
+ * audio, but only one block of the stream is held in memory at a time.
+ */
+public class AudioStreamSampleSource implements SampleSource {
+
+	/* FIELDS ***************************************************************** */
+
+	// The number of frames decoded from each block read from the stream.
+	private static final int FRAMES_PER_BLOCK = 4096;
+
+	// The stream of PCM audio being read.
+	private AudioInputStream stream;
+
+	// Decodes the samples of the stream.
+	private PCMDecoder decoder;
+
+	// The number of bytes per frame of the stream.
+	private int frame_size;
+
+	// The bytes read from the stream that have not yet been decoded. Only
+	// the end of an incomplete frame is kept from one read to the next.
+	private byte[] block;
+
+	private ByteBuffer block_buffer;
+
+	private int block_length;
+
+	// Whether the end of the stream has been reached.
+	private boolean finished;
+
+	/* CONSTRUCTOR ************************************************************ */
+
+	/**
+	 * Prepares to read the samples of the given stream, converting it to
+	 * signed big-endian PCM if it cannot be decoded directly.
+	 *
+	 * @param audio_input_stream
+	 *            The audio to read.
+	 * @throws Exception
+	 *             Throws an informative exception if the stream cannot be
+	 *             converted to a format that can be decoded.
+	 */
+	public AudioStreamSampleSource(AudioInputStream audio_input_stream)
+			throws Exception {
+		if (audio_input_stream == null)
+			throw new Exception("Given AudioInputStream is empty.");
+		this.stream = audio_input_stream;
+		if (!PCMDecoder.isSupported(this.stream.getFormat()))
+			this.stream = AudioMethods.getConvertedAudioStream(this.stream);
+
+		this.decoder = new PCMDecoder(this.stream.getFormat());
+		this.frame_size = this.decoder.getFrameSize();
+		this.block = new byte[FRAMES_PER_BLOCK * this.frame_size];
+		this.block_buffer = ByteBuffer.wrap(this.block);
+		this.block_length = 0;
+		this.finished = false;
+	}
+
+	/* PUBLIC METHODS ********************************************************* */
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int read(double[] buffer, int offset, int length) throws Exception {
+		if (length <= 0)
+			return 0;
+
+		// Read whole frames into the block, keeping any incomplete frame
+		// left over from the previous read
+		int frames = 0;
+		while (frames == 0) {
+			if (this.finished)
+				return -1;
+			int wanted = Math.min(length, FRAMES_PER_BLOCK) * this.frame_size;
+			while (this.block_length < wanted) {
+				int read = this.stream.read(this.block, this.block_length,
+						wanted - this.block_length);
+				if (read < 0) {
+					this.finished = true;
+					break;
+				}
+				if (read == 0)
+					break;
+				this.block_length += read;
+			}
+			frames = this.block_length / this.frame_size;
+		}
+
+		// Decode the frames, mixing the channels down
+		this.decoder.decodeMixedDown(this.block_buffer, 0, buffer, offset,
+				frames);
+		int position = frames * this.frame_size;
+
+		// Keep the start of an incomplete frame for the next read
+		this.block_length -= position;
+		System.arraycopy(this.block, position, this.block, 0,
+				this.block_length);
+		return frames;
+	}
+
+	/**
+	 * Returns the number of samples in the stream, if the stream knows its
+	 * length.
+	 *
+	 * @return The number of samples, or -1 if it is not known.
+	 */
+	public long getLength() {
+		long frames = this.stream.getFrameLength();
+		if (frames == AudioSystem.NOT_SPECIFIED)
+			return -1;
+		return frames;
+	}
+
+	/**
+	 * Closes the stream.
+	 *
+	 * @throws Exception
+	 *             Throws an exception if the stream cannot be closed.
+	 */
+	public void close() throws Exception {
+		this.stream.close();
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * @(#)ChannelSampleSource.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * A SampleSource that decodes linear PCM audio bytes as they are read from a
+ * channel, such as a network connection, mixing their channels down as it
+ * goes.
+ * <p>
+ * Bytes are read into a buffer supplied by the caller, so that buffers can
+ * be reused from one channel to the next. Only the end of an incomplete
+ * frame is kept in the buffer from one read to the next, so the memory used
+ * does not depend on the length of the recording. The channel is not closed
+ * by this class.
+ */
+public class ChannelSampleSource implements SampleSource {
+
+	/* FIELDS ***************************************************************** */
+
+	// The channel that the audio bytes are read from.
+	private ReadableByteChannel channel;
+
+	// Decodes the samples of the audio.
+	private PCMDecoder decoder;
+
+	// The number of bytes per frame of the audio.
+	private int frame_size;
+
+	// Holds bytes read from the channel that have not yet been decoded,
+	// between the start of the buffer and its position.
+	private ByteBuffer buffer;
+
+	// Whether the end of the channel has been reached.
+	private boolean finished;
+
+	/* CONSTRUCTOR ************************************************************ */
+
+	/**
+	 * Prepares to read the samples of audio in the given format from the
+	 * given channel.
+	 *
+	 * @param channel
+	 *            The channel to read the audio bytes from.
+	 * @param format
+	 *            The format of the audio bytes. Must be supported by
+	 *            PCMDecoder.
+	 * @param buffer
+	 *            The buffer to read the bytes into. Any bytes between its
+	 *            start and its position are taken to be the first bytes of
+	 *            the audio. Must hold at least one frame.
+	 * @throws Exception
+	 *             Throws an informative exception if the format is not
+	 *             supported or the buffer is too small.
+	 */
+	public ChannelSampleSource(ReadableByteChannel channel,
+			AudioFormat format, ByteBuffer buffer) throws Exception {
+		this.channel = channel;
+		this.decoder = new PCMDecoder(format);
+		this.frame_size = this.decoder.getFrameSize();
+		if (buffer.capacity() < this.frame_size)
+			throw new Exception("Buffer of " + buffer.capacity()
+					+ " bytes cannot hold a frame of " + this.frame_size
+					+ " bytes.");
+		this.buffer = buffer;
+		this.buffer.limit(this.buffer.capacity());
+		this.finished = false;
+	}
+
+	/* PUBLIC METHODS ********************************************************* */
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int read(double[] output, int offset, int length) throws Exception {
+		if (length <= 0)
+			return 0;
+
+		// Read until there is at least one whole frame in the buffer
+		while (this.buffer.position() < this.frame_size) {
+			if (this.finished)
+				return -1;
+			if (this.channel.read(this.buffer) < 0)
+				this.finished = true;
+		}
+
+		// Decode the whole frames, mixing the channels down, and keep the
+		// start of an incomplete frame for the next read
+		int frames = Math.min(length, this.buffer.position() / this.frame_size);
+		this.buffer.flip();
+		this.decoder.decodeMixedDown(this.buffer, 0, output, offset, frames);
+		this.buffer.position(frames * this.frame_size);
+		this.buffer.compact();
+		return frames;
+	}
+
+	/**
+	 * Returns -1, as the length of audio read from a channel is not known in
+	 * advance.
+	 *
+	 * @return -1.
+	 */
+	public long getLength() {
+		return -1;
+	}
+
+	/**
+	 * Does nothing, as the channel belongs to the caller.
+	 */
+	public void close() {
+	}
+}
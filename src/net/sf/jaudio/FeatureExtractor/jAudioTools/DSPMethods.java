@@ -16,6 +16,14 @@ package net.sf.jaudio.FeatureExtractor.jAudioTools;
  */
 public class DSPMethods 
 {
+	/**
+	 * The number of multiply-adds of a direct auto-correlation that are taken
+	 * to cost as much as one butterfly of an FFT based auto-correlation. Used
+	 * by getAutoCorrelation to choose between the two.
+	 */
+	private static final double FFT_BUTTERFLY_COST = 6.0;
+
+
 	/**
 	 * Applies a gain to the given samples. Note that a negative gain effectively
 	 * applies a phase shift of pi. There is no guarantee that the returned samples
@@ -190,6 +198,10 @@ public class DSPMethods
 	 * <p>The getAutoCorrelationLabels method can be called to find the labels
 	 * in Hz for each of the returned bins.
 	 *
+	 * <p>The auto-correlation is calculated either directly or with FFTs,
+	 * whichever is expected to be faster for the length of the signal and the
+	 * span of lags. The two give the same values up to rounding error.
+	 *
 	 * @param	signal	The digital signal to auto-correlate.
 	 * @param	min_lag	The minimum lag in samples to look for in the auto-correlation.
 	 * @param	max_lag	The maximum lag in samples to look for in the auto-correaltion.
@@ -200,6 +212,38 @@ public class DSPMethods
 	public static double[] getAutoCorrelation( double[] signal,
 	                                           int min_lag,
 		                                       int max_lag )
+	{
+		if (min_lag >= 0 && max_lag >= min_lag && min_lag < signal.length)
+		{
+			// Estimate the cost of each method
+			int last_lag = Math.min(max_lag, signal.length - 1);
+			double direct_cost = (double) (last_lag - min_lag + 1)
+				* (double) (2 * signal.length - min_lag - last_lag) / 2.0;
+			int fft_size = getAutoCorrelationFFTSize(signal.length, max_lag);
+			double fft_cost = FFT_BUTTERFLY_COST * fft_size
+				* (Math.log(fft_size) / Math.log(2.0));
+			if (fft_cost < direct_cost)
+				return getAutoCorrelationFFT(signal, min_lag, max_lag);
+		}
+		return getAutoCorrelationDirect(signal, min_lag, max_lag);
+	}
+
+
+	/**
+	 * Calculates the auto-correlation of the given signal directly from its
+	 * definition. The auto-correlation is only calculated between the given
+	 * lags.
+	 *
+	 * @param	signal	The digital signal to auto-correlate.
+	 * @param	min_lag	The minimum lag in samples to look for in the auto-correlation.
+	 * @param	max_lag	The maximum lag in samples to look for in the auto-correaltion.
+	 * @return			The auto-correlation for each lag from min_lag to
+	 *					max_lag. Entry 0 corresponds to min_lag, and the last
+	 *					entry corresponds to max_lag.
+	 */
+	public static double[] getAutoCorrelationDirect( double[] signal,
+	                                                 int min_lag,
+		                                             int max_lag )
 	{
 		double[] autocorrelation = new double[max_lag - min_lag + 1];
 		for (int lag = min_lag; lag <= max_lag; lag++)
@@ -213,6 +257,84 @@ public class DSPMethods
 	}
 
 
+	/**
+	 * Calculates the auto-correlation of the given signal with FFTs, using the
+	 * Wiener-Khinchin theorem. The signal is zero-padded so that the
+	 * correlation is not circular, its power spectrum is found and the power
+	 * spectrum is transformed back. Since the power spectrum is real and
+	 * symmetric, both transforms are real-input FFTs. The auto-correlation is
+	 * only returned between the given lags.
+	 *
+	 * @param	signal	The digital signal to auto-correlate.
+	 * @param	min_lag	The minimum lag in samples to look for in the
+	 *					auto-correlation. Must not be negative.
+	 * @param	max_lag	The maximum lag in samples to look for in the
+	 *					auto-correaltion.
+	 * @return			The auto-correlation for each lag from min_lag to
+	 *					max_lag. Entry 0 corresponds to min_lag, and the last
+	 *					entry corresponds to max_lag.
+	 */
+	public static double[] getAutoCorrelationFFT( double[] signal,
+	                                              int min_lag,
+		                                          int max_lag )
+	{
+		double[] autocorrelation = new double[max_lag - min_lag + 1];
+		int last_lag = Math.min(max_lag, signal.length - 1);
+		if (last_lag < min_lag)
+			return autocorrelation;
+
+		int fft_size = getAutoCorrelationFFTSize(signal.length, max_lag);
+		int half = fft_size / 2;
+		double[] real = new double[half + 1];
+		double[] imaginary = new double[half + 1];
+		double[] power = new double[fft_size];
+		try
+		{
+			FFTPlan plan = FFTPlan.getPlan(fft_size, false);
+
+			// Find the power spectrum, which is symmetric
+			plan.transformReal(signal, real, imaginary);
+			for (int bin = 0; bin <= half; bin++)
+				power[bin] = real[bin] * real[bin] + imaginary[bin] * imaginary[bin];
+			for (int bin = half + 1; bin < fft_size; bin++)
+				power[bin] = power[fft_size - bin];
+
+			// Transform it back. The result is real, and the same for a
+			// forward and an inverse transform.
+			plan.transformReal(power, real, imaginary);
+		}
+		catch (Exception e)
+		{
+			// The size is always a power of 2 of at least 4
+			throw new IllegalStateException(e.getMessage());
+		}
+
+		// Lags of the length of the signal or more are zero
+		for (int lag = min_lag; lag <= last_lag; lag++)
+			autocorrelation[lag - min_lag] = real[lag] / fft_size;
+		return autocorrelation;
+	}
+
+
+	/**
+	 * Returns the FFT size used by getAutoCorrelationFFT, which is the smallest
+	 * power of 2 that avoids circular wrap-around for all lags that are
+	 * needed, and is at least 4.
+	 *
+	 * @param	signal_length	The length of the signal to auto-correlate.
+	 * @param	max_lag			The maximum lag in samples.
+	 * @return					The FFT size.
+	 */
+	private static int getAutoCorrelationFFTSize(int signal_length, int max_lag)
+	{
+		int needed = signal_length + Math.min(max_lag, signal_length - 1);
+		int fft_size = 4;
+		while (fft_size < needed)
+			fft_size *= 2;
+		return fft_size;
+	}
+
+
 	/**
 	 * Returns the bin labels for each bin of an auto-correlation calculation
 	 * that involved the given paremeters (most likely using the 
@@ -0,0 +1,113 @@
+/*
+ * @(#)ExtractionArena.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+/**
+ * Holds the working buffers that FeatureProcessor reuses from one window to
+ * the next while extracting features: the samples of the current window, the
+ * WindowContext that shares their analysis between features and the arrays
+ * that pass dependency values to each feature.
+ * <p>
+ * An arena is not thread safe. Each thread that extracts windows uses its own
+ * arena, and the contents of the buffers are only valid until the next window
+ * is prepared.
+ */
+class ExtractionArena {
+
+	/* FIELDS ***************************************************************** */
+
+	// The samples of the current window.
+	private double[] window;
+
+	// The analysis of the current window.
+	private WindowContext context;
+
+	// The arrays used to pass dependency values to each feature. The first
+	// indice identifies the feature. Entries are null for features without
+	// dependencies.
+	private double[][][] dependency_values;
+
+	/* CONSTRUCTOR ************************************************************ */
+
+	/**
+	 * Allocates the buffers for the given window size and features.
+	 *
+	 * @param window_size
+	 *            The number of samples in each window.
+	 * @param sampling_rate
+	 *            The sampling rate that the samples are encoded with.
+	 * @param feature_dependencies
+	 *            The indices of the dependencies of each feature, as stored by
+	 *            FeatureProcessor.
+	 */
+	ExtractionArena(int window_size, double sampling_rate,
+			int[][] feature_dependencies) {
+		this.window = new double[window_size];
+		this.context = new WindowContext(this.window, sampling_rate);
+		this.dependency_values = new double[feature_dependencies.length][][];
+		for (int feat = 0; feat < feature_dependencies.length; feat++)
+			if (feature_dependencies[feat] != null)
+				this.dependency_values[feat] = new double[feature_dependencies[feat].length][];
+	}
+
+	/* METHODS **************************************************************** */
+
+	/**
+	 * Copies the window starting at the given sample into the window buffer,
+	 * zero-padding it if it falls off the edge of the samples, and returns the
+	 * context of this window.
+	 *
+	 * @param samples
+	 *            The samples of the whole recording.
+	 * @param start_sample
+	 *            The indice of the sample where this window starts.
+	 * @return The context of this window.
+	 */
+	WindowContext prepareWindow(double[] samples, int start_sample) {
+		int available = Math.min(window.length, samples.length - start_sample);
+		if (available > 0)
+			System.arraycopy(samples, start_sample, window, 0, available);
+		else
+			available = 0;
+		for (int samp = available; samp < window.length; samp++)
+			window[samp] = 0.0;
+		context.setSamples(window);
+		return context;
+	}
+
+	/**
+	 * Copies the window starting at the given sample of samples stored in
+	 * single precision into the window buffer, as the other prepareWindow
+	 * method does.
+	 *
+	 * @param samples
+	 *            The samples of the whole recording.
+	 * @param start_sample
+	 *            The indice of the sample where this window starts.
+	 * @return The context of this window.
+	 */
+	WindowContext prepareWindow(float[] samples, int start_sample) {
+		int available = Math.max(0,
+				Math.min(window.length, samples.length - start_sample));
+		for (int samp = 0; samp < available; samp++)
+			window[samp] = samples[start_sample + samp];
+		for (int samp = available; samp < window.length; samp++)
+			window[samp] = 0.0;
+		context.setSamples(window);
+		return context;
+	}
+
+	/**
+	 * Returns the array used to pass dependency values to the given feature.
+	 *
+	 * @param feature
+	 *            The indice of the feature.
+	 * @return The array to fill with dependency values, or null if the
+	 *         feature has no dependencies.
+	 */
+	double[][] getDependencyValues(int feature) {
+		return dependency_values[feature];
+	}
+}
@@ -0,0 +1,412 @@
+/*
+ * @(#)ExtractionPlan.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.SlidingWindowFeature;
+
+/**
+ * The order in which a set of features must be extracted, along with the
+ * dependencies between them. A plan is calculated from the list of all
+ * available features and from which of them are to be saved. It includes the
+ * features that are not saved but that saved features depend on.
+ * <p>
+ * Plans are immutable and refer to features by their indice in the list of
+ * all available features rather than by object. This means that one plan can
+ * be shared by any number of FeatureProcessors whose features have the same
+ * names, dependencies, dependency offsets and attribute values. The getPlan
+ * method caches plans by a fingerprint of these properties, so that
+ * processors created repeatedly with the same settings do not resolve the
+ * dependencies again.
+ */
+public class ExtractionPlan {
+
+	/* FIELDS ***************************************************************** */
+
+	// The largest number of plans that are kept by the cache.
+	private static final int CACHE_SIZE = 64;
+
+	// Plans that have already been calculated, keyed by the fingerprint of the
+	// features and selection that they were calculated from. The least
+	// recently used plan is dropped once there are more than CACHE_SIZE plans.
+	private static final Map<String, ExtractionPlan> cache = new LinkedHashMap<String, ExtractionPlan>(
+			16, 0.75f, true) {
+		protected boolean removeEldestEntry(
+				Map.Entry<String, ExtractionPlan> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	// The indices, among all available features, of the features to extract,
+	// in the order that they must be extracted in.
+	private final int[] feature_order;
+
+	// Which of the features to extract are to be saved. Entries correspond to
+	// feature_order.
+	private final boolean[] features_to_save;
+
+	// The indices of the dependencies of each feature to extract. The first
+	// indice corresponds to feature_order and the second to the dependencies
+	// of that feature. Entries are indices in feature_order. The first
+	// dimension is null for features without dependencies.
+	private final int[][] feature_dependencies;
+
+	// The longest number of windows of previous features that each feature
+	// must have before it can be extracted. Entries correspond to
+	// feature_order.
+	private final int[] max_feature_offsets;
+
+	// Whether each feature can be extracted from a window without the values
+	// of any other window. Entries correspond to feature_order.
+	private final boolean[] window_local_features;
+
+	// The number of windows, including the current one, whose values must be
+	// kept to satisfy the dependencies of all features.
+	private final int history_depth;
+
+	/* CONSTRUCTOR ************************************************************ */
+
+	/**
+	 * Calculates the plan for extracting the given features.
+	 *
+	 * @param all_feature_extractors
+	 *            All features that can be extracted.
+	 * @param features_to_save_among_all
+	 *            Which features are to be saved. Entries correspond to the
+	 *            all_feature_extractors parameter.
+	 * @throws Exception
+	 *             Throws an informative exception if a feature depends on a
+	 *             feature that is not available.
+	 */
+	private ExtractionPlan(FeatureExtractor[] all_feature_extractors,
+			boolean[] features_to_save_among_all) throws Exception {
+		int number_all = all_feature_extractors.length;
+
+		// Index the features by name. If names are repeated, the first
+		// feature with a name is used.
+		String[] all_feature_names = new String[number_all];
+		HashMap<String, Integer> indices_by_name = new HashMap<String, Integer>();
+		for (int feat = 0; feat < number_all; feat++) {
+			all_feature_names[feat] = all_feature_extractors[feat]
+					.getFeatureDefinition().name;
+			if (!indices_by_name.containsKey(all_feature_names[feat]))
+				indices_by_name.put(all_feature_names[feat], Integer.valueOf(feat));
+		}
+
+		// Find the features to extract: those to save and everything that
+		// they depend on
+		boolean[] features_to_extract = new boolean[number_all];
+		LinkedList<Integer> unvisited = new LinkedList<Integer>();
+		for (int feat = 0; feat < number_all; feat++)
+			if (features_to_save_among_all[feat]) {
+				features_to_extract[feat] = true;
+				unvisited.add(Integer.valueOf(feat));
+			}
+		while (!unvisited.isEmpty()) {
+			int feat = unvisited.removeFirst().intValue();
+			String[] dependencies = all_feature_extractors[feat]
+					.getDependencies();
+			if (dependencies != null)
+				for (int i = 0; i < dependencies.length; i++) {
+					Integer dependency = indices_by_name.get(dependencies[i]);
+					if (dependency == null)
+						throw new Exception("The feature "
+								+ all_feature_names[feat]
+								+ " depends on the feature " + dependencies[i]
+								+ ",\nwhich is not available.");
+					if (!features_to_extract[dependency.intValue()]) {
+						features_to_extract[dependency.intValue()] = true;
+						unvisited.add(dependency);
+					}
+				}
+		}
+
+		// Count the unresolved dependencies of each feature to extract, and
+		// find which features depend on each name
+		int[] unresolved = new int[number_all];
+		HashMap<String, LinkedList<Integer>> dependents = new HashMap<String, LinkedList<Integer>>();
+		for (int feat = 0; feat < number_all; feat++)
+			if (features_to_extract[feat]) {
+				String[] dependencies = all_feature_extractors[feat]
+						.getDependencies();
+				if (dependencies != null)
+					for (int i = 0; i < dependencies.length; i++) {
+						unresolved[feat]++;
+						LinkedList<Integer> list = dependents
+								.get(dependencies[i]);
+						if (list == null) {
+							list = new LinkedList<Integer>();
+							dependents.put(dependencies[i], list);
+						}
+						list.add(Integer.valueOf(feat));
+					}
+			}
+
+		// Order the features. Each pass goes through the features in their
+		// original order and adds every feature whose dependencies have all
+		// been added, including dependencies added earlier in the same pass.
+		LinkedList<Integer> order = new LinkedList<Integer>();
+		boolean[] feature_added = new boolean[number_all];
+		boolean done = false;
+		while (!done) {
+			done = true;
+			for (int feat = 0; feat < number_all; feat++)
+				if (features_to_extract[feat] && !feature_added[feat]
+						&& unresolved[feat] == 0) {
+					feature_added[feat] = true;
+					order.add(Integer.valueOf(feat));
+					done = false;
+					LinkedList<Integer> list = dependents
+							.remove(all_feature_names[feat]);
+					if (list != null)
+						for (Integer dependent : list)
+							unresolved[dependent.intValue()]--;
+				}
+		}
+		for (int feat = 0; feat < number_all; feat++)
+			if (features_to_extract[feat] && !feature_added[feat])
+				throw new Exception("The dependencies of the feature "
+						+ all_feature_names[feat]
+						+ " are circular and cannot be extracted.");
+
+		// Store the order and which features are saved
+		int number_features = order.size();
+		this.feature_order = new int[number_features];
+		this.features_to_save = new boolean[number_features];
+		HashMap<String, Integer> order_by_name = new HashMap<String, Integer>();
+		int position = 0;
+		for (Integer feat : order) {
+			this.feature_order[position] = feat.intValue();
+			this.features_to_save[position] = features_to_save_among_all[feat
+					.intValue()];
+			order_by_name.put(all_feature_names[feat.intValue()],
+					Integer.valueOf(position));
+			position++;
+		}
+
+		// Find the indices of the dependencies of each feature
+		this.feature_dependencies = new int[number_features][];
+		for (int i = 0; i < number_features; i++) {
+			String[] dependencies = all_feature_extractors[this.feature_order[i]]
+					.getDependencies();
+			if (dependencies != null) {
+				this.feature_dependencies[i] = new int[dependencies.length];
+				for (int j = 0; j < dependencies.length; j++)
+					this.feature_dependencies[i][j] = order_by_name.get(
+							dependencies[j]).intValue();
+			}
+		}
+
+		// Find the maximum offset for each feature, including the offsets
+		// of its dependencies, and whether it is window-local. Dependencies
+		// always come earlier in the order, so they have already been done.
+		this.max_feature_offsets = new int[number_features];
+		this.window_local_features = new boolean[number_features];
+		int max_offset = 0;
+		for (int i = 0; i < number_features; i++) {
+			int[] these_offsets = all_feature_extractors[this.feature_order[i]]
+					.getDepenedencyOffsets();
+			boolean local = true;
+			if (these_offsets != null) {
+				int[] these_dependencies = this.feature_dependencies[i];
+				this.max_feature_offsets[i] = Math.abs(these_offsets[0]
+						+ this.max_feature_offsets[these_dependencies[0]]);
+				for (int k = 0; k < these_offsets.length; k++) {
+					int val = Math.abs(these_offsets[k])
+							+ this.max_feature_offsets[these_dependencies[k]];
+					if (val > this.max_feature_offsets[i])
+						this.max_feature_offsets[i] = val;
+					if ((these_offsets[k] != 0)
+							|| !this.window_local_features[these_dependencies[k]])
+						local = false;
+				}
+			}
+			this.window_local_features[i] = local;
+
+			// Sliding window features also read the value leaving their
+			// window, which is one window further back
+			int reach = this.max_feature_offsets[i];
+			if (all_feature_extractors[this.feature_order[i]] instanceof SlidingWindowFeature)
+				reach++;
+			if (reach > max_offset)
+				max_offset = reach;
+		}
+		this.history_depth = max_offset + 1;
+	}
+
+	/* PUBLIC METHODS ********************************************************* */
+
+	/**
+	 * Returns the plan for extracting the given features. If a plan has
+	 * already been calculated for features with the same names, dependencies,
+	 * dependency offsets and attribute values, and the same selection of
+	 * features to save, it is returned instead of being calculated again.
+	 *
+	 * @param all_feature_extractors
+	 *            All features that can be extracted.
+	 * @param features_to_save_among_all
+	 *            Which features are to be saved. Entries correspond to the
+	 *            all_feature_extractors parameter.
+	 * @return The plan for extracting these features.
+	 * @throws Exception
+	 *             Throws an informative exception if a feature depends on a
+	 *             feature that is not available.
+	 */
+	public static ExtractionPlan getPlan(
+			FeatureExtractor[] all_feature_extractors,
+			boolean[] features_to_save_among_all) throws Exception {
+		String fingerprint = getFingerprint(all_feature_extractors,
+				features_to_save_among_all);
+		ExtractionPlan plan;
+		synchronized (cache) {
+			plan = cache.get(fingerprint);
+		}
+		if (plan == null) {
+			plan = new ExtractionPlan(all_feature_extractors,
+					features_to_save_among_all);
+			synchronized (cache) {
+				cache.put(fingerprint, plan);
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Returns the features to extract, in the order that they must be
+	 * extracted in.
+	 *
+	 * @param all_feature_extractors
+	 *            All features that can be extracted. These must correspond to
+	 *            the features that this plan was calculated from, but may be
+	 *            different objects, such as clones.
+	 * @return The features to extract, taken from all_feature_extractors.
+	 */
+	public FeatureExtractor[] getFeatureExtractors(
+			FeatureExtractor[] all_feature_extractors) {
+		FeatureExtractor[] features = new FeatureExtractor[feature_order.length];
+		for (int i = 0; i < features.length; i++)
+			features[i] = all_feature_extractors[feature_order[i]];
+		return features;
+	}
+
+	/**
+	 * Returns the indices, among all available features, of the features to
+	 * extract, in the order that they must be extracted in.
+	 *
+	 * @return The order of the features to extract.
+	 */
+	public int[] getFeatureOrder() {
+		return feature_order.clone();
+	}
+
+	/**
+	 * Returns which of the features to extract are to be saved.
+	 *
+	 * @return Whether each feature is to be saved. Entries correspond to the
+	 *         order of the features to extract.
+	 */
+	public boolean[] getFeaturesToSave() {
+		return features_to_save.clone();
+	}
+
+	/**
+	 * Returns the dependencies of each feature to extract.
+	 *
+	 * @return The first indice identifies the feature and the second
+	 *         identifies the dependency. Entries are indices in the order of
+	 *         the features to extract. The first dimension is null for
+	 *         features without dependencies.
+	 */
+	public int[][] getFeatureDependencies() {
+		int[][] dependencies = new int[feature_dependencies.length][];
+		for (int i = 0; i < dependencies.length; i++)
+			if (feature_dependencies[i] != null)
+				dependencies[i] = feature_dependencies[i].clone();
+		return dependencies;
+	}
+
+	/**
+	 * Returns the number of windows of previous values that each feature must
+	 * have, directly or through its dependencies, before it can be extracted.
+	 *
+	 * @return The maximum offset of each feature. Entries correspond to the
+	 *         order of the features to extract.
+	 */
+	public int[] getMaxFeatureOffsets() {
+		return max_feature_offsets.clone();
+	}
+
+	/**
+	 * Returns whether each feature can be extracted from a window without the
+	 * values of any other window. This is true of features with no dependency
+	 * offsets whose dependencies are all window-local.
+	 *
+	 * @return Whether each feature is window-local. Entries correspond to the
+	 *         order of the features to extract.
+	 */
+	public boolean[] getWindowLocalFeatures() {
+		return window_local_features.clone();
+	}
+
+	/**
+	 * Returns the number of windows, including the current one, whose values
+	 * must be kept to satisfy the dependencies of all features.
+	 *
+	 * @return The depth of window history needed.
+	 */
+	public int getHistoryDepth() {
+		return history_depth;
+	}
+
+	/* PRIVATE METHODS ******************************************************** */
+
+	/**
+	 * Builds a string that identifies everything a plan depends on: the name,
+	 * dependencies, dependency offsets and attribute values of each feature,
+	 * and whether it is to be saved.
+	 *
+	 * @param all_feature_extractors
+	 *            All features that can be extracted.
+	 * @param features_to_save_among_all
+	 *            Which features are to be saved.
+	 * @return The fingerprint.
+	 */
+	private static String getFingerprint(
+			FeatureExtractor[] all_feature_extractors,
+			boolean[] features_to_save_among_all) {
+		StringBuilder fingerprint = new StringBuilder();
+		for (int feat = 0; feat < all_feature_extractors.length; feat++) {
+			FeatureExtractor feature = all_feature_extractors[feat];
+			fingerprint.append(features_to_save_among_all[feat] ? '+' : '-');
+			fingerprint.append(feature.getFeatureDefinition().name);
+			String[] dependencies = feature.getDependencies();
+			if (dependencies != null)
+				for (int i = 0; i < dependencies.length; i++)
+					fingerprint.append('\u0000').append(dependencies[i]);
+			fingerprint.append('\u0001');
+			int[] offsets = feature.getDepenedencyOffsets();
+			if (offsets != null)
+				for (int i = 0; i < offsets.length; i++)
+					fingerprint.append(offsets[i]).append(',');
+			String[] attributes = feature.getFeatureDefinition().attributes;
+			if (attributes != null)
+				for (int i = 0; i < attributes.length; i++) {
+					fingerprint.append('\u0000');
+					try {
+						fingerprint.append(feature.getElement(i));
+					} catch (Exception e) {
+						fingerprint.append('?');
+					}
+				}
+			fingerprint.append('\u0002');
+		}
+		return fingerprint.toString();
+	}
+}
@@ -13,7 +13,11 @@ package net.sf.jaudio.FeatureExtractor.jAudioTools;
  * with or without the application of a Hanning window.
  *
  * <p>
- * The FFT is performed by this class' constructor. The real and imaginary
+ * The FFT is performed by this class' constructor, using an FFTPlan that holds
+ * the twiddle factors, bit-reversal permutation and window coefficients for
+ * the size of the input. Forward transforms of entirely real signals are
+ * performed as a complex transform of half the size, and only the left side
+ * of the spectrum is stored until the full results are requested. The real and imaginary
  * results are both stored, and the magnitude spectrum, power spectrum and phase
  * angles may also be accessed (along with appropriate frequency bin labels for
  * the magnitude and power spectra).
@@ -28,6 +32,13 @@ public class FFT {
     private double[] real_output;
     private double[] imaginary_output;
 
+    // The number of values transformed, after zero-padding.
+    private int size;
+
+    // Whether real_output and imaginary_output only hold the bins from 0 to
+    // size / 2, as they do after the forward transform of a real signal.
+    private boolean folded;
+
     // The phase angles
     private double[] output_angle;
 
@@ -74,111 +85,41 @@ public class FFT {
             throw new Exception("Only " + real_input.length
                     + " samples provided.\n" + "At least three are needed.");
 
-        // Verify that the input size has a number of samples that is a
-        // power of 2. If not, then increase the size of the array using
-        // zero-padding. Also creates a zero filled imaginary component
-        // of the input if none was specified.
+        // Instantiate the arrays to hold the output and copy the input
+        // to them, since the algorithm used here is self-processing. The
+        // arrays are zero-padded to a power of 2 if necessary, and the
+        // imaginary component is left filled with zeros if none was
+        // specified.
         int valid_size = net.sf.jaudio.FeatureExtractor.GeneralTools.Statistics
                 .ensureIsPowerOfN(real_input.length, 2);
-        if (valid_size != real_input.length) {
-            double[] temp = new double[valid_size];
-            for (int i = 0; i < real_input.length; i++)
-                temp[i] = real_input[i];
-            for (int i = real_input.length; i < valid_size; i++)
-                temp[i] = 0.0;
-            real_input = temp;
+        size = valid_size;
+        FFTPlan plan = FFTPlan.getPlan(valid_size, use_hanning_window);
 
-            if (imaginary_input == null) {
-                imaginary_input = new double[valid_size];
-                for (int i = 0; i < imaginary_input.length; i++)
-                    imaginary_input[i] = 0.0;
-            } else {
-                temp = new double[valid_size];
-                for (int i = 0; i < imaginary_input.length; i++)
-                    temp[i] = imaginary_input[i];
-                for (int i = imaginary_input.length; i < valid_size; i++)
-                    temp[i] = 0.0;
-                imaginary_input = temp;
-            }
-        } else if (imaginary_input == null) {
-            imaginary_input = new double[valid_size];
-            for (int i = 0; i < imaginary_input.length; i++)
-                imaginary_input[i] = 0.0;
+        // Transform entirely real signals as half as many complex values
+        folded = (imaginary_input == null) && !inverse_transform
+                && (valid_size >= 4);
+        if (folded) {
+            real_output = new double[valid_size / 2 + 1];
+            imaginary_output = new double[valid_size / 2 + 1];
+            plan.transformReal(real_input, real_output, imaginary_output);
+            output_angle = null;
+            output_power = null;
+            output_magnitude = null;
+            return;
         }
 
-        // Instantiate the arrays to hold the output and copy the input
-        // to them, since the algorithm used here is self-processing
         real_output = new double[valid_size];
-        System.arraycopy(real_input, 0, real_output, 0, valid_size);
+        System.arraycopy(real_input, 0, real_output, 0, real_input.length);
         imaginary_output = new double[valid_size];
-        System.arraycopy(imaginary_input, 0, imaginary_output, 0, valid_size);
+        if (imaginary_input != null)
+            System.arraycopy(imaginary_input, 0, imaginary_output, 0,
+                    imaginary_input.length);
 
         // Apply a Hanning window to the real values if this option is
-        // selected
-        if (use_hanning_window) {
-            for (int i = 0; i < real_output.length; i++) {
-                double hanning = 0.5 - 0.5 * Math.cos(2 * Math.PI * i
-                        / valid_size);
-                real_output[i] *= hanning;
-            }
-        }
-
-        // Determine whether this is a forward or inverse transform
-        int forward_transform = 1;
-        if (inverse_transform)
-            forward_transform = -1;
-
-        // Reorder the input data into reverse binary order
-        double scale = 1.0;
-        int j = 0;
-        for (int i = 0; i < valid_size; ++i) {
-            if (j >= i) {
-                double tempr = real_output[j] * scale;
-                double tempi = imaginary_output[j] * scale;
-                real_output[j] = real_output[i] * scale;
-                imaginary_output[j] = imaginary_output[i] * scale;
-                real_output[i] = tempr;
-                imaginary_output[i] = tempi;
-            }
-            int m = valid_size / 2;
-            while (m >= 1 && j >= m) {
-                j -= m;
-                m /= 2;
-            }
-            j += m;
-        }
-
-        // Perform the spectral recombination stage by stage
-        int stage = 0;
-        int max_spectra_for_stage;
-        int step_size;
-        for (max_spectra_for_stage = 1, step_size = 2 * max_spectra_for_stage; max_spectra_for_stage < valid_size; max_spectra_for_stage = step_size, step_size = 2 * max_spectra_for_stage) {
-            double delta_angle = forward_transform * Math.PI
-                    / max_spectra_for_stage;
-
-            // Loop once for each individual spectra
-            for (int spectra_count = 0; spectra_count < max_spectra_for_stage; ++spectra_count) {
-                double angle = spectra_count * delta_angle;
-                double real_correction = Math.cos(angle);
-                double imag_correction = Math.sin(angle);
-
-                int right = 0;
-                for (int left = spectra_count; left < valid_size; left += step_size) {
-                    right = left + max_spectra_for_stage;
-                    double temp_real = real_correction * real_output[right]
-                            - imag_correction * imaginary_output[right];
-                    double temp_imag = real_correction
-                            * imaginary_output[right] + imag_correction
-                            * real_output[right];
-                    real_output[right] = real_output[left] - temp_real;
-                    imaginary_output[right] = imaginary_output[left]
-                            - temp_imag;
-                    real_output[left] += temp_real;
-                    imaginary_output[left] += temp_imag;
-                }
-            }
-            max_spectra_for_stage = step_size;
-        }
+        // selected and perform the transform, using the precomputed tables
+        // for this size
+        plan.applyWindow(real_output);
+        plan.transform(real_output, imaginary_output, inverse_transform);
 
         // Set the angle and magnitude to null originally
         output_angle = null;
@@ -202,13 +143,13 @@ public class FFT {
     public double[] getMagnitudeSpectrum() {
         // Only calculate the magnitudes if they have not yet been calculated
         if (output_magnitude == null) {
-            int number_unfolded_bins = imaginary_output.length / 2;
+            int number_unfolded_bins = size / 2;
             output_magnitude = new double[number_unfolded_bins];
             for (int i = 0; i < output_magnitude.length; i++)
                 output_magnitude[i] = (Math.sqrt(real_output[i]
                         * real_output[i] + imaginary_output[i]
                         * imaginary_output[i]))
-                        / real_output.length;
+                        / size;
         }
 
         // Return the magnitudes
@@ -229,12 +170,12 @@ public class FFT {
     public double[] getPowerSpectrum() {
         // Only calculate the powers if they have not yet been calculated
         if (output_power == null) {
-            int number_unfolded_bins = imaginary_output.length / 2;
+            int number_unfolded_bins = size / 2;
             output_power = new double[number_unfolded_bins];
             for (int i = 0; i < output_power.length; i++)
                 output_power[i] = (real_output[i] * real_output[i] + imaginary_output[i]
                         * imaginary_output[i])
-                        / real_output.length;
+                        / size;
         }
 
         // Return the power
@@ -256,7 +197,7 @@ public class FFT {
     public double[] getPhaseAngles() {
         // Only calculate the angles if they have not yet been calculated
         if (output_angle == null) {
-            int number_unfolded_bins = imaginary_output.length / 2;
+            int number_unfolded_bins = size / 2;
             output_angle = new double[number_unfolded_bins];
             for (int i = 0; i < output_angle.length; i++) {
                 if (imaginary_output[i] == 0.0 && real_output[i] == 0.0)
@@ -291,9 +232,9 @@ public class FFT {
      * @return The bin labels.
      */
     public double[] getBinLabels(double sampling_rate) {
-        int number_bins = real_output.length;
+        int number_bins = size;
         double bin_width = sampling_rate / (double) number_bins;
-        int number_unfolded_bins = imaginary_output.length / 2;
+        int number_unfolded_bins = size / 2;
         double[] labels = new double[number_unfolded_bins];
         labels[0] = 0.0;
         for (int bin = 1; bin < labels.length; bin++)
@@ -307,6 +248,7 @@ public class FFT {
      * @return The real values.
      */
     public double[] getRealValues() {
+        unfold();
         return real_output;
     }
 
@@ -316,6 +258,30 @@ public class FFT {
      * @return The real values.
      */
     public double[] getImaginaryValues() {
+        unfold();
         return imaginary_output;
     }
+
+    /* PRIVATE METHODS ******************************************************** */
+
+    /**
+     * Fills in the right side of the spectrum of a real signal, which is the
+     * complex conjugate of the left side, if only the left side is stored.
+     */
+    private void unfold() {
+        if (folded) {
+            double[] real = new double[size];
+            double[] imaginary = new double[size];
+            System.arraycopy(real_output, 0, real, 0, real_output.length);
+            System.arraycopy(imaginary_output, 0, imaginary, 0,
+                    imaginary_output.length);
+            for (int i = size / 2 + 1; i < size; i++) {
+                real[i] = real[size - i];
+                imaginary[i] = -imaginary[size - i];
+            }
+            real_output = real;
+            imaginary_output = imaginary;
+            folded = false;
+        }
+    }
 }
\ No newline at end of file
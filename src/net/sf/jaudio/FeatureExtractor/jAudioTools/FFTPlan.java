@@ -0,0 +1,283 @@
+/*
+ * @(#)FFTPlan.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the tables needed to perform an in-place complex Fast Fourier
+ * Transform of a given size: the twiddle factors of each stage, the
+ * bit-reversal permutation and, optionally, the coefficients of a Hanning
+ * window.
+ *
+ * <p>
+ * Plans are created with the getPlan method, which only calculates the tables
+ * the first time that a given size and window type is requested. Plans are
+ * immutable and may be shared between threads.
+ * </p>
+ *
+ * <p>
+ * The complex transform performed is exactly the one that the FFT class has
+ * always performed, so results are unchanged by the use of a plan. Real
+ * signals may instead be transformed with the transformReal method, which
+ * packs them into a complex transform of half the size.
+ * </p>
+ */
+public class FFTPlan {
+    /* FIELDS ***************************************************************** */
+
+    // The plans calculated so far, with and without a Hanning window, keyed
+    // by size.
+    private static final ConcurrentHashMap<Integer, FFTPlan> hanning_plans = new ConcurrentHashMap<Integer, FFTPlan>();
+    private static final ConcurrentHashMap<Integer, FFTPlan> plain_plans = new ConcurrentHashMap<Integer, FFTPlan>();
+
+    // The number of complex values transformed.
+    private final int size;
+
+    // The indice that each value is swapped with when reordering the input
+    // into reverse binary order.
+    private final int[] bit_reversal;
+
+    // The cosine and sine of the twiddle factors of a forward transform. The
+    // factors of the stage combining spectra of length m are stored from
+    // indice m to indice 2m - 1.
+    private final double[] twiddle_cos;
+    private final double[] twiddle_sin;
+
+    // The Hanning window coefficients. Null if no window is applied.
+    private final double[] window;
+
+    /* CONSTRUCTOR ************************************************************ */
+
+    /**
+     * Calculates the tables for the given size and window type.
+     *
+     * @param size
+     *            The number of values transformed. Must be a power of 2.
+     * @param use_hanning_window
+     *            Whether a Hanning window is applied to the real input.
+     */
+    private FFTPlan(int size, boolean use_hanning_window) {
+        this.size = size;
+
+        bit_reversal = new int[size];
+        int j = 0;
+        for (int i = 0; i < size; ++i) {
+            bit_reversal[i] = j;
+            int m = size / 2;
+            while (m >= 1 && j >= m) {
+                j -= m;
+                m /= 2;
+            }
+            j += m;
+        }
+
+        twiddle_cos = new double[Math.max(size, 1)];
+        twiddle_sin = new double[Math.max(size, 1)];
+        for (int max_spectra_for_stage = 1; max_spectra_for_stage < size; max_spectra_for_stage *= 2) {
+            double delta_angle = Math.PI / max_spectra_for_stage;
+            for (int spectra_count = 0; spectra_count < max_spectra_for_stage; ++spectra_count) {
+                double angle = spectra_count * delta_angle;
+                twiddle_cos[max_spectra_for_stage + spectra_count] = Math
+                        .cos(angle);
+                twiddle_sin[max_spectra_for_stage + spectra_count] = Math
+                        .sin(angle);
+            }
+        }
+
+        if (use_hanning_window) {
+            window = new double[size];
+            for (int i = 0; i < size; i++)
+                window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / size);
+        } else
+            window = null;
+    }
+
+    /* PUBLIC METHODS ********************************************************* */
+
+    /**
+     * Returns the plan for the given size and window type, calculating it
+     * if it has not been requested before.
+     *
+     * @param size
+     *            The number of values transformed. Must be a power of 2.
+     * @param use_hanning_window
+     *            Whether a Hanning window is applied to the real input.
+     * @return The plan.
+     * @throws Exception
+     *             Throws an exception if the size is not a positive power of
+     *             2.
+     */
+    public static FFTPlan getPlan(int size, boolean use_hanning_window)
+            throws Exception {
+        if ((size < 1) || ((size & (size - 1)) != 0))
+            throw new Exception("FFT size " + size
+                    + " is not a power of 2.");
+        ConcurrentHashMap<Integer, FFTPlan> plans = use_hanning_window ? hanning_plans
+                : plain_plans;
+        Integer key = Integer.valueOf(size);
+        FFTPlan plan = plans.get(key);
+        if (plan == null) {
+            plan = new FFTPlan(size, use_hanning_window);
+            FFTPlan existing = plans.putIfAbsent(key, plan);
+            if (existing != null)
+                plan = existing;
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the number of values transformed by this plan.
+     *
+     * @return The size of this plan.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Multiplies the given values by the Hanning window of this plan. Does
+     * nothing if this plan does not use a window.
+     *
+     * @param values
+     *            The values to window. Must have the size of this plan.
+     */
+    public void applyWindow(double[] values) {
+        if (window != null)
+            for (int i = 0; i < size; i++)
+                values[i] *= window[i];
+    }
+
+    /**
+     * Performs the transform in place. The window of this plan is not
+     * applied by this method.
+     *
+     * @param real
+     *            The real part of the values to transform, replaced by the
+     *            real part of the result. Must have the size of this plan.
+     * @param imaginary
+     *            The imaginary part of the values to transform, replaced by
+     *            the imaginary part of the result. Must have the size of this
+     *            plan.
+     * @param inverse_transform
+     *            Whether an inverse transform is performed rather than a
+     *            forward transform.
+     */
+    public void transform(double[] real, double[] imaginary,
+            boolean inverse_transform) {
+        // Reorder the input data into reverse binary order
+        for (int i = 0; i < size; ++i) {
+            int j = bit_reversal[i];
+            if (j > i) {
+                double tempr = real[j];
+                double tempi = imaginary[j];
+                real[j] = real[i];
+                imaginary[j] = imaginary[i];
+                real[i] = tempr;
+                imaginary[i] = tempi;
+            }
+        }
+
+        // Perform the spectral recombination stage by stage
+        for (int max_spectra_for_stage = 1; max_spectra_for_stage < size; max_spectra_for_stage *= 2) {
+            int step_size = 2 * max_spectra_for_stage;
+
+            // Loop once for each individual spectra
+            for (int spectra_count = 0; spectra_count < max_spectra_for_stage; ++spectra_count) {
+                double real_correction = twiddle_cos[max_spectra_for_stage
+                        + spectra_count];
+                double imag_correction = twiddle_sin[max_spectra_for_stage
+                        + spectra_count];
+                if (inverse_transform)
+                    imag_correction = -imag_correction;
+
+                for (int left = spectra_count; left < size; left += step_size) {
+                    int right = left + max_spectra_for_stage;
+                    double temp_real = real_correction * real[right]
+                            - imag_correction * imaginary[right];
+                    double temp_imag = real_correction * imaginary[right]
+                            + imag_correction * real[right];
+                    real[right] = real[left] - temp_real;
+                    imaginary[right] = imaginary[left] - temp_imag;
+                    real[left] += temp_real;
+                    imaginary[left] += temp_imag;
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs the forward transform of a real signal, applying the window of
+     * this plan first if it has one. Only the bins from 0 to half the size of
+     * this plan are calculated, as the remaining bins of the transform of a
+     * real signal are the complex conjugates of these.
+     * <p>
+     * The even and odd samples are packed into the real and imaginary parts of
+     * a complex signal of half the size, which is transformed and then
+     * separated into the spectrum of the original signal. This takes roughly
+     * half the work of a complex transform of the full size.
+     *
+     * @param samples
+     *            The signal to transform. It is zero-padded if it is shorter
+     *            than the size of this plan.
+     * @param real
+     *            Filled with the real part of the result. Must be at least
+     *            half the size of this plan plus one long.
+     * @param imaginary
+     *            Filled with the imaginary part of the result. Must be at least
+     *            half the size of this plan plus one long.
+     * @throws Exception
+     *             Throws an exception if the size of this plan is less than 4.
+     */
+    public void transformReal(double[] samples, double[] real,
+            double[] imaginary) throws Exception {
+        if (size < 4)
+            throw new Exception("Real FFT size " + size
+                    + " is too small. At least 4 is needed.");
+        int half = size / 2;
+
+        // Pack the even samples into the real part and the odd samples into
+        // the imaginary part
+        int length = Math.min(samples.length, size);
+        for (int m = 0; m < half; m++) {
+            int n = 2 * m;
+            double even = (n < length) ? samples[n] : 0.0;
+            double odd = (n + 1 < length) ? samples[n + 1] : 0.0;
+            if (window != null) {
+                even *= window[n];
+                odd *= window[n + 1];
+            }
+            real[m] = even;
+            imaginary[m] = odd;
+        }
+        getPlan(half, false).transform(real, imaginary, false);
+
+        // Separate the transforms of the even and odd samples and recombine
+        // them, one pair of mirrored bins at a time. The twiddle factors of
+        // the last stage of this plan are those of the full size.
+        double first_real = real[0];
+        double first_imag = imaginary[0];
+        real[0] = first_real + first_imag;
+        imaginary[0] = 0.0;
+        real[half] = first_real - first_imag;
+        imaginary[half] = 0.0;
+        for (int k = 1; k <= half / 2; k++) {
+            int mirror = half - k;
+            double even_real = 0.5 * (real[k] + real[mirror]);
+            double even_imag = 0.5 * (imaginary[k] - imaginary[mirror]);
+            double odd_real = 0.5 * (imaginary[k] + imaginary[mirror]);
+            double odd_imag = -0.5 * (real[k] - real[mirror]);
+            double cos = twiddle_cos[half + k];
+            double sin = twiddle_sin[half + k];
+            real[k] = even_real + cos * odd_real - sin * odd_imag;
+            imaginary[k] = even_imag + cos * odd_imag + sin * odd_real;
+            if (mirror != k) {
+                real[mirror] = even_real - cos * odd_real + sin * odd_imag;
+                imaginary[mirror] = -even_imag + cos * odd_imag + sin
+                        * odd_real;
+            }
+        }
+    }
+}
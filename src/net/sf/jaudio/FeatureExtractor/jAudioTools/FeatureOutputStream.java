@@ -0,0 +1,267 @@
+/*
+ * @(#)FeatureOutputStream.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.sf.jaudio.FeatureExtractor.GeneralTools.ScientificNotationFormatter;
+import net.sf.jaudio.FeatureExtractor.GeneralTools.StringMethods;
+
+/**
+ * The stream that FeatureProcessor writes ACE XML and ARFF output through.
+ * Text and numbers are encoded as ASCII straight into a large byte buffer,
+ * which is reused for the life of the stream and only written to the
+ * destination when it is full or when the stream is flushed.
+ * <p>
+ * This is a DataOutputStream, so it can be passed to the output methods of
+ * Aggregator and AggregatorContainer. The bytes written by writeBytes and by
+ * the writeASCII methods are the same: the low byte of each character.
+ * However, writeBytes copies one character at a time, while writeASCII
+ * copies whole strings into the buffer.
+ * <p>
+ * Nothing is written to the destination until the buffer fills up, so the
+ * stream must be flushed when the output written so far needs to be
+ * visible. FeatureProcessor flushes it after writing the file header and at
+ * the end of each recording, and closes it when extraction is finished.
+ * <p>
+ * A null destination discards the bytes instead, for when the values are
+ * only wanted by a FeatureListener.
+ * <p>
+ * This class is not thread safe.
+ */
+public class FeatureOutputStream extends DataOutputStream {
+
+	/* FIELDS ***************************************************************** */
+
+	/**
+	 * The number of bytes buffered by default.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	// The buffer that all bytes are written to. This is also the out field.
+	private final WriteBuffer buffer;
+
+	// Holds the digits of an integer while it is encoded, least significant
+	// digit last.
+	private final byte[] digits = new byte[20];
+
+	/* CONSTRUCTORS *********************************************************** */
+
+	/**
+	 * Creates a stream with a buffer of the default size.
+	 *
+	 * @param destination
+	 *            The stream that the buffered bytes are written to, or null
+	 *            to discard them.
+	 */
+	public FeatureOutputStream(OutputStream destination) {
+		this(destination, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a stream with a buffer of the given size.
+	 *
+	 * @param destination
+	 *            The stream that the buffered bytes are written to, or null
+	 *            to discard them.
+	 * @param buffer_size
+	 *            The number of bytes to buffer. Buffers smaller than
+	 *            ScientificNotationFormatter.MAX_LENGTH are enlarged to that
+	 *            size.
+	 */
+	public FeatureOutputStream(OutputStream destination, int buffer_size) {
+		super(new WriteBuffer(destination, Math.max(buffer_size,
+				ScientificNotationFormatter.MAX_LENGTH)));
+		this.buffer = (WriteBuffer) this.out;
+	}
+
+	/* PUBLIC METHODS ********************************************************* */
+
+	/**
+	 * Writes the low byte of each character of the given text, as writeBytes
+	 * does.
+	 *
+	 * @param text
+	 *            The text to write.
+	 * @throws IOException
+	 *             Throws an exception if the buffer cannot be written to the
+	 *             destination.
+	 */
+	public void writeASCII(String text) throws IOException {
+		buffer.writeASCII(text);
+		count(text.length());
+	}
+
+	/**
+	 * Writes the low byte of the given character.
+	 *
+	 * @param character
+	 *            The character to write.
+	 * @throws IOException
+	 *             Throws an exception if the buffer cannot be written to the
+	 *             destination.
+	 */
+	public void writeASCII(char character) throws IOException {
+		buffer.write(character);
+		count(1);
+	}
+
+	/**
+	 * Writes the decimal representation of the given integer, as given by
+	 * Long.toString, without creating a string.
+	 *
+	 * @param value
+	 *            The integer to write.
+	 * @throws IOException
+	 *             Throws an exception if the buffer cannot be written to the
+	 *             destination.
+	 */
+	public void writeASCII(long value) throws IOException {
+		if (value == Long.MIN_VALUE) {
+			writeASCII(Long.toString(value));
+			return;
+		}
+		int length = 0;
+		if (value < 0) {
+			buffer.write('-');
+			value = -value;
+			length++;
+		}
+		int start = digits.length;
+		do {
+			digits[--start] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value != 0);
+		buffer.write(digits, start, digits.length - start);
+		count(length + digits.length - start);
+	}
+
+	/**
+	 * Writes the given value in scientific notation with the given number of
+	 * significant digits. The text written is the same as that returned by
+	 * StringMethods.getDoubleInScientificNotation, but is formatted straight
+	 * into the buffer.
+	 *
+	 * @param value
+	 *            The value to write.
+	 * @param significant_digits
+	 *            The number of significant digits to use.
+	 * @throws IOException
+	 *             Throws an exception if the buffer cannot be written to the
+	 *             destination.
+	 */
+	public void writeScientific(double value, int significant_digits)
+			throws IOException {
+		if (ScientificNotationFormatter.isSupported(significant_digits))
+			count(buffer.writeScientific(value, significant_digits));
+		else
+			writeASCII(StringMethods.getDoubleInScientificNotation(value,
+					significant_digits));
+	}
+
+	/* PRIVATE METHODS ******************************************************** */
+
+	/**
+	 * Adds the given number of bytes to the count returned by the size
+	 * method, which stops at Integer.MAX_VALUE as in DataOutputStream.
+	 *
+	 * @param bytes
+	 *            The number of bytes written.
+	 */
+	private void count(int bytes) {
+		int total = written + bytes;
+		written = (total < 0) ? Integer.MAX_VALUE : total;
+	}
+
+	/* INTERNAL CLASSES ******************************************************* */
+
+	/**
+	 * An unsynchronized buffer in front of the destination stream. Flushing or
+	 * closing it writes out the buffered bytes and then flushes or closes the
+	 * destination.
+	 */
+	private static class WriteBuffer extends OutputStream {
+
+		private final OutputStream destination;
+
+		private final byte[] bytes;
+
+		private int count = 0;
+
+		WriteBuffer(OutputStream destination, int size) {
+			this.destination = destination;
+			this.bytes = new byte[size];
+		}
+
+		public void write(int b) throws IOException {
+			if (count == bytes.length)
+				drain();
+			bytes[count++] = (byte) b;
+		}
+
+		public void write(byte[] b, int offset, int length)
+				throws IOException {
+			if (length >= bytes.length) {
+				// Too large to be worth copying
+				drain();
+				if (destination != null)
+					destination.write(b, offset, length);
+				return;
+			}
+			if (length > bytes.length - count)
+				drain();
+			System.arraycopy(b, offset, bytes, count, length);
+			count += length;
+		}
+
+		void writeASCII(String text) throws IOException {
+			int length = text.length();
+			int start = 0;
+			while (start < length) {
+				if (count == bytes.length)
+					drain();
+				int end = Math.min(length, start + bytes.length - count);
+				for (int i = start; i < end; i++)
+					bytes[count++] = (byte) text.charAt(i);
+				start = end;
+			}
+		}
+
+		int writeScientific(double value, int significant_digits)
+				throws IOException {
+			if (bytes.length - count < ScientificNotationFormatter.MAX_LENGTH)
+				drain();
+			int start = count;
+			count = ScientificNotationFormatter.format(value,
+					significant_digits, bytes, count);
+			return count - start;
+		}
+
+		public void flush() throws IOException {
+			drain();
+			if (destination != null)
+				destination.flush();
+		}
+
+		public void close() throws IOException {
+			try {
+				drain();
+			} finally {
+				if (destination != null)
+					destination.close();
+			}
+		}
+
+		private void drain() throws IOException {
+			if (count > 0) {
+				if (destination != null)
+					destination.write(bytes, 0, count);
+				count = 0;
+			}
+		}
+	}
+}
@@ -10,13 +10,18 @@ import javax.sound.sampled.*;
 
 import net.sf.jaudio.FeatureExtractor.Cancel;
 import net.sf.jaudio.FeatureExtractor.ExplicitCancel;
+import net.sf.jaudio.FeatureExtractor.FeatureListener;
 import net.sf.jaudio.FeatureExtractor.Updater;
 import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
 import net.sf.jaudio.FeatureExtractor.Aggregators.AggregatorContainer;
 import net.sf.jaudio.FeatureExtractor.AudioFeatures.*;
+import net.sf.jaudio.FeatureExtractor.GeneralTools.StringMethods;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class is used to pre-process and extract features from audio recordings.
@@ -37,6 +42,10 @@ import java.util.LinkedList;
  * @author Cory McKay
  */
 public class FeatureProcessor {
+
+	// The line separator written at the end of each ARFF row.
+	private static final String LINE_SEPARATOR = System
+			.getProperty("line.separator");
 	
 	// The window size used for dividing up the recordings to classify.
 	private int window_size;
@@ -81,11 +90,12 @@ public class FeatureProcessor {
 	private boolean save_overall_recording_features;
 
 	// Used to write to the feature_vector_file file to save feature values to.
-	private DataOutputStream values_writer;
+	// Flushed after the header and at the end of each recording.
+	private FeatureOutputStream values_writer;
 
 	// Used to write to the feature_key_file file to save feature definitions
 	// to.
-	private DataOutputStream definitions_writer;
+	private FeatureOutputStream definitions_writer;
 
 	// Indicates whether the feature definitions have been written by the
 	// definitions_writer yet.
@@ -99,6 +109,19 @@ public class FeatureProcessor {
 	// not.
 	private boolean isARFFOverallHeaderWritten = false;
 
+	// Whether a recording has been written to the JSON output yet, so that
+	// the next one must be preceded by a comma.
+	private boolean isJSONRecordingWritten = false;
+
+	// Whether a window of the current recording has been written to the
+	// JSON output yet.
+	private boolean isJSONWindowWritten = false;
+
+	// The name of each feature to extract as a JSON string followed by a
+	// colon and the start of an array, written before its values in each
+	// window of JSON output.
+	private String[] json_feature_names;
+
 	// hook for allowing visual updates of how far along the extraction is.
 	private Updater updater;
 	
@@ -107,6 +130,43 @@ public class FeatureProcessor {
 	
 	private AggregatorContainer aggregator;
 
+	// Whether or not to stream window values to the output as they are
+	// extracted, keeping only as many previous windows as dependencies need,
+	// instead of holding the values of every window of a recording.
+	private boolean streaming = false;
+
+	// The quality of the filter used to convert recordings to the sampling
+	// rate in the sampling_rate field, as defined by ResamplingSampleSource.
+	private int resampling_quality = ResamplingSampleSource.MEDIUM_QUALITY;
+
+	// Whether or not the samples of a recording and the feature values of
+	// its windows are stored in single precision outside of streaming mode.
+	private boolean single_precision = false;
+
+	// Whether each feature in the feature_extractors field can be extracted
+	// from a window without the values of any other window. This is true of
+	// features with no dependency offsets whose dependencies are all also
+	// window-local.
+	private boolean[] window_local_features;
+
+	// The number of windows, including the current one, whose values must be
+	// kept to satisfy the dependencies of all features.
+	private int history_depth;
+
+	// The number of windows summarized by each feature in the
+	// feature_extractors field that implements SlidingWindowFeature, and 0
+	// for the other features. These features are updated incrementally from
+	// the value entering and the value leaving their window.
+	private int[] sliding_window_lengths;
+
+	// The pool used to extract window-local features from several windows at
+	// once. Null if windows are processed on a single thread.
+	private ForkJoinPool pool = null;
+
+	// The buffers reused from window to window when windows are extracted on
+	// the calling thread. Each parallel chunk of windows uses its own.
+	private ExtractionArena arena;
+
 	/* CONSTRUCTOR ************************************************************ */
 
 	/**
@@ -143,6 +203,9 @@ public class FeatureProcessor {
 	 * @param feature_definitions_save_path
 	 *            The path of the feature_key_file file to save feature
 	 *            definitions to.
+	 * @param outputType
+	 *            The format of the output: 0 for ACE XML, 1 for ARFF or 2 for
+	 *            JSON.
 	 * @throws Exception
 	 *             Throws an informative exception if the input parameters are
 	 *             invalid.
@@ -193,11 +256,11 @@ public class FeatureProcessor {
 				one_selected = true;
 		if (!one_selected)
 			throw new Exception("No features have been set to be saved.");
-		if ((outputType == 0) || (outputType == 1)) {
+		if ((outputType == 0) || (outputType == 1) || (outputType == 2)) {
 			this.outputType = outputType;
 		} else {
 			throw new Exception(
-					"INTERNAL ERROR - only ARFF and ACE output files are supported");
+					"INTERNAL ERROR - only ARFF, ACE and JSON output files are supported");
 		}
 
 		// Prepare the files for writing
@@ -227,8 +290,9 @@ public class FeatureProcessor {
 		// feature_values_save_file);
 		// FileOutputStream definitions_to = new FileOutputStream(
 		// feature_definitions_save_file);
-		this.values_writer = new DataOutputStream(feature_values_save_path);
-		this.definitions_writer = new DataOutputStream(feature_definitions_save_path);
+		this.values_writer = new FeatureOutputStream(feature_values_save_path);
+		this.definitions_writer = new FeatureOutputStream(
+				feature_definitions_save_path);
 		this.definitions_written = false;
 
 		// Save parameters as fields
@@ -245,13 +309,26 @@ public class FeatureProcessor {
 		// the indices of dependencies and the maximum offsets for each feature.
 		findAndOrderFeaturesToExtract(all_feature_extractors,
 				features_to_save_among_all);
+		this.arena = new ExtractionArena(window_size, sampling_rate,
+				this.feature_extractor_dependencies);
+		if (outputType == 2) {
+			this.json_feature_names = new String[this.feature_extractors.length];
+			for (int feat = 0; feat < this.feature_extractors.length; feat++)
+				this.json_feature_names[feat] = StringMethods
+						.getJSONString(this.feature_extractors[feat]
+								.getFeatureDefinition().name)
+						+ ":[";
+		}
 
 		// Write the headers of the feature_vector_file
 		if (outputType == 0) {
 			writeValuesXMLHeader();
 		} else if (outputType == 1) {
 			writeValuesARFFHeader();
+		} else if (outputType == 2) {
+			writeValuesJSONHeader();
 		}
+		this.values_writer.flush();
 	}
 
 	/**
@@ -261,6 +338,7 @@ public class FeatureProcessor {
 	 * feature_vector_file XML file referred to by the values_writer field. The
 	 * definitions of the features that are saved are also saved to the
 	 * feature_key_file XML file referred to by the definitions_writer field.
+	 * The output of the recording is flushed once it has all been written.
 	 * 
 	 * @param recording_file
 	 *            The audio file to extract features from.
@@ -269,14 +347,28 @@ public class FeatureProcessor {
 			throws Exception {
 		// Pre-process the recording and extract the samples from the audio
 		this.updater = updater;
-		double[] samples = preProcessRecording(recording_file);
+		if (this.streaming) {
+			streamFeatures(recording_file);
+			this.values_writer.flush();
+			return;
+		}
+		double[] samples = null;
+		float[] single_samples = null;
+		int number_samples;
+		if (this.single_precision) {
+			single_samples = preProcessRecordingInSinglePrecision(recording_file);
+			number_samples = single_samples.length;
+		} else {
+			samples = preProcessRecording(recording_file);
+			number_samples = samples.length;
+		}
 		if(this.cancel.isCancel()){
 			throw new ExplicitCancel("Killed after loading data");
 		}
 		// Calculate the window start indices
 		LinkedList<Integer> window_start_indices_list = new LinkedList<Integer>();
 		int this_start = 0;
-		while (this_start < samples.length) {
+		while (this_start < number_samples) {
 			window_start_indices_list.add(new Integer(this_start));
 			this_start += this.window_size - this.window_overlap_offset;
 		}
@@ -293,8 +385,18 @@ public class FeatureProcessor {
 			window_start_indices[i] = window_start_indices_I[i].intValue();
 
 		// Extract the feature values from the samples
-		double[][][] window_feature_values = getFeatures(samples,
-				window_start_indices);
+		if (this.single_precision) {
+			float[][][] single_feature_values = new float[window_start_indices.length][][];
+			getFeatures(null, single_samples, window_start_indices,
+					single_feature_values);
+			single_samples = null;
+			saveSinglePrecisionFeatureValues(single_feature_values,
+					window_start_indices, recording_file.getPath());
+			this.values_writer.flush();
+			return;
+		}
+		double[][][] window_feature_values = getFeatures(samples, null,
+				window_start_indices, null);
 
 		// Find the feature averages and standard deviations if appropriate
 //		AggregatorContainer aggContainer = new AggregatorContainer();
@@ -342,12 +444,74 @@ public class FeatureProcessor {
 			saveARFFFeatureVectorsForARecording(window_feature_values,
 					window_start_indices, recording_file.getPath(),
 					this.aggregator);
+		} else if (this.outputType == 2) {
+			writeJSONRecordingStart(recording_file.getPath());
+			if (this.save_features_for_each_window)
+				for (int win = 0; win < window_feature_values.length; win++)
+					writeJSONWindow(window_feature_values[win],
+							window_start_indices[win]);
+			writeJSONRecordingEnd(this.aggregator);
 		}
 
 		// Save the feature definitions
-		if (!this.definitions_written && (this.outputType == 0)) {
-			saveFeatureDefinitions(window_feature_values, this.aggregator);
+		if (!this.definitions_written && (this.outputType != 1)) {
+			saveFeatureDefinitions(
+					window_feature_values[window_feature_values.length - 1],
+					this.aggregator);
 		}
+		this.values_writer.flush();
+	}
+
+	/**
+	 * Extract the features from samples that are read from the given source
+	 * as they become available, such as audio arriving over a network
+	 * connection. The recording is processed in streaming mode, whether or
+	 * not setStreaming has been called, so only a window of samples and the
+	 * windows needed by dependencies are held in memory. The feature values
+	 * and definitions are saved as they are by the extractFeatures method for
+	 * files, and the output of the recording is flushed once it has all been
+	 * written.
+	 * <p>
+	 * The samples must already be at the sampling rate given to the
+	 * constructor. They are not normalised, since this would require reading
+	 * the source twice.
+	 * 
+	 * @param source
+	 *            The samples to extract features from. Sample values should
+	 *            generally be between -1 and +1.
+	 * @param identifier
+	 *            A string to use for identifying this recording.
+	 * @throws Exception
+	 *             Throws an exception if a problem occurs.
+	 */
+	public void extractFeatures(SampleSource source, String identifier)
+			throws Exception {
+		extractFeatures(source, identifier, null);
+	}
+
+	/**
+	 * Extract the features from samples that are read from the given source,
+	 * as the extractFeatures method with two parameters does, and also give
+	 * the values of each window to the given listener as soon as the window
+	 * has been extracted. The output streams given to the constructor may be
+	 * null if the values are only wanted by the listener.
+	 * 
+	 * @param source
+	 *            The samples to extract features from. Sample values should
+	 *            generally be between -1 and +1.
+	 * @param identifier
+	 *            A string to use for identifying this recording.
+	 * @param listener
+	 *            The listener to give the feature values to, or null.
+	 * @throws Exception
+	 *             Throws an exception if a problem occurs, including any
+	 *             exception thrown by the listener.
+	 */
+	public void extractFeatures(SampleSource source, String identifier,
+			FeatureListener listener) throws Exception {
+		this.updater = null;
+		streamFeatures(source, 0.0, identifier, listener);
+		this.values_writer.flush();
 	}
 
 	/**
@@ -362,18 +526,194 @@ public class FeatureProcessor {
 	 */
 	public void finalize() throws Exception {
 		if (this.outputType == 0) {
-			this.values_writer.writeBytes("</feature_vector_file>");
+			this.values_writer.writeASCII("</feature_vector_file>");
+		} else if (this.outputType == 2) {
+			this.values_writer.writeASCII("\n]}\n");
 		}
 		this.values_writer.close();
+		if (this.pool != null) {
+			this.pool.shutdown();
+		}
+	}
+
+	/**
+	 * Sets whether or not recordings are processed in streaming mode.
+	 * <p>
+	 * In streaming mode, the values of each window are written to the output as
+	 * soon as they are extracted. Only the last few windows needed to satisfy
+	 * the dependency offsets of the features (as given by the
+	 * max_feature_offsets field) are kept in a ring buffer, so memory use no
+	 * longer grows with the length of the recording. When overall recording
+	 * features are saved, each window is given to the aggregators as it is
+	 * extracted, and aggregators that are OnlineAggregators keep only running
+	 * values. Copies of the values of the features to save are retained only
+	 * for aggregators that need the whole recording at once, such as MFCC and
+	 * Multiple Feature Histogram, which keep just the features they use.
+	 * <p>
+	 * The output is identical to that produced by the default mode. However,
+	 * if an error occurs part way through a recording, the output for that
+	 * recording will be incomplete.
+	 *
+	 * @param streaming
+	 *            Whether or not to process recordings in streaming mode.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Sets whether or not the samples of each recording and the feature
+	 * values of its windows are stored as floats rather than doubles. This
+	 * halves the memory used by the two largest arrays of the default and
+	 * parallel modes, which hold the whole recording and the values of every
+	 * window.
+	 * <p>
+	 * Features are still calculated in double precision, one window at a
+	 * time, and the values of recent windows that other features depend on
+	 * are kept as doubles. Only the values of the features to save are
+	 * stored, rounded to floats, once no later window depends on them. The
+	 * values of features that are only extracted as dependencies are
+	 * discarded at that point rather than kept for the whole recording.
+	 * <p>
+	 * Accuracy: 8 and 16 bit samples are represented exactly by floats, so
+	 * for such recordings the only difference from double precision is the
+	 * rounding of each stored feature value to the nearest float, which has
+	 * a relative error of at most 2 to the power of -24 (about 6E-8).
+	 * Overall recording features are aggregated from the rounded values, so
+	 * their error is at most about that fraction of the largest value
+	 * aggregated. This is only a large relative error for a standard
+	 * deviation of values that barely vary. Values are written with 4
+	 * significant digits, so a written value differs by at most one unit in
+	 * its last digit, and only when it lies within that error of a rounding
+	 * boundary. SinglePrecisionTest checks this bound. Features of 24 and 32
+	 * bit recordings also reflect rounding the samples to 24 significant
+	 * bits.
+	 * <p>
+	 * Overall recording features are aggregated from a temporary double
+	 * precision copy of the stored values. This does not apply to streaming
+	 * mode, which never holds more than a few windows.
+	 * 
+	 * @param single_precision
+	 *            Whether or not to store samples and feature values as
+	 *            floats.
+	 */
+	public void setSinglePrecision(boolean single_precision) {
+		this.single_precision = single_precision;
+	}
+
+	/**
+	 * Sets the quality of the resampling filter used for recordings whose
+	 * sampling rate differs from the one that features are extracted at.
+	 * Higher qualities use longer filters, which attenuate aliasing better but
+	 * take longer. Recordings whose rates cannot be converted by
+	 * ResamplingSampleSource are converted by Java Sound instead, at whatever
+	 * quality it provides.
+	 * 
+	 * @param quality
+	 *            ResamplingSampleSource.FAST_QUALITY, MEDIUM_QUALITY or
+	 *            BEST_QUALITY.
+	 * @throws Exception
+	 *             Throws an informative exception if the quality is invalid.
+	 */
+	public void setResamplingQuality(int quality) throws Exception {
+		if (quality < ResamplingSampleSource.FAST_QUALITY
+				|| quality > ResamplingSampleSource.BEST_QUALITY)
+			throw new Exception("Invalid resampling quality: " + quality + ".");
+		this.resampling_quality = quality;
+	}
+
+	/**
+	 * Sets the number of threads used to extract features from the windows of
+	 * a single recording.
+	 * <p>
+	 * With more than one thread, extraction proceeds in two phases. First,
+	 * window-local features (features that have no dependency offsets and
+	 * whose dependencies are all window-local, such as Magnitude Spectrum,
+	 * RMS or MFCC) are extracted from chunks of windows in parallel on a
+	 * ForkJoinPool. Each chunk uses its own clones of these features. Then the
+	 * remaining features, which need the values of previous windows, are
+	 * extracted window by window in order. The results are identical to
+	 * single threaded extraction.
+	 * <p>
+	 * This does not apply to streaming mode, where windows are always
+	 * processed one at a time.
+	 * 
+	 * @param threads
+	 *            The number of threads to use. A value of 1 or less disables
+	 *            parallel extraction.
+	 */
+	public void setParallelism(int threads) {
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		if (threads > 1) {
+			this.pool = new ForkJoinPool(threads);
+		}
+	}
+
+	/**
+	 * Sets whether or not the next recording passed to extractFeatures is the
+	 * first recording of the output. The ACE feature definitions and the ARFF
+	 * header of the overall recording features are only written with the first
+	 * recording.
+	 * <p>
+	 * This only needs to be called when the recordings of a single output are
+	 * divided between several FeatureProcessors, as is done by the parallel
+	 * extraction of DataModel. Otherwise the first recording is tracked
+	 * automatically.
+	 * 
+	 * @param first
+	 *            Whether or not the next recording is the first one.
+	 */
+	public void setFirstRecording(boolean first) {
+		this.definitions_written = !first;
+		this.isARFFOverallHeaderWritten = !first;
+		this.isJSONRecordingWritten = !first;
+	}
+
+	/**
+	 * Saves the output that another FeatureProcessor with the same
+	 * configuration produced for a recording. The values are appended to the
+	 * feature_vector_file. The definitions are saved to the feature_key_file
+	 * if they have not been saved yet and this is ACE or JSON output.
+	 * <p>
+	 * This is used to merge the output of recordings extracted in parallel,
+	 * in order, into a single output.
+	 * 
+	 * @param values
+	 *            The bytes written for the recording to the feature_vector_file
+	 *            of the other FeatureProcessor.
+	 * @param definitions
+	 *            The bytes written for the recording to the feature_key_file
+	 *            of the other FeatureProcessor. Empty if no definitions were
+	 *            written.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	public void saveExtractedRecording(byte[] values, byte[] definitions)
+			throws Exception {
+		this.values_writer.write(values);
+		this.values_writer.flush();
+		this.isARFFOverallHeaderWritten = true;
+		this.isJSONRecordingWritten = true;
+		if (!this.definitions_written && (this.outputType != 1)) {
+			this.definitions_writer.write(definitions);
+			this.definitions_writer.close();
+			this.definitions_written = true;
+		}
 	}
 
 	/* PRIVATE METHODS ******************************************************** */
 
 	/**
 	 * Fills the feature_extractors, feature_extractor_dependencies,
-	 * max_feature_offsets and features_to_save fields. This involves finding
-	 * which features need to be extracted and in what order and finding the
-	 * indices of dependencies and the maximum offsets for each feature.
+	 * max_feature_offsets, features_to_save, window_local_features and
+	 * sliding_window_lengths fields.
+	 * This involves finding which features need to be extracted and in what
+	 * order and finding the indices of dependencies and the maximum offsets
+	 * for each feature. These are taken from an ExtractionPlan, which is only
+	 * calculated the first time that a given set of features is used.
 	 * <p>
 	 * Daniel McEnnis 05-07-05 added feature offset of dependancies to
 	 * max_offset
@@ -383,172 +723,39 @@ public class FeatureProcessor {
 	 * @param features_to_save_among_all
 	 *            Which features are to be saved. Entries correspond to the
 	 *            all_feature_extractors parameter.
+	 * @throws Exception
+	 *             Throws an informative exception if the dependencies of the
+	 *             features cannot be resolved.
 	 */
 	private void findAndOrderFeaturesToExtract(
 			FeatureExtractor[] all_feature_extractors,
-			boolean[] features_to_save_among_all) {
-		// Find the names of all features
-		String[] all_feature_names = new String[all_feature_extractors.length];
-		for (int feat = 0; feat < all_feature_extractors.length; feat++)
-			all_feature_names[feat] = all_feature_extractors[feat]
-					.getFeatureDefinition().name;
-
-		// Find dependencies of all features marked to be extracted.
-		// Mark as null if features are not to be extracted. Note that will also
-		// be null if there are no dependencies.
-		String[][] dependencies = new String[all_feature_extractors.length][];
-		for (int feat = 0; feat < all_feature_extractors.length; feat++) {
-			if (features_to_save_among_all[feat])
-				dependencies[feat] = all_feature_extractors[feat]
-						.getDependencies();
-			else
-				dependencies[feat] = null;
-		}
-
-		// Add dependencies to dependencies and if any features are not marked
-		// for
-		// saving but are marked as a dependency of a feature that is marked to
-		// be
-		// saved. Also fill features_to_extract in order to know what features
-		// to
-		// extract(but not necessarily save).
-		boolean done = false;
-		boolean[] features_to_extract = new boolean[dependencies.length];
-		for (int feat = 0; feat < features_to_extract.length; feat++) {
-			if (features_to_save_among_all[feat])
-				features_to_extract[feat] = true;
-			else
-				features_to_extract[feat] = false;
-		}
-		while (!done) {
-			done = true;
-			for (int feat = 0; feat < dependencies.length; feat++)
-				if (dependencies[feat] != null)
-					for (int i = 0; i < dependencies[feat].length; i++) {
-						String name = dependencies[feat][i];
-						for (int j = 0; j < all_feature_names.length; j++) {
-							if (name.equals(all_feature_names[j])) {
-								if (!features_to_extract[j]) {
-									features_to_extract[j] = true;
-									dependencies[j] = all_feature_extractors[j]
-											.getDependencies();
-									if (dependencies[j] != null)
-										done = false;
-								}
-								j = all_feature_names.length;
-							}
-						}
-					}
-		}
-
-		// Find the correct order to extract features in by filling the
-		// feature_extractors field
-		int number_features_to_extract = 0;
-		for (int i = 0; i < features_to_extract.length; i++)
-			if (features_to_extract[i])
-				number_features_to_extract++;
-		this.feature_extractors = new FeatureExtractor[number_features_to_extract];
-		this.features_to_save = new boolean[number_features_to_extract];
-		for (int i = 0; i < this.features_to_save.length; i++)
-			this.features_to_save[i] = false;
-		boolean[] feature_added = new boolean[dependencies.length];
-		for (int i = 0; i < feature_added.length; i++)
-			feature_added[i] = false;
-		int current_position = 0;
-		done = false;
-		while (!done) {
-			done = true;
-
-			// Add all features that have no remaining dependencies and remove
-			// their dependencies from all unadded features
-			for (int feat = 0; feat < dependencies.length; feat++) {
-				if (features_to_extract[feat] && !feature_added[feat])
-					if (dependencies[feat] == null) // add feature if it has no
-					// dependencies
-					{
-						feature_added[feat] = true;
-						this.feature_extractors[current_position] = all_feature_extractors[feat];
-						this.features_to_save[current_position] = features_to_save_among_all[feat];
-						current_position++;
-						done = false;
-
-						// Remove this dependency from all features that have
-						// it as a dependency and are marked to be extracted
-						for (int i = 0; i < dependencies.length; i++)
-							if (features_to_extract[i]
-									&& dependencies[i] != null) {
-								int num_defs = dependencies[i].length;
-								for (int j = 0; j < num_defs; j++) {
-									if (dependencies[i][j]
-											.equals(all_feature_names[feat])) {
-										if (dependencies[i].length == 1) {
-											dependencies[i] = null;
-											j = num_defs;
-										} else {
-											String[] temp = new String[dependencies[i].length - 1];
-											int m = 0;
-											for (int k = 0; k < dependencies[i].length; k++) {
-												if (k != j) {
-													temp[m] = dependencies[i][k];
-													m++;
-												}
-											}
-											dependencies[i] = temp;
-											j--;
-											num_defs--;
-										}
-									}
-								}
-							}
-					}
-			}
-		}
-
-		// Find the indices of the feature extractor dependencies for each
-		// feature
-		// extractor
-		this.feature_extractor_dependencies = new int[this.feature_extractors.length][];
-		String[] feature_names = new String[this.feature_extractors.length];
-		for (int feat = 0; feat < feature_names.length; feat++) {
-			feature_names[feat] = this.feature_extractors[feat]
-					.getFeatureDefinition().name;
-		}
-		String[][] feature_dependencies_str = new String[this.feature_extractors.length][];
-		for (int feat = 0; feat < feature_dependencies_str.length; feat++)
-			feature_dependencies_str[feat] = this.feature_extractors[feat]
-					.getDependencies();
-		for (int i = 0; i < feature_dependencies_str.length; i++)
-			if (feature_dependencies_str[i] != null) {
-				this.feature_extractor_dependencies[i] = new int[feature_dependencies_str[i].length];
-				for (int j = 0; j < feature_dependencies_str[i].length; j++)
-					for (int k = 0; k < feature_names.length; k++)
-						if (feature_dependencies_str[i][j]
-								.equals(feature_names[k]))
-							this.feature_extractor_dependencies[i][j] = k;
-			}
+			boolean[] features_to_save_among_all) throws Exception {
+		ExtractionPlan plan = ExtractionPlan.getPlan(all_feature_extractors,
+				features_to_save_among_all);
+		this.feature_extractors = plan
+				.getFeatureExtractors(all_feature_extractors);
+		this.features_to_save = plan.getFeaturesToSave();
+		this.feature_extractor_dependencies = plan.getFeatureDependencies();
+		this.max_feature_offsets = plan.getMaxFeatureOffsets();
+		this.window_local_features = plan.getWindowLocalFeatures();
+		this.history_depth = plan.getHistoryDepth();
+		this.sliding_window_lengths = new int[this.feature_extractors.length];
+		for (int feat = 0; feat < this.feature_extractors.length; feat++)
+			if (this.feature_extractors[feat] instanceof SlidingWindowFeature)
+				this.sliding_window_lengths[feat] = ((SlidingWindowFeature) this.feature_extractors[feat])
+						.getSlidingWindowLength();
+	}
 
-		// Find the maximum offset for each feature
-		// Daniel McEnnis 5-07-05 added feature offset of dependancies to
-		// max_offset
-		this.max_feature_offsets = new int[this.feature_extractors.length];
-		for (int i = 0; i < this.max_feature_offsets.length; i++) {
-			if (this.feature_extractors[i].getDepenedencyOffsets() == null)
-				this.max_feature_offsets[i] = 0;
-			else {
-				int[] these_offsets = this.feature_extractors[i]
-						.getDepenedencyOffsets();
-				this.max_feature_offsets[i] = Math
-						.abs(these_offsets[0]
-								+ this.max_feature_offsets[this.feature_extractor_dependencies[i][0]]);
-				for (int k = 0; k < these_offsets.length; k++) {
-					int val = Math.abs(these_offsets[k])
-							+ this.max_feature_offsets[this.feature_extractor_dependencies[i][k]];
-					if (val > this.max_feature_offsets[i]) {
-						this.max_feature_offsets[i] = val;
-					}
-				}
-			}
-		}
+	/**
+	 * Empties the sliding windows of the features that implement
+	 * SlidingWindowFeature, so that a new recording does not use the values
+	 * of the previous one.
+	 */
+	private void resetSlidingWindows() {
+		for (int feat = 0; feat < this.feature_extractors.length; feat++)
+			if (this.sliding_window_lengths[feat] > 0)
+				((SlidingWindowFeature) this.feature_extractors[feat])
+						.resetSlidingWindow();
 	}
 
 	/**
@@ -570,58 +777,209 @@ public class FeatureProcessor {
 	 *             reading or pre- processing.
 	 */
 	private double[] preProcessRecording(File recording_file) throws Exception {
+		SampleSource source = openSampleSource(recording_file);
+		try {
+			// Read all of the samples, using the length of the recording as
+			// a first guess at how many there are
+			long length = source.getLength();
+			if (length > Integer.MAX_VALUE)
+				throw new Exception(recording_file.getPath()
+						+ " is too long to be analyzed without streaming.");
+			double[] samples = new double[(length > 0) ? (int) length : 65536];
+			int filled = 0;
+			int read;
+			while ((read = source.read(samples, filled, samples.length
+					- filled)) >= 0) {
+				filled += read;
+				if (filled == samples.length) {
+					if (samples.length == Integer.MAX_VALUE)
+						throw new Exception(recording_file.getPath()
+								+ " is too long to be analyzed without streaming.");
+					samples = Arrays.copyOf(samples, (int) Math.min(
+							2L * samples.length, Integer.MAX_VALUE));
+				}
+			}
+			if (filled != samples.length)
+				samples = Arrays.copyOf(samples, filled);
+
+			// Normalise samples if this option has been requested
+			if (this.normalise)
+				samples = DSPMethods.normalizeSamples(samples);
+			return samples;
+		} finally {
+			source.close();
+		}
+	}
+
+	/**
+	 * Returns the samples stored in the given audio file in single precision,
+	 * processed as by the preProcessRecording method.
+	 * 
+	 * @param recording_file
+	 *            The audio file to extract samples from.
+	 * @return The processed audio samples. Values will fall between a minimum
+	 *         of -1 and +1. The index identifies the sample number.
+	 * @throws Exception
+	 *             An exception is thrown if a problem occurs during file
+	 *             reading or pre- processing.
+	 */
+	private float[] preProcessRecordingInSinglePrecision(File recording_file)
+			throws Exception {
+		SampleSource source = openSampleSource(recording_file);
+		try {
+			// Read all of the samples a block at a time, using the length of
+			// the recording as a first guess at how many there are
+			long length = source.getLength();
+			if (length > Integer.MAX_VALUE)
+				throw new Exception(recording_file.getPath()
+						+ " is too long to be analyzed without streaming.");
+			float[] samples = new float[(length > 0) ? (int) length : 65536];
+			double[] block = new double[8192];
+			int filled = 0;
+			int read;
+			while ((read = source.read(block, 0, block.length)) >= 0) {
+				if (read > samples.length - filled) {
+					long needed = Math.max(2L * samples.length, (long) filled
+							+ read);
+					if (needed > Integer.MAX_VALUE)
+						throw new Exception(recording_file.getPath()
+								+ " is too long to be analyzed without streaming.");
+					samples = Arrays.copyOf(samples, (int) needed);
+				}
+				for (int samp = 0; samp < read; samp++)
+					samples[filled + samp] = (float) block[samp];
+				filled += read;
+			}
+			if (filled != samples.length)
+				samples = Arrays.copyOf(samples, filled);
+
+			// Normalise samples if this option has been requested
+			if (this.normalise) {
+				double max_sample_value = 0.0;
+				for (int samp = 0; samp < samples.length; samp++)
+					if (Math.abs(samples[samp]) > max_sample_value)
+						max_sample_value = Math.abs(samples[samp]);
+				if (max_sample_value != 0.0)
+					for (int samp = 0; samp < samples.length; samp++)
+						samples[samp] = (float) (samples[samp] / max_sample_value);
+			}
+			return samples;
+		} finally {
+			source.close();
+		}
+	}
+
+	/**
+	 * Opens a source of the samples of the given file, which are read from a
+	 * memory mapping of the file if possible and through Java Sound
+	 * otherwise. Recordings at a different sampling rate are resampled block
+	 * by block as they are read, or converted by Java Sound if
+	 * ResamplingSampleSource does not support their rate.
+	 * 
+	 * @param recording_file
+	 *            The audio file to read.
+	 * @return The samples of the file, at the sampling rate in the
+	 *         <code>sampling_rate</code> field.
+	 * @throws Exception
+	 *             An exception is thrown if the file cannot be read or
+	 *             converted.
+	 */
+	private SampleSource openSampleSource(File recording_file)
+			throws Exception {
+		SampleSource source;
+		float file_sampling_rate;
+		MappedPCMSampleSource mapped = MappedPCMSampleSource
+				.open(recording_file);
+		if (mapped != null) {
+			source = mapped;
+			file_sampling_rate = mapped.getSampleRate();
+		} else {
+			AudioInputStream stream = getDecodableStream(recording_file);
+			source = new AudioStreamSampleSource(stream);
+			file_sampling_rate = stream.getFormat().getSampleRate();
+		}
+
+		if (file_sampling_rate == (float) this.sampling_rate)
+			return source;
+		if (ResamplingSampleSource.isSupported(file_sampling_rate,
+				(float) this.sampling_rate))
+			return new ResamplingSampleSource(source, file_sampling_rate,
+					(float) this.sampling_rate, this.resampling_quality);
+		source.close();
+		return new AudioStreamSampleSource(getRecordingStream(recording_file));
+	}
+
+	/**
+	 * Returns a stream of the audio in the given file, resampled by Java Sound
+	 * to the sampling rate in the <code>sampling_rate</code> field if
+	 * necessary. This is only used for rates that ResamplingSampleSource does
+	 * not support. The audio is decoded as by the getDecodableStream method.
+	 * 
+	 * @param recording_file
+	 *            The audio file to read.
+	 * @return The re-encoded audio.
+	 * @throws Exception
+	 *             An exception is thrown if the file cannot be read or
+	 *             converted.
+	 */
+	private AudioInputStream getRecordingStream(File recording_file)
+			throws Exception {
+		AudioInputStream pcm_stream = getDecodableStream(recording_file);
+		AudioFormat pcm_format = pcm_stream.getFormat();
+
+		// Convert to the set sampling rate, if it is not already at this
+		// sampling rate, keeping the encoding
+		AudioInputStream new_stream = pcm_stream;
+		if (pcm_format.getSampleRate() != (float) this.sampling_rate) {
+			AudioFormat new_format = new AudioFormat(pcm_format.getEncoding(),
+					(float) this.sampling_rate, pcm_format
+							.getSampleSizeInBits(), pcm_format.getChannels(),
+					pcm_format.getFrameSize(), pcm_format.getSampleRate(),
+					pcm_format.isBigEndian());
+			new_stream = AudioSystem.getAudioInputStream(new_format,
+					pcm_stream);
+		}
+		return new_stream;
+	}
+
+	/**
+	 * Returns a stream of the audio in the given file at its original sampling
+	 * rate. Linear PCM audio that can be decoded by PCMDecoder is returned as
+	 * it is. Other audio, such as MP3s, is converted to signed big-endian PCM
+	 * with a bit depth of 8 or 16 bits.
+	 * 
+	 * @param recording_file
+	 *            The audio file to read.
+	 * @return The audio, in a format that PCMDecoder can decode.
+	 * @throws Exception
+	 *             An exception is thrown if the file cannot be read or
+	 *             converted.
+	 */
+	private AudioInputStream getDecodableStream(File recording_file)
+			throws Exception {
 		// Get the original audio and its format
 		AudioInputStream original_stream = AudioSystem
 				.getAudioInputStream(recording_file);
 		AudioFormat original_format = original_stream.getFormat();
 
-		// Set the bit depth
-		int bit_depth = original_format.getSampleSizeInBits();
-		if (bit_depth != 8 && bit_depth != 16)
-			bit_depth = 16;
-
-		// If the audio is not PCM signed big endian, then convert it to PCM
-		// signed
+		// If the audio cannot be decoded directly, then convert it to PCM
+		// signed big endian
 		// This is particularly necessary when dealing with MP3s
-		AudioInputStream second_stream = original_stream;
-		if (original_format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
-				|| original_format.isBigEndian() == false) {
-			AudioFormat new_format = new AudioFormat(
-					AudioFormat.Encoding.PCM_SIGNED, original_format
-							.getSampleRate(), bit_depth, original_format
-							.getChannels(), original_format.getChannels()
-							* (bit_depth / 8), original_format.getSampleRate(),
-					true);
-			second_stream = AudioSystem.getAudioInputStream(new_format,
-					original_stream);
-		}
-
-		// Convert to the set sampling rate, if it is not already at this
-		// sampling rate.
-		// Also, convert to an appropriate bit depth if necessary.
-		AudioInputStream new_stream = second_stream;
-		if (original_format.getSampleRate() != (float) this.sampling_rate
-				|| bit_depth != original_format.getSampleSizeInBits()) {
-			AudioFormat new_format = new AudioFormat(
-					AudioFormat.Encoding.PCM_SIGNED, (float) this.sampling_rate,
-					bit_depth, original_format.getChannels(), original_format
+		AudioInputStream pcm_stream = original_stream;
+		if (!PCMDecoder.isSupported(original_format)) {
+			int bit_depth = original_format.getSampleSizeInBits();
+			if (bit_depth != 8 && bit_depth != 16)
+				bit_depth = 16;
+			AudioFormat pcm_format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+					original_format.getSampleRate(), bit_depth,
+					original_format.getChannels(), original_format
 							.getChannels()
 							* (bit_depth / 8), original_format.getSampleRate(),
 					true);
-			new_stream = AudioSystem.getAudioInputStream(new_format,
-					second_stream);
+			pcm_stream = AudioSystem.getAudioInputStream(pcm_format,
+					original_stream);
 		}
-
-		// Extract data from the AudioInputStream
-		AudioSamples audio_data = new AudioSamples(new_stream, recording_file
-				.getPath(), false);
-
-		// Normalise samples if this option has been requested
-		if (this.normalise)
-			audio_data.normalizeMixedDownSamples();
-
-		// Return all channels compressed into one
-		return audio_data.getSamplesMixedDown();
+		return pcm_stream;
 	}
 
 	/**
@@ -630,10 +988,19 @@ public class FeatureProcessor {
 	 * 
 	 * @param samples
 	 *            The samples to extract features from. Sample values should
-	 *            generally be between -1 and +1.
+	 *            generally be between -1 and +1. Null if single_samples is
+	 *            given instead.
+	 * @param single_samples
+	 *            The samples to extract features from, stored in single
+	 *            precision. Null if samples is given instead.
 	 * @param window_start_indices
 	 *            The indices of samples that correspond to where each window
 	 *            should start.
+	 * @param single_results
+	 *            If not null, the values of the features to save are stored
+	 *            here in single precision once no later window depends on
+	 *            them, and are removed from the returned values. Indices are
+	 *            as in the returned values.
 	 * @return The extracted feature values for this recording. The first indice
 	 *         identifies the window, the second identifies the feature and the
 	 *         third identifies the feature value. The third dimension will be
@@ -642,12 +1009,14 @@ public class FeatureProcessor {
 	 * @throws Exception
 	 *             Throws an exception if a problem occurs.
 	 */
-	private double[][][] getFeatures(double[] samples,
-			int[] window_start_indices) throws Exception {
+	private double[][][] getFeatures(double[] samples, float[] single_samples,
+			int[] window_start_indices, float[][][] single_results)
+			throws Exception {
 		// The extracted feature values for this recording. The first indice
 		// identifies the window, the second identifies the feature and the
 		// third identifies the feature value.
-		double[][][] results = new double[window_start_indices.length][this.feature_extractors.length][];
+		double[][][] results = new double[window_start_indices.length][][];
+		resetSlidingWindows();
 
 		// Calculate how frequently to make updates to the updater;
 		int updateThreshold = 1;
@@ -655,11 +1024,32 @@ public class FeatureProcessor {
 			updateThreshold = window_start_indices.length / 100;
 		}
 
+		// If windows are processed in parallel, extract the window-local
+		// features of all windows first. The remaining features are then
+		// extracted in order below.
+		boolean[] features_in_order = null;
+		if (this.pool != null) {
+			try {
+				this.pool.invoke(new WindowChunkTask(samples, single_samples,
+						window_start_indices, results, 0,
+						window_start_indices.length));
+			} catch (RuntimeException e) {
+				// Report the exception thrown by the feature itself
+				Throwable cause = e;
+				while ((cause instanceof RuntimeException)
+						&& (cause.getCause() != null))
+					cause = cause.getCause();
+				if (cause instanceof Exception)
+					throw (Exception) cause;
+				throw e;
+			}
+			features_in_order = new boolean[this.feature_extractors.length];
+			for (int feat = 0; feat < features_in_order.length; feat++)
+				features_in_order[feat] = !this.window_local_features[feat];
+		}
+
 		// Extract features from each window one by one and add save the
 		// results.
-		// The last window is zero-padded at the end if it falls off the edge of
-		// the
-		// provided samples.
 		for (int win = 0; win < window_start_indices.length; win++) {
 			// Do we need to update the progress bar or not
 			if ((this.updater != null) && (win % updateThreshold == 0)) {
@@ -669,54 +1059,472 @@ public class FeatureProcessor {
 				}
 			}
 
-			// Find the samples in this window and zero-pad if necessary
-			double[] window = new double[this.window_size];
-			int start_sample = window_start_indices[win];
-			int end_sample = start_sample + this.window_size - 1;
-			if (end_sample < samples.length)
-				for (int samp = start_sample; samp <= end_sample; samp++)
-					window[samp - start_sample] = samples[samp];
-			else
-				for (int samp = start_sample; samp <= end_sample; samp++) {
-					if (samp < samples.length)
-						window[samp - start_sample] = samples[samp];
-					else
-						window[samp - start_sample] = 0.0;
-				}
+			extractWindowFeatures(this.feature_extractors, features_in_order,
+					prepareWindow(this.arena, samples, single_samples,
+							window_start_indices[win]), win, results,
+					this.arena);
 
-			// Extract the features one by one
-			for (int feat = 0; feat < this.feature_extractors.length; feat++) {
-				// Only extract this feature if enough previous information
-				// is available to extract this feature
-				if (win >= this.max_feature_offsets[feat]) {
-					// Find the correct feature
-					FeatureExtractor feature = this.feature_extractors[feat];
-
-					// Find previously extracted feature values that this
-					// feature
-					// needs
-					double[][] other_feature_values = null;
-					if (this.feature_extractor_dependencies[feat] != null) {
-						other_feature_values = new double[this.feature_extractor_dependencies[feat].length][];
-						for (int i = 0; i < this.feature_extractor_dependencies[feat].length; i++) {
-							int feature_indice = this.feature_extractor_dependencies[feat][i];
-							int offset = feature.getDepenedencyOffsets()[i];
-							other_feature_values[i] = results[win + offset][feature_indice];
-						}
-					}
+			// Store the values of the window that no later window depends on
+			if ((single_results != null) && (win + 1 >= this.history_depth))
+				storeInSinglePrecision(results, single_results, win + 1
+						- this.history_depth);
+		}
+		if (single_results != null)
+			for (int win = Math.max(0, results.length - this.history_depth + 1); win < results.length; win++)
+				storeInSinglePrecision(results, single_results, win);
+
+		// Return the results
+		return results;
+	}
 
-					// Store the extracted feature values
-					results[win][feat] = feature.extractFeature(window,
-							this.sampling_rate, other_feature_values);
+	/**
+	 * Copies the values of the features to save of the given window into
+	 * single precision arrays, and removes the window from the double
+	 * precision values.
+	 * 
+	 * @param results
+	 *            The feature values of each window.
+	 * @param single_results
+	 *            Where the feature values of each window are stored in single
+	 *            precision.
+	 * @param win
+	 *            The window to store.
+	 */
+	private void storeInSinglePrecision(double[][][] results,
+			float[][][] single_results, int win) {
+		double[][] values = results[win];
+		float[][] stored = new float[values.length][];
+		for (int feat = 0; feat < values.length; feat++)
+			if (this.features_to_save[feat] && (values[feat] != null)) {
+				stored[feat] = new float[values[feat].length];
+				for (int val = 0; val < stored[feat].length; val++)
+					stored[feat][val] = (float) values[feat][val];
+			}
+		single_results[win] = stored;
+		results[win] = null;
+	}
+
+	/**
+	 * Prepares the given arena for the window that starts at the given
+	 * sample of whichever of the given sample arrays is not null.
+	 */
+	private static WindowContext prepareWindow(ExtractionArena arena,
+			double[] samples, float[] single_samples, int start_sample) {
+		if (single_samples != null)
+			return arena.prepareWindow(single_samples, start_sample);
+		return arena.prepareWindow(samples, start_sample);
+	}
+
+	/**
+	 * Extracts the features from a single window, whose samples have already
+	 * been copied into the given arena.
+	 * <p>
+	 * The values extracted for window number w are stored at the indice w
+	 * modulo history.length of the history parameter. This means that history
+	 * may either hold every window of the recording or act as a ring buffer
+	 * holding only the most recent windows, as long as it is longer than the
+	 * largest entry in the max_feature_offsets field. If the entry for this
+	 * window is null, a new one is created. Otherwise, the arrays that it
+	 * holds are passed to the features as output buffers, so they must no
+	 * longer be needed.
+	 * 
+	 * @param extractors
+	 *            The features to use. Entries correspond to the
+	 *            feature_extractors field, which is usually passed here, but
+	 *            may also be copies of those features.
+	 * @param selected
+	 *            Which features to extract. Entries correspond to the
+	 *            feature_extractors field. If null, all features are
+	 *            extracted.
+	 * @param context
+	 *            The samples of this window and the analysis shared by its
+	 *            features, as returned by the prepareWindow method of the
+	 *            arena.
+	 * @param win
+	 *            The number of this window in the recording.
+	 * @param history
+	 *            The feature values of previous windows. The first indice
+	 *            identifies the window, the second identifies the feature and
+	 *            the third identifies the feature value.
+	 * @param arena
+	 *            The buffers to use for the dependency values. These are
+	 *            overwritten.
+	 * @return The extracted feature values for this window. The first indice
+	 *         identifies the feature and the second identifies the feature
+	 *         value. The second dimension will be null if the given feature
+	 *         could not be extracted for this window.
+	 * @throws Exception
+	 *             Throws an exception if a problem occurs.
+	 */
+	private double[][] extractWindowFeatures(FeatureExtractor[] extractors,
+			boolean[] selected, WindowContext context, int win,
+			double[][][] history, ExtractionArena arena) throws Exception {
+		double[][] results = history[win % history.length];
+		if (results == null) {
+			results = new double[this.feature_extractors.length][];
+			history[win % history.length] = results;
+		}
+
+		// Extract the features one by one
+		for (int feat = 0; feat < this.feature_extractors.length; feat++) {
+			if ((selected != null) && !selected[feat])
+				continue;
+
+			// Update sliding window features from the first window in which
+			// their dependency is available. They only return values once
+			// their window is full, which is when the max_feature_offsets
+			// field says that they can be extracted.
+			int sliding_length = this.sliding_window_lengths[feat];
+			if (sliding_length > 0) {
+				int first_window = this.max_feature_offsets[feat]
+						- (sliding_length - 1);
+				if (win >= first_window) {
+					int feature_indice = this.feature_extractor_dependencies[feat][0];
+					double[] entering = history[win % history.length][feature_indice];
+					double[] leaving = null;
+					if (win - sliding_length >= first_window)
+						leaving = history[(win - sliding_length)
+								% history.length][feature_indice];
+					results[feat] = ((SlidingWindowFeature) extractors[feat])
+							.slideWindow(entering, leaving, results[feat]);
 				} else
-					results[win][feat] = null;
+					results[feat] = null;
+				continue;
 			}
+
+			// Only extract this feature if enough previous information
+			// is available to extract this feature
+			if (win >= this.max_feature_offsets[feat]) {
+				// Find the correct feature
+				FeatureExtractor feature = extractors[feat];
+
+				// Find previously extracted feature values that this feature
+				// needs
+				double[][] other_feature_values = arena
+						.getDependencyValues(feat);
+				if (other_feature_values != null) {
+					for (int i = 0; i < this.feature_extractor_dependencies[feat].length; i++) {
+						int feature_indice = this.feature_extractor_dependencies[feat][i];
+						int offset = feature.getDepenedencyOffsets()[i];
+						other_feature_values[i] = history[(win + offset)
+								% history.length][feature_indice];
+					}
+				}
+
+				// Store the extracted feature values
+				results[feat] = feature.extractFeature(context,
+						other_feature_values, results[feat]);
+			} else
+				results[feat] = null;
 		}
 
-		// Return the results
 		return results;
 	}
 
+	/**
+	 * Extracts the window-local features from a range of windows, splitting
+	 * the range into smaller chunks that are processed in parallel. Each chunk
+	 * uses its own clones of the window-local features.
+	 */
+	private class WindowChunkTask extends RecursiveAction {
+
+		static final long serialVersionUID = 1;
+
+		// The smallest number of windows that is split into further chunks.
+		private static final int MIN_CHUNK_SIZE = 16;
+
+		private double[] samples;
+
+		private float[] single_samples;
+
+		private int[] window_start_indices;
+
+		private double[][][] results;
+
+		private int first_window;
+
+		private int end_window;
+
+		/**
+		 * @param samples
+		 *            The samples to extract features from, or null.
+		 * @param single_samples
+		 *            The samples to extract features from in single
+		 *            precision, or null.
+		 * @param window_start_indices
+		 *            The indices of samples where each window starts.
+		 * @param results
+		 *            Where the feature values of each window are stored.
+		 * @param first_window
+		 *            The first window of the range to process.
+		 * @param end_window
+		 *            The window after the last one of the range to process.
+		 */
+		WindowChunkTask(double[] samples, float[] single_samples,
+				int[] window_start_indices, double[][][] results,
+				int first_window, int end_window) {
+			this.samples = samples;
+			this.single_samples = single_samples;
+			this.window_start_indices = window_start_indices;
+			this.results = results;
+			this.first_window = first_window;
+			this.end_window = end_window;
+		}
+
+		@Override
+		protected void compute() {
+			int chunk_size = Math.max(MIN_CHUNK_SIZE, window_start_indices.length
+					/ (4 * pool.getParallelism()));
+			if (end_window - first_window > chunk_size) {
+				int middle = (first_window + end_window) >>> 1;
+				invokeAll(new WindowChunkTask(samples, single_samples,
+						window_start_indices, results, first_window, middle),
+						new WindowChunkTask(samples, single_samples,
+								window_start_indices, results, middle,
+								end_window));
+				return;
+			}
+
+			try {
+				if (cancel.isCancel()) {
+					throw new ExplicitCancel("Killed while processing features");
+				}
+				ExtractionArena chunk_arena = new ExtractionArena(window_size,
+						sampling_rate, feature_extractor_dependencies);
+				FeatureExtractor[] extractors = new FeatureExtractor[feature_extractors.length];
+				for (int feat = 0; feat < extractors.length; feat++)
+					if (window_local_features[feat])
+						extractors[feat] = (FeatureExtractor) feature_extractors[feat]
+								.clone();
+				for (int win = first_window; win < end_window; win++)
+					extractWindowFeatures(extractors, window_local_features,
+							prepareWindow(chunk_arena, samples,
+									single_samples, window_start_indices[win]),
+							win, results, chunk_arena);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Extracts features from the given audio file in streaming mode and saves
+	 * them. The samples are decoded a block at a time as windows need them,
+	 * so only a few windows worth of samples are held in memory. If the
+	 * samples are to be normalised, the file is decoded twice: once to find
+	 * the highest amplitude and once to extract the features.
+	 * 
+	 * @param recording_file
+	 *            The audio file to extract features from.
+	 * @throws Exception
+	 *             Throws an exception if a problem occurs.
+	 */
+	private void streamFeatures(File recording_file) throws Exception {
+		double max_sample_value = 0.0;
+		if (this.normalise) {
+			SampleSource source = openSampleSource(recording_file);
+			try {
+				double[] block = new double[this.window_size];
+				int read;
+				while ((read = source.read(block, 0, block.length)) >= 0)
+					for (int samp = 0; samp < read; samp++)
+						if (Math.abs(block[samp]) > max_sample_value)
+							max_sample_value = Math.abs(block[samp]);
+			} finally {
+				source.close();
+			}
+		}
+		if(this.cancel.isCancel()){
+			throw new ExplicitCancel("Killed after loading data");
+		}
+
+		SampleSource source = openSampleSource(recording_file);
+		try {
+			streamFeatures(source, max_sample_value, recording_file.getPath(),
+					null);
+		} finally {
+			source.close();
+		}
+	}
+
+	/**
+	 * Extracts features from the given samples in streaming mode and saves
+	 * them. The values of each window are written as soon as they are
+	 * extracted, and only as many previous windows as the dependencies of the
+	 * features require are kept. Samples are read from the source as each
+	 * window is reached. Produces the same output as the extractFeatures
+	 * method does in the default mode.
+	 * 
+	 * @param source
+	 *            The samples to extract features from. Sample values should
+	 *            generally be between -1 and +1.
+	 * @param max_sample_value
+	 *            The highest absolute sample value of the recording, which
+	 *            samples are divided by to normalise them. 0 if the samples
+	 *            are not to be normalised.
+	 * @param identifier
+	 *            A string to use for identifying this recording. Often a file
+	 *            path.
+	 * @param listener
+	 *            Given the values of each window as it is extracted, and the
+	 *            overall recording features at the end, if not null.
+	 * @throws Exception
+	 *             Throws an exception if a problem occurs.
+	 */
+	private void streamFeatures(SampleSource source, double max_sample_value,
+			String identifier, FeatureListener listener) throws Exception {
+		// Estimate the number of windows, if the length of the recording is
+		// known
+		int window_hop = this.window_size - this.window_overlap_offset;
+		long length = source.getLength();
+		int number_windows = (int) ((length + window_hop - 1) / window_hop);
+
+		// if were using a progress bar, set its max update
+		if ((this.updater != null) && (length >= 0)) {
+			this.updater.setFileLength(number_windows);
+		}
+
+		// Calculate how frequently to make updates to the updater;
+		int updateThreshold = 1;
+		if ((number_windows > 100) || (length < 0)) {
+			updateThreshold = Math.max(number_windows / 100, 100);
+		}
+
+		if (listener != null)
+			listener.recordingStarted(identifier, this.feature_extractors,
+					this.features_to_save);
+
+		// The samples of the current window, of which the first
+		// window_samples have been read. The rest are zero once the end of
+		// the recording has been reached.
+		double[] window = new double[this.window_size];
+		int window_samples = fillWindow(source, window, 0, max_sample_value);
+
+		// The ring buffer of previous windows needed by dependencies
+		double[][][] history = new double[this.history_depth][][];
+		resetSlidingWindows();
+
+		// The values of the features to save, given to the aggregators one
+		// window at a time
+		double[][] saved = null;
+		if (this.save_overall_recording_features) {
+			saved = new double[this.feature_extractors.length][];
+			this.aggregator.add(this.feature_extractors, this.features_to_save);
+			this.aggregator.begin();
+		}
+
+		if (this.outputType == 0)
+			writeACERecordingStart(identifier);
+		else if (this.outputType == 2)
+			writeJSONRecordingStart(identifier);
+
+		// Extract and write the windows one by one, until a window would
+		// start after the end of the recording
+		double[][] last_window_features = null;
+		for (int win = 0; window_samples > 0; win++) {
+			// Do we need to update the progress bar or not
+			if ((this.updater != null) && (win % updateThreshold == 0)) {
+				this.updater.announceUpdate(win);
+				if(this.cancel.isCancel()){
+					throw new ExplicitCancel("Killed while processing features");
+				}
+			}
+
+			// Extract the window, reusing the arrays of the window that has
+			// dropped out of the history
+			int start_sample = win * window_hop;
+			last_window_features = extractWindowFeatures(
+					this.feature_extractors, null, this.arena.prepareWindow(
+							window, 0), win, history, this.arena);
+
+			if (this.outputType == 0) {
+				if (this.save_features_for_each_window)
+					writeACEWindow(last_window_features, start_sample);
+			} else if (this.outputType == 1) {
+				if (!this.save_overall_recording_features)
+					writeARFFWindow(last_window_features);
+			} else if (this.outputType == 2) {
+				if (this.save_features_for_each_window)
+					writeJSONWindow(last_window_features, start_sample);
+			}
+			if (listener != null)
+				listener.windowExtracted(start_sample, last_window_features);
+
+			if (saved != null) {
+				for (int feat = 0; feat < saved.length; feat++)
+					if (this.features_to_save[feat])
+						saved[feat] = last_window_features[feat];
+				this.aggregator.accept(saved);
+			}
+
+			// Move on to the next window, keeping the samples that overlap
+			int kept = Math.max(window_samples - window_hop, 0);
+			System.arraycopy(window, window_hop, window, 0, kept);
+			window_samples = fillWindow(source, window, kept, max_sample_value);
+		}
+
+		// Find the overall recording features if appropriate
+		if (this.save_overall_recording_features)
+			this.aggregator.finish();
+
+		// Save the overall values for this recording
+		if (this.outputType == 0) {
+			writeACERecordingEnd(this.aggregator);
+		} else if (this.outputType == 1) {
+			if (this.save_overall_recording_features)
+				writeARFFOverallValues(this.aggregator);
+		} else if (this.outputType == 2) {
+			writeJSONRecordingEnd(this.aggregator);
+		}
+
+		// Save the feature definitions
+		if (!this.definitions_written && (this.outputType != 1)) {
+			saveFeatureDefinitions(last_window_features, this.aggregator);
+		}
+		if (listener != null) {
+			if (this.save_overall_recording_features)
+				listener.recordingFinished(this.aggregator);
+			else
+				listener.recordingFinished(null);
+		}
+	}
+
+	/**
+	 * Reads samples from the given source into the given window until it is
+	 * full or the end of the recording is reached. Any part of the window
+	 * after the last sample of the recording is set to zero.
+	 * 
+	 * @param source
+	 *            The samples to read.
+	 * @param window
+	 *            The window to fill.
+	 * @param start
+	 *            The number of samples already in the window.
+	 * @param max_sample_value
+	 *            The value to divide the samples read by to normalise them, or
+	 *            0 if they are not to be normalised.
+	 * @return The number of samples in the window that are part of the
+	 *         recording.
+	 * @throws Exception
+	 *             Throws an exception if the samples cannot be read.
+	 */
+	private int fillWindow(SampleSource source, double[] window, int start,
+			double max_sample_value) throws Exception {
+		int filled = start;
+		while (filled < window.length) {
+			int read = source.read(window, filled, window.length - filled);
+			if (read < 0)
+				break;
+			if (max_sample_value != 0.0)
+				for (int samp = filled; samp < filled + read; samp++)
+					window[samp] /= max_sample_value;
+			filled += read;
+		}
+		for (int samp = filled; samp < window.length; samp++)
+			window[samp] = 0.0;
+		return filled;
+	}
+
 	/**
 	 * Calculates the averages and standard deviations over a whole recording of
 	 * each of the windows-based features. Generates a feature definition for
@@ -829,7 +1637,7 @@ public class FeatureProcessor {
 				+ "   <!ELEMENT name (#PCDATA)>\n"
 				+ "   <!ELEMENT v (#PCDATA)>\n" + "]>\n\n"
 				+ "<feature_vector_file>\n\n" + "   <comments></comments>\n\n");
-		this.values_writer.writeBytes(feature_vector_header);
+		this.values_writer.writeASCII(feature_vector_header);
 	}
 
 	/**
@@ -846,7 +1654,7 @@ public class FeatureProcessor {
 	private void writeValuesARFFHeader() throws Exception {
 		String sep = System.getProperty("line.separator");
 		String feature_value_header = "@relation jAudio" + sep;
-		this.values_writer.writeBytes(feature_value_header);
+		this.values_writer.writeASCII(feature_value_header);
 		if (this.save_features_for_each_window && !this.save_overall_recording_features) {
 			for (int i = 0; i < this.feature_extractors.length; ++i) {
 				if (this.features_to_save[i]) {
@@ -854,13 +1662,13 @@ public class FeatureProcessor {
 					int dimension = this.feature_extractors[i]
 							.getFeatureDefinition().dimensions;
 					for (int j = 0; j < dimension; ++j) {
-						this.values_writer.writeBytes("@ATTRIBUTE \"" + name + j
+						this.values_writer.writeASCII("@ATTRIBUTE \"" + name + j
 								+ "\" NUMERIC" + sep);
 					}
 				}
 			}
-			this.values_writer.writeBytes(sep);
-			this.values_writer.writeBytes("@DATA" + sep);
+			this.values_writer.writeASCII(sep);
+			this.values_writer.writeASCII("@DATA" + sep);
 		}
 	}
 
@@ -902,43 +1710,73 @@ public class FeatureProcessor {
 		// We have to flatten the feature tree into a single set.
 		// Either output overall features or output all features
 		if (this.save_overall_recording_features) {
-			if (!this.isARFFOverallHeaderWritten) {
-				aggContainer.outputARFFHeaderEntries(this.values_writer);
-				this.isARFFOverallHeaderWritten = true;
-			}
-			aggContainer.outputARFFValueEntries(this.values_writer);
+			writeARFFOverallValues(aggContainer);
 		} else {
 			for (int win = 0; win < feature_values.length; ++win) {
-				for (int feat = 0; feat < feature_values[win].length; ++feat) {
-					if (this.features_to_save[feat]) {
-						if (feature_values[win][feat] == null) {
-							int dim = this.feature_extractors[feat]
-									.getFeatureDefinition().dimensions;
-							for (int d = 0; d < dim; ++d) {
-								this.values_writer.writeBytes("?");
-								if (d < dim - 1) {
-									this.values_writer.writeBytes(",");
-								}
-							}
-						} else {
-							for (int d = 0; d < feature_values[win][feat].length; ++d) {
-								String value = net.sf.jaudio.FeatureExtractor.GeneralTools.StringMethods
-										.getDoubleInScientificNotation(
-												feature_values[win][feat][d], 4);
-								this.values_writer.writeBytes(value);
-								if (d < feature_values[win][feat].length - 1) {
-									this.values_writer.writeBytes(",");
-								}
-							}
+				writeARFFWindow(feature_values[win]);
+			}
+		}
+	}
+
+	/**
+	 * Writes the overall recording features calculated by the given
+	 * aggregators to the feature_vector_file ARFF file as a single line. The
+	 * header is written first if this has not yet been done.
+	 * 
+	 * @param aggContainer
+	 *            The aggregators holding the overall feature values of the
+	 *            recording.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeARFFOverallValues(AggregatorContainer aggContainer)
+			throws Exception {
+		if (!this.isARFFOverallHeaderWritten) {
+			aggContainer.outputARFFHeaderEntries(this.values_writer);
+			this.isARFFOverallHeaderWritten = true;
+		}
+		aggContainer.outputARFFValueEntries(this.values_writer);
+	}
+
+	/**
+	 * Writes the feature values of a single window to the feature_vector_file
+	 * ARFF file as a single line.
+	 * 
+	 * @param window_values
+	 *            The extracted feature values for the window. The first indice
+	 *            identifies the feature and the second identifies the feature
+	 *            value. The second dimension will be null if the given feature
+	 *            could not be extracted for the window.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeARFFWindow(double[][] window_values) throws Exception {
+		for (int feat = 0; feat < window_values.length; ++feat) {
+			if (this.features_to_save[feat]) {
+				if (window_values[feat] == null) {
+					int dim = this.feature_extractors[feat]
+							.getFeatureDefinition().dimensions;
+					for (int d = 0; d < dim; ++d) {
+						this.values_writer.writeASCII('?');
+						if (d < dim - 1) {
+							this.values_writer.writeASCII(',');
 						}
-						if (feat < feature_values[win].length - 1) {
-							this.values_writer.writeBytes(",");
+					}
+				} else {
+					for (int d = 0; d < window_values[feat].length; ++d) {
+						this.values_writer.writeScientific(
+								window_values[feat][d], 4);
+						if (d < window_values[feat].length - 1) {
+							this.values_writer.writeASCII(',');
 						}
 					}
 				}
-				this.values_writer.writeBytes(System.getProperty("line.separator"));
+				if (feat < window_values.length - 1) {
+					this.values_writer.writeASCII(',');
+				}
 			}
 		}
+		this.values_writer.writeASCII(LINE_SEPARATOR);
 	}
 
 	/**
@@ -977,73 +1815,388 @@ public class FeatureProcessor {
 			double[][][] feature_values, int[] window_start_indices,
 			String identifier, AggregatorContainer aggContainer)
 			throws Exception {
-		// Start the entry for the recording
-		this.values_writer.writeBytes("\t<data_set>\n");
-		this.values_writer.writeBytes("\t\t<data_set_id>" + identifier
-				+ "</data_set_id>\n");
+		writeACERecordingStart(identifier);
 
 		// Write the features for individual windows
 		if (this.save_features_for_each_window)
-			for (int win = 0; win < feature_values.length; win++) {
-				double start_time = ((double) window_start_indices[win])
-						/ this.sampling_rate;
-				double end_time = ((double) (window_start_indices[win]
-						+ this.window_size - 1))
-						/ this.sampling_rate;
-				this.values_writer.writeBytes("\t\t<section start=\"" + start_time
-						+ "\" stop=\"" + end_time + "\">\n");
-				for (int feat = 0; feat < feature_values[win].length; feat++) {
-					if (this.features_to_save[feat])
-						if (feature_values[win][feat] != null) {
-							String feature_name = this.feature_extractors[feat]
-									.getFeatureDefinition().name;
-							this.values_writer.writeBytes("\t\t\t<feature>\n");
-							this.values_writer.writeBytes("\t\t\t\t<name>"
-									+ feature_name + "</name>\n");
-							for (int val = 0; val < feature_values[win][feat].length; val++) {
-								String value = net.sf.jaudio.FeatureExtractor.GeneralTools.StringMethods
-										.getDoubleInScientificNotation(
-												feature_values[win][feat][val],
-												4);
-								this.values_writer.writeBytes("\t\t\t\t<v>" + value
-										+ "</v>\n");
-							}
-							this.values_writer.writeBytes("\t\t\t</feature>\n");
-						}
-				}
-				this.values_writer.writeBytes("\t\t</section>\n");
+			for (int win = 0; win < feature_values.length; win++)
+				writeACEWindow(feature_values[win], window_start_indices[win]);
+
+		writeACERecordingEnd(aggContainer);
+	}
+
+	/**
+	 * Aggregates and saves the given feature values of a recording, which
+	 * were stored in single precision, in the same way as the extractFeatures
+	 * method does in double precision. Windows are converted back to double
+	 * precision one at a time, and each is given to the aggregators and
+	 * written before the next is converted into the same arrays.
+	 * 
+	 * @param feature_values
+	 *            The feature values of the features to save. The first indice
+	 *            identifies the window, the second identifies the feature and
+	 *            the third identifies the feature value.
+	 * @param window_start_indices
+	 *            The indices of samples that correspond to where each window
+	 *            should start.
+	 * @param identifier
+	 *            A string to use for identifying this recording. Often a file
+	 *            path.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void saveSinglePrecisionFeatureValues(float[][][] feature_values,
+			int[] window_start_indices, String identifier) throws Exception {
+		if (this.save_overall_recording_features) {
+			this.aggregator.add(this.feature_extractors, this.features_to_save);
+			this.aggregator.begin();
+		}
+
+		if (this.outputType == 0)
+			writeACERecordingStart(identifier);
+		else if (this.outputType == 2)
+			writeJSONRecordingStart(identifier);
+
+		double[][] window_values = null;
+		for (int win = 0; win < feature_values.length; win++) {
+			window_values = toDoublePrecision(feature_values[win],
+					window_values);
+			if (this.save_overall_recording_features)
+				this.aggregator.accept(window_values);
+
+			if (this.outputType == 0) {
+				if (this.save_features_for_each_window)
+					writeACEWindow(window_values, window_start_indices[win]);
+			} else if (this.outputType == 1) {
+				if (!this.save_overall_recording_features)
+					writeARFFWindow(window_values);
+			} else if (this.outputType == 2) {
+				if (this.save_features_for_each_window)
+					writeJSONWindow(window_values, window_start_indices[win]);
 			}
+		}
+
+		// Find the overall recording features if appropriate
+		if (this.save_overall_recording_features)
+			this.aggregator.finish();
+
+		if (this.outputType == 0) {
+			writeACERecordingEnd(this.aggregator);
+		} else if (this.outputType == 1) {
+			if (this.save_overall_recording_features)
+				writeARFFOverallValues(this.aggregator);
+		} else if (this.outputType == 2) {
+			writeJSONRecordingEnd(this.aggregator);
+		}
+
+		if (!this.definitions_written && (this.outputType != 1))
+			saveFeatureDefinitions(toDoublePrecision(
+					feature_values[feature_values.length - 1], null),
+					this.aggregator);
+	}
+
+	/**
+	 * Converts the feature values of a window from single to double
+	 * precision.
+	 * 
+	 * @param values
+	 *            The feature values in single precision. The first indice
+	 *            identifies the feature and the second identifies the feature
+	 *            value.
+	 * @param buffer
+	 *            The arrays to reuse for the converted values where their
+	 *            sizes match, or null.
+	 * @return The feature values in double precision.
+	 */
+	private static double[][] toDoublePrecision(float[][] values,
+			double[][] buffer) {
+		if ((buffer == null) || (buffer.length != values.length))
+			buffer = new double[values.length][];
+		for (int feat = 0; feat < values.length; feat++) {
+			if (values[feat] == null) {
+				buffer[feat] = null;
+				continue;
+			}
+			if ((buffer[feat] == null)
+					|| (buffer[feat].length != values[feat].length))
+				buffer[feat] = new double[values[feat].length];
+			for (int val = 0; val < values[feat].length; val++)
+				buffer[feat][val] = values[feat][val];
+		}
+		return buffer;
+	}
+
+	/**
+	 * Writes the start of the entry for a recording to the feature_vector_file
+	 * XML file.
+	 * 
+	 * @param identifier
+	 *            A string to use for identifying this recording. Often a file
+	 *            path.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeACERecordingStart(String identifier) throws Exception {
+		this.values_writer.writeASCII("\t<data_set>\n");
+		this.values_writer.writeASCII("\t\t<data_set_id>" + identifier
+				+ "</data_set_id>\n");
+	}
 
+	/**
+	 * Writes the feature values of a single window to the feature_vector_file
+	 * XML file as a section.
+	 * 
+	 * @param window_values
+	 *            The extracted feature values for the window. The first indice
+	 *            identifies the feature and the second identifies the feature
+	 *            value. The second dimension will be null if the given feature
+	 *            could not be extracted for the window.
+	 * @param window_start_index
+	 *            The indice of the sample where the window starts.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeACEWindow(double[][] window_values,
+			int window_start_index) throws Exception {
+		double start_time = ((double) window_start_index) / this.sampling_rate;
+		double end_time = ((double) (window_start_index + this.window_size - 1))
+				/ this.sampling_rate;
+		this.values_writer.writeASCII("\t\t<section start=\"");
+		this.values_writer.writeASCII(Double.toString(start_time));
+		this.values_writer.writeASCII("\" stop=\"");
+		this.values_writer.writeASCII(Double.toString(end_time));
+		this.values_writer.writeASCII("\">\n");
+		for (int feat = 0; feat < window_values.length; feat++) {
+			if (this.features_to_save[feat])
+				if (window_values[feat] != null) {
+					String feature_name = this.feature_extractors[feat]
+							.getFeatureDefinition().name;
+					this.values_writer.writeASCII("\t\t\t<feature>\n");
+					this.values_writer.writeASCII("\t\t\t\t<name>");
+					this.values_writer.writeASCII(feature_name);
+					this.values_writer.writeASCII("</name>\n");
+					for (int val = 0; val < window_values[feat].length; val++) {
+						this.values_writer.writeASCII("\t\t\t\t<v>");
+						this.values_writer.writeScientific(
+								window_values[feat][val], 4);
+						this.values_writer.writeASCII("</v>\n");
+					}
+					this.values_writer.writeASCII("\t\t\t</feature>\n");
+				}
+		}
+		this.values_writer.writeASCII("\t\t</section>\n");
+	}
+
+	/**
+	 * Writes the overall recording features, if they are to be saved, and the
+	 * end of the entry for a recording to the feature_vector_file XML file.
+	 * 
+	 * @param aggContainer
+	 *            The aggregators holding the overall feature values of the
+	 *            recording.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeACERecordingEnd(AggregatorContainer aggContainer)
+			throws Exception {
 		// Write the features for the file
 		if (this.save_overall_recording_features)
-			// for (int feat = 0; feat < overall_feature_values.length; feat++)
-			// {
-			// values_writer.writeBytes("\t\t<feature>\n");
-			// values_writer.writeBytes("\t\t\t<name>"
-			// + overall_feature_definitions[feat].name + "</name>\n");
-			// for (int val = 0; val < overall_feature_values[feat].length;
-			// val++) {
-			// String value = jAudioFeatureExtractor.GeneralTools.StringMethods
-			// .getDoubleInScientificNotation(
-			// overall_feature_values[feat][val], 4);
-			// values_writer.writeBytes("\t\t\t<v>" + value + "</v>\n");
-			// }
-			// values_writer.writeBytes("\t\t</feature>\n");
-			// }
 			aggContainer.outputACEValueEntries(this.values_writer);
 		// End the entry for the recording
-		this.values_writer.writeBytes("\t</data_set>\n\n");
+		this.values_writer.writeASCII("\t</data_set>\n\n");
+	}
+
+	/**
+	 * Writes the start of the JSON feature_vector_file. The file is a single
+	 * object whose recordings member is an array with an object for each
+	 * recording, which is written as soon as the recording has been
+	 * extracted, so the document is never held in memory:
+	 * <p>
+	 * <code>{"recordings":[<br>
+	 * {"id":"song.wav","windows":[<br>
+	 * {"start":0.0,"stop":0.0116,"features":{"Spectral Centroid":[4.522E0]}},<br>
+	 * ...<br>
+	 * ],"overall":{"Spectral Centroid Overall Average":[4.51E0]}}<br>
+	 * ]}</code>
+	 * <p>
+	 * The windows member is only written if features are saved for each
+	 * window, and the overall member only if overall recording features are
+	 * saved. Each window is on a line of its own. Features that could not be
+	 * extracted for a window are left out of it, as in ACE XML. Values are
+	 * written with 4 significant digits, as in ACE XML and ARFF, except that
+	 * values that are not finite are written as null.
+	 * 
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeValuesJSONHeader() throws Exception {
+		this.values_writer.writeASCII("{\"recordings\":[\n");
+	}
+
+	/**
+	 * Writes the start of the object for a recording to the JSON
+	 * feature_vector_file.
+	 * 
+	 * @param identifier
+	 *            A string to use for identifying this recording. Often a file
+	 *            path.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeJSONRecordingStart(String identifier) throws Exception {
+		if (this.isJSONRecordingWritten)
+			this.values_writer.writeASCII(",\n");
+		this.values_writer.writeASCII("{\"id\":");
+		this.values_writer.writeASCII(StringMethods.getJSONString(identifier));
+		if (this.save_features_for_each_window)
+			this.values_writer.writeASCII(",\"windows\":[\n");
+		this.isJSONRecordingWritten = true;
+		this.isJSONWindowWritten = false;
+	}
+
+	/**
+	 * Writes the feature values of a single window to the JSON
+	 * feature_vector_file as an object on a line of its own.
+	 * 
+	 * @param window_values
+	 *            The extracted feature values for the window. The first indice
+	 *            identifies the feature and the second identifies the feature
+	 *            value. The second dimension will be null if the given feature
+	 *            could not be extracted for the window.
+	 * @param window_start_index
+	 *            The indice of the sample where the window starts.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeJSONWindow(double[][] window_values,
+			int window_start_index) throws Exception {
+		double start_time = ((double) window_start_index) / this.sampling_rate;
+		double end_time = ((double) (window_start_index + this.window_size - 1))
+				/ this.sampling_rate;
+		if (this.isJSONWindowWritten)
+			this.values_writer.writeASCII(",\n");
+		this.values_writer.writeASCII("{\"start\":");
+		this.values_writer.writeASCII(Double.toString(start_time));
+		this.values_writer.writeASCII(",\"stop\":");
+		this.values_writer.writeASCII(Double.toString(end_time));
+		this.values_writer.writeASCII(",\"features\":{");
+		boolean first = true;
+		for (int feat = 0; feat < window_values.length; feat++) {
+			if (this.features_to_save[feat] && (window_values[feat] != null)) {
+				if (!first)
+					this.values_writer.writeASCII(',');
+				first = false;
+				this.values_writer.writeASCII(this.json_feature_names[feat]);
+				for (int val = 0; val < window_values[feat].length; val++) {
+					if (val > 0)
+						this.values_writer.writeASCII(',');
+					writeJSONValue(window_values[feat][val]);
+				}
+				this.values_writer.writeASCII(']');
+			}
+		}
+		this.values_writer.writeASCII("}}");
+		this.isJSONWindowWritten = true;
+	}
+
+	/**
+	 * Writes the overall recording features, if they are to be saved, and the
+	 * end of the object for a recording to the JSON feature_vector_file.
+	 * 
+	 * @param aggContainer
+	 *            The aggregators holding the overall feature values of the
+	 *            recording.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeJSONRecordingEnd(AggregatorContainer aggContainer)
+			throws Exception {
+		if (this.save_features_for_each_window)
+			this.values_writer.writeASCII("\n]");
+		if (this.save_overall_recording_features) {
+			this.values_writer.writeASCII(",\"overall\":");
+			aggContainer.outputJSONEntries(this.values_writer);
+		}
+		this.values_writer.writeASCII('}');
+	}
+
+	/**
+	 * Writes a feature value to the JSON feature_vector_file, or null if it
+	 * is not finite.
+	 * 
+	 * @param value
+	 *            The value to write.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void writeJSONValue(double value) throws Exception {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			this.values_writer.writeASCII("null");
+		else
+			this.values_writer.writeScientific(value, 4);
+	}
+
+	/**
+	 * Writes the feature definitions to the JSON feature_key_file as an
+	 * object with a windows member, an array with the definition of each
+	 * feature saved for each window, and an overall member, an array with
+	 * the definition of each overall recording feature. Each definition is
+	 * an object with name, description, is_sequential and dimensions
+	 * members.
+	 * 
+	 * @param last_window_features
+	 *            The extracted feature values for the last window of a
+	 *            recording. The first indice identifies the feature and the
+	 *            second identifies the feature value.
+	 * @param aggContainer
+	 *            The aggregators of the overall recording features.
+	 * @throws Exception
+	 *             Throws an exception if cannot write.
+	 */
+	private void saveJSONFeatureDefinitions(double[][] last_window_features,
+			AggregatorContainer aggContainer) throws Exception {
+		this.definitions_writer.writeASCII("{\"windows\":[");
+		if (this.save_features_for_each_window) {
+			boolean first = true;
+			for (int feat = 0; feat < this.feature_extractors.length; feat++)
+				if (this.features_to_save[feat]
+						&& (last_window_features[feat] != null)) {
+					FeatureDefinition def = this.feature_extractors[feat]
+							.getFeatureDefinition();
+					if (!first)
+						this.definitions_writer.writeASCII(',');
+					first = false;
+					this.definitions_writer.writeASCII("\n{\"name\":"
+							+ StringMethods.getJSONString(def.name)
+							+ ",\"description\":"
+							+ StringMethods.getJSONString(def.description)
+							+ ",\"is_sequential\":" + def.is_sequential
+							+ ",\"dimensions\":"
+							+ last_window_features[feat].length + "}");
+				}
+		}
+		this.definitions_writer.writeASCII("],\n\"overall\":");
+		if (this.save_overall_recording_features)
+			aggContainer.outputJSONFeatureKeyEntries(this.definitions_writer);
+		else
+			this.definitions_writer.writeASCII("[]");
+		this.definitions_writer.writeASCII("}\n");
+
+		this.definitions_writer.close();
+
+		this.definitions_written = true;
 	}
 
 	/**
 	 * Writes feature definitions to the XML file referred to by the
 	 * definitions_writer field. Writes both overall and individual feature
-	 * definitions.
+	 * definitions. For JSON output, the definitions are written by
+	 * saveJSONFeatureDefinitions instead.
 	 * 
-	 * @param feature_values
-	 *            The extracted feature values for a recording. The first indice
-	 *            identifies the window, the second identifies the feature and
-	 *            the third identifies the feature value.
+	 * @param last_window_features
+	 *            The extracted feature values for the last window of a
+	 *            recording. The first indice identifies the feature and the
+	 *            second identifies the feature value.
 	 * @param overall_feature_definitions
 	 *            The feature definitions of the features that are in the
 	 *            features for the recording. Will be null if no overallfeatures
@@ -1051,8 +2204,12 @@ public class FeatureProcessor {
 	 * @throws Exception
 	 *             Throws an exception if cannot write.
 	 */
-	private void saveFeatureDefinitions(double[][][] feature_values,
+	private void saveFeatureDefinitions(double[][] last_window_features,
 			AggregatorContainer aggContainer) throws Exception {
+		if (this.outputType == 2) {
+			saveJSONFeatureDefinitions(last_window_features, aggContainer);
+			return;
+		}
 		String feature_key_header = new String(
 				"<?xml version=\"1.0\"?>\n"
 						+ "<!DOCTYPE feature_key_file [\n"
@@ -1065,9 +2222,7 @@ public class FeatureProcessor {
 						+ "   <!ELEMENT parallel_dimensions (#PCDATA)>\n"
 						+ "]>\n\n" + "<feature_key_file>\n\n"
 						+ "   <comments></comments>\n\n");
-		this.definitions_writer.writeBytes(feature_key_header);
-
-		double[][] last_window_features = feature_values[feature_values.length - 1];
+		this.definitions_writer.writeASCII(feature_key_header);
 
 		// Write the window functions
 		if (this.save_features_for_each_window)
@@ -1076,18 +2231,18 @@ public class FeatureProcessor {
 					if (last_window_features[feat] != null) {
 						FeatureDefinition def = this.feature_extractors[feat]
 								.getFeatureDefinition();
-						this.definitions_writer.writeBytes("   <feature>\n");
-						this.definitions_writer.writeBytes("      <name>" + def.name
+						this.definitions_writer.writeASCII("   <feature>\n");
+						this.definitions_writer.writeASCII("      <name>" + def.name
 								+ "</name>\n");
-						this.definitions_writer.writeBytes("      <description>"
+						this.definitions_writer.writeASCII("      <description>"
 								+ def.description + "</description>\n");
-						this.definitions_writer.writeBytes("      <is_sequential>"
+						this.definitions_writer.writeASCII("      <is_sequential>"
 								+ def.is_sequential + "</is_sequential>\n");
 						this.definitions_writer
-								.writeBytes("      <parallel_dimensions>"
+								.writeASCII("      <parallel_dimensions>"
 										+ last_window_features[feat].length
 										+ "</parallel_dimensions>\n");
-						this.definitions_writer.writeBytes("   </feature>\n\n");
+						this.definitions_writer.writeASCII("   </feature>\n\n");
 					}
 
 		// Write the overall file functions
@@ -1095,20 +2250,20 @@ public class FeatureProcessor {
 			// for (int feat = 0; feat < overall_feature_definitions.length;
 			// feat++) {
 			// FeatureDefinition def = overall_feature_definitions[feat];
-			// definitions_writer.writeBytes(" <feature>\n");
-			// definitions_writer.writeBytes(" <name>" + def.name
+			// definitions_writer.writeASCII(" <feature>\n");
+			// definitions_writer.writeASCII(" <name>" + def.name
 			// + "</name>\n");
-			// definitions_writer.writeBytes(" <description>"
+			// definitions_writer.writeASCII(" <description>"
 			// + def.description + "</description>\n");
-			// definitions_writer.writeBytes(" <is_sequential>"
+			// definitions_writer.writeASCII(" <is_sequential>"
 			// + def.is_sequential + "</is_sequential>\n");
-			// definitions_writer.writeBytes(" <parallel_dimensions>"
+			// definitions_writer.writeASCII(" <parallel_dimensions>"
 			// + def.dimensions + "</parallel_dimensions>\n");
-			// definitions_writer.writeBytes(" </feature>\n\n");
+			// definitions_writer.writeASCII(" </feature>\n\n");
 			aggContainer.outputACEFeatureKeyEntries(this.definitions_writer);
 		}
 
-		this.definitions_writer.writeBytes("</feature_key_file>");
+		this.definitions_writer.writeASCII("</feature_key_file>");
 
 		this.definitions_writer.close();
 
@@ -0,0 +1,360 @@
+/*
+ * @(#)MappedPCMSampleSource.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * A SampleSource that reads uncompressed WAV, AIFF and AIFF-C files by memory
+ * mapping them, decoding frames straight from the mapped file into the
+ * caller's buffer. Java Sound is not used at all, so no copies of the audio
+ * are made in byte arrays or conversion streams.
+ * <p>
+ * Linear PCM samples of 8, 16, 24 or 32 bits and 32 or 64-bit floating point
+ * samples are supported, in either byte order. The open method returns null
+ * for any other file, which should then be read through Java Sound instead.
+ * <p>
+ * Samples are decoded by a PCMDecoder, so a file gives exactly the same
+ * samples as an AudioStreamSampleSource reading it through Java Sound.
+ * <p>
+ * No resampling is done. Callers must check that the rate given by
+ * getSampleRate is the one they need.
+ */
+public class MappedPCMSampleSource implements SampleSource {
+
+	/* FIELDS ***************************************************************** */
+
+	// The largest number of bytes of the file mapped at once.
+	private static final int MAX_SEGMENT_BYTES = 1 << 30;
+
+	// The file being read.
+	private RandomAccessFile file;
+
+	private FileChannel channel;
+
+	// The sampling rate and the number of bytes per frame.
+	private float sample_rate;
+
+	private int frame_size;
+
+	// Decodes the samples of the mapped file.
+	private PCMDecoder decoder;
+
+	// The position of the first frame in the file, and the number of frames.
+	private long data_start;
+
+	private long number_frames;
+
+	// The number of frames read so far.
+	private long frames_read;
+
+	// The mapped part of the file, and the number of the first frame in it.
+	private ByteBuffer segment;
+
+	private long segment_first_frame;
+
+	/* CONSTRUCTOR ************************************************************ */
+
+	/**
+	 * Prepares to read the given file, whose format has already been parsed
+	 * from its header.
+	 */
+	private MappedPCMSampleSource(RandomAccessFile file, float sample_rate,
+			int number_channels, int bits_per_sample,
+			AudioFormat.Encoding encoding, ByteOrder byte_order,
+			long data_start, long data_length) throws Exception {
+		this.file = file;
+		this.channel = file.getChannel();
+		this.sample_rate = sample_rate;
+		this.frame_size = number_channels * (bits_per_sample / 8);
+		this.decoder = new PCMDecoder(new AudioFormat(encoding, sample_rate,
+				bits_per_sample, number_channels, this.frame_size,
+				sample_rate, byte_order == ByteOrder.BIG_ENDIAN));
+		this.data_start = data_start;
+		this.number_frames = data_length / this.frame_size;
+		this.frames_read = 0;
+		this.segment = null;
+		this.segment_first_frame = 0;
+	}
+
+	/* PUBLIC METHODS ********************************************************* */
+
+	/**
+	 * Opens the given file if it is an uncompressed WAV, AIFF or AIFF-C file
+	 * in a supported format.
+	 *
+	 * @param recording_file
+	 *            The audio file to read.
+	 * @return A source of the samples of the file, or null if the file is not
+	 *         in a format that can be read.
+	 * @throws Exception
+	 *             Throws an exception if the file cannot be read.
+	 */
+	public static MappedPCMSampleSource open(File recording_file)
+			throws Exception {
+		RandomAccessFile file = new RandomAccessFile(recording_file, "r");
+		MappedPCMSampleSource source = null;
+		try {
+			byte[] header = new byte[12];
+			if (file.length() >= header.length) {
+				file.readFully(header);
+				String form = new String(header, 0, 4, "US-ASCII");
+				String type = new String(header, 8, 4, "US-ASCII");
+				if (form.equals("RIFF") && type.equals("WAVE"))
+					source = parseWAV(file);
+				else if (form.equals("FORM")
+						&& (type.equals("AIFF") || type.equals("AIFC")))
+					source = parseAIFF(file, type.equals("AIFC"));
+			}
+		} finally {
+			if (source == null)
+				file.close();
+		}
+		return source;
+	}
+
+	/**
+	 * Returns the sampling rate of the file.
+	 *
+	 * @return The number of frames per second.
+	 */
+	public float getSampleRate() {
+		return this.sample_rate;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int read(double[] buffer, int offset, int length) throws Exception {
+		if (this.frames_read >= this.number_frames)
+			return -1;
+		if (length <= 0)
+			return 0;
+
+		// Map the part of the file that holds the next frame, if needed
+		long segment_frames = (this.segment == null) ? 0
+				: this.segment.capacity() / this.frame_size;
+		if (this.frames_read >= this.segment_first_frame + segment_frames)
+			mapSegment(this.frames_read);
+		int first = (int) (this.frames_read - this.segment_first_frame);
+		int frames = Math.min(length, this.segment.capacity()
+				/ this.frame_size - first);
+
+		this.decoder.decodeMixedDown(this.segment, first * this.frame_size,
+				buffer, offset, frames);
+		this.frames_read += frames;
+		return frames;
+	}
+
+	/**
+	 * Returns the number of samples in the file.
+	 *
+	 * @return The number of samples.
+	 */
+	public long getLength() {
+		return this.number_frames;
+	}
+
+	/**
+	 * Closes the file. The mapped part of the file is released once it is
+	 * garbage collected.
+	 *
+	 * @throws Exception
+	 *             Throws an exception if the file cannot be closed.
+	 */
+	public void close() throws Exception {
+		this.segment = null;
+		this.file.close();
+	}
+
+	/* PRIVATE METHODS ******************************************************** */
+
+	/**
+	 * Maps the part of the file that starts with the given frame.
+	 *
+	 * @param first_frame
+	 *            The number of the first frame to map.
+	 * @throws IOException
+	 *             Throws an exception if the file cannot be mapped.
+	 */
+	private void mapSegment(long first_frame) throws IOException {
+		long frames = Math.min(this.number_frames - first_frame,
+				MAX_SEGMENT_BYTES / this.frame_size);
+		this.segment = null;
+		this.segment = this.channel.map(FileChannel.MapMode.READ_ONLY,
+				this.data_start + first_frame * this.frame_size,
+				frames * this.frame_size);
+		this.segment_first_frame = first_frame;
+	}
+
+	/**
+	 * Parses the chunks of a WAV file, after the RIFF header.
+	 *
+	 * @param file
+	 *            The file, positioned after the RIFF header.
+	 * @return A source of the samples of the file, or null if the format of
+	 *         the file is not supported.
+	 * @throws Exception
+	 *             Throws an exception if the file cannot be read.
+	 */
+	private static MappedPCMSampleSource parseWAV(RandomAccessFile file)
+			throws Exception {
+		ByteBuffer format = null;
+		byte[] chunk_header = new byte[8];
+		while (file.getFilePointer() + chunk_header.length <= file.length()) {
+			file.readFully(chunk_header);
+			String id = new String(chunk_header, 0, 4, "US-ASCII");
+			long size = ByteBuffer.wrap(chunk_header, 4, 4)
+					.order(ByteOrder.LITTLE_ENDIAN).getInt() & 0xFFFFFFFFL;
+			long start = file.getFilePointer();
+			if (id.equals("fmt ") && (size >= 16) && (size <= 64)) {
+				byte[] bytes = new byte[(int) size];
+				file.readFully(bytes);
+				format = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+			} else if (id.equals("data")) {
+				if (format == null)
+					return null;
+
+				// Find the format of the samples, which is given by a
+				// sub-format for the extensible format
+				int format_tag = format.getShort(0) & 0xFFFF;
+				if ((format_tag == 0xFFFE) && (format.capacity() >= 26))
+					format_tag = format.getShort(24) & 0xFFFF;
+				int number_channels = format.getShort(2) & 0xFFFF;
+				long sample_rate = format.getInt(4) & 0xFFFFFFFFL;
+				int block_align = format.getShort(12) & 0xFFFF;
+				int bits_per_sample = format.getShort(14) & 0xFFFF;
+				AudioFormat.Encoding encoding;
+				if (format_tag == 1)
+					encoding = (bits_per_sample == 8) ? AudioFormat.Encoding.PCM_UNSIGNED
+							: AudioFormat.Encoding.PCM_SIGNED;
+				else if ((format_tag == 3)
+						&& (bits_per_sample == 32 || bits_per_sample == 64))
+					encoding = AudioFormat.Encoding.PCM_FLOAT;
+				else
+					return null;
+				if (!isSupported(number_channels, bits_per_sample, encoding)
+						|| (block_align != number_channels
+								* (bits_per_sample / 8)))
+					return null;
+
+				// Files that were still being written may give the wrong size
+				long length = Math.min(size, file.length() - start);
+				return new MappedPCMSampleSource(file, (float) sample_rate,
+						number_channels, bits_per_sample, encoding,
+						ByteOrder.LITTLE_ENDIAN, start, length);
+			}
+			file.seek(start + size + (size & 1));
+		}
+		return null;
+	}
+
+	/**
+	 * Parses the chunks of an AIFF or AIFF-C file, after the FORM header.
+	 *
+	 * @param file
+	 *            The file, positioned after the FORM header.
+	 * @param compressed
+	 *            Whether the file is an AIFF-C file, which names the encoding
+	 *            of its samples.
+	 * @return A source of the samples of the file, or null if the format of
+	 *         the file is not supported.
+	 * @throws Exception
+	 *             Throws an exception if the file cannot be read.
+	 */
+	private static MappedPCMSampleSource parseAIFF(RandomAccessFile file,
+			boolean compressed) throws Exception {
+		ByteBuffer common = null;
+		long data_start = -1;
+		long data_length = 0;
+		byte[] chunk_header = new byte[8];
+		while (file.getFilePointer() + chunk_header.length <= file.length()) {
+			file.readFully(chunk_header);
+			String id = new String(chunk_header, 0, 4, "US-ASCII");
+			long size = ByteBuffer.wrap(chunk_header, 4, 4).getInt() & 0xFFFFFFFFL;
+			long start = file.getFilePointer();
+			if (id.equals("COMM") && (size >= 18) && (size <= 512)) {
+				byte[] bytes = new byte[(int) size];
+				file.readFully(bytes);
+				common = ByteBuffer.wrap(bytes);
+			} else if (id.equals("SSND") && (size >= 8)) {
+				long offset = file.readInt() & 0xFFFFFFFFL;
+				data_start = start + 8 + offset;
+				data_length = Math.min(size - 8 - offset, file.length()
+						- data_start);
+			}
+			if ((common != null) && (data_start >= 0))
+				break;
+			file.seek(start + size + (size & 1));
+		}
+		if ((common == null) || (data_start < 0) || (data_length < 0))
+			return null;
+
+		// Samples of other sizes are stored left-justified in whole bytes
+		int number_channels = common.getShort(0) & 0xFFFF;
+		long number_frames = common.getInt(2) & 0xFFFFFFFFL;
+		int bits_per_sample = ((common.getShort(6) & 0xFFFF) + 7) / 8 * 8;
+		double sample_rate = getExtended(common, 8);
+
+		// AIFF-C files name their encoding after the sampling rate
+		AudioFormat.Encoding encoding = AudioFormat.Encoding.PCM_SIGNED;
+		ByteOrder byte_order = ByteOrder.BIG_ENDIAN;
+		if (compressed) {
+			if (common.capacity() < 22)
+				return null;
+			String compression = new String(common.array(), 18, 4,
+					"US-ASCII");
+			if (compression.equals("sowt"))
+				byte_order = ByteOrder.LITTLE_ENDIAN;
+			else if (compression.equalsIgnoreCase("fl32")
+					|| compression.equalsIgnoreCase("fl64"))
+				encoding = AudioFormat.Encoding.PCM_FLOAT;
+			else if (!compression.equals("NONE"))
+				return null;
+		}
+		if (!isSupported(number_channels, bits_per_sample, encoding)
+				|| !(sample_rate > 0.0))
+			return null;
+		data_length = Math.min(data_length, number_frames * number_channels
+				* (bits_per_sample / 8));
+		return new MappedPCMSampleSource(file, (float) sample_rate,
+				number_channels, bits_per_sample, encoding, byte_order,
+				data_start, data_length);
+	}
+
+	/**
+	 * Returns whether samples with the given number of channels, bits and
+	 * encoding can be decoded.
+	 */
+	private static boolean isSupported(int number_channels,
+			int bits_per_sample, AudioFormat.Encoding encoding) {
+		if ((number_channels <= 0) || (bits_per_sample <= 0))
+			return false;
+		return PCMDecoder.isSupported(new AudioFormat(encoding, 1.0f,
+				bits_per_sample, number_channels, number_channels
+						* (bits_per_sample / 8), 1.0f, true));
+	}
+
+	/**
+	 * Returns the 80-bit IEEE extended precision number, as used for the
+	 * sampling rates of AIFF files, that starts at the given indice of the
+	 * given bytes.
+	 */
+	private static double getExtended(ByteBuffer bytes, int position) {
+		int sign_and_exponent = bytes.getShort(position) & 0xFFFF;
+		long mantissa = bytes.getLong(position + 2);
+		int exponent = (sign_and_exponent & 0x7FFF) - 16383 - 63;
+		double value = (mantissa >>> 1) * Math.pow(2.0, exponent + 1)
+				+ (mantissa & 1) * Math.pow(2.0, exponent);
+		return ((sign_and_exponent & 0x8000) != 0) ? -value : value;
+	}
+}
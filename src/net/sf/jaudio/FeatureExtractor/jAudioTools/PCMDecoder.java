@@ -0,0 +1,236 @@
+/*
+ * @(#)PCMDecoder.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Decodes linear PCM audio bytes into sample values between -1 and +1.
+ * <p>
+ * Signed and unsigned integer samples of 8, 16, 24 and 32 bits and floating
+ * point samples of 32 and 64 bits are supported, in either byte order. Integer
+ * samples are divided by AudioMethods.findMaximumSampleValue + 2, as has
+ * always been done for 8 and 16 bit samples, which is 2 to the power of one
+ * less than the bit depth. Floating point samples are used as they are.
+ * <p>
+ * Each encoding is decoded by its own loop, and mixing channels down is done
+ * separately, so that the loops stay simple enough for the compiler to
+ * optimize well.
+ * <p>
+ * Objects of this class keep a buffer of decoded samples for mixing down, so
+ * each thread must use its own.
+ */
+public class PCMDecoder {
+
+	/* FIELDS ***************************************************************** */
+
+	// The number of interleaved samples decoded at a time when mixing down.
+	private static final int SAMPLES_PER_BLOCK = 8192;
+
+	// Whether samples are signed integers, unsigned integers or floating
+	// point numbers.
+	private final AudioFormat.Encoding encoding;
+
+	private final int bytes_per_sample;
+
+	private final int number_channels;
+
+	private final ByteOrder byte_order;
+
+	// The value that integer samples are divided by.
+	private final double max_sample_value;
+
+	// Holds interleaved samples while they are mixed down.
+	private double[] interleaved;
+
+	/* CONSTRUCTOR ************************************************************ */
+
+	/**
+	 * Prepares to decode audio in the given format.
+	 *
+	 * @param format
+	 *            The format of the audio bytes.
+	 * @throws Exception
+	 *             Throws an informative exception if the format is not
+	 *             supported.
+	 */
+	public PCMDecoder(AudioFormat format) throws Exception {
+		if (!isSupported(format))
+			throw new Exception(
+					"Only 8, 16, 24 or 32 bit integer PCM samples or 32 or 64 bit\n"
+							+ "floating point PCM samples can be analyzed currently.");
+		this.encoding = format.getEncoding();
+		this.bytes_per_sample = format.getSampleSizeInBits() / 8;
+		this.number_channels = format.getChannels();
+		this.byte_order = format.isBigEndian() ? ByteOrder.BIG_ENDIAN
+				: ByteOrder.LITTLE_ENDIAN;
+		if (this.encoding == AudioFormat.Encoding.PCM_FLOAT)
+			this.max_sample_value = 1.0;
+		else
+			this.max_sample_value = AudioMethods.findMaximumSampleValue(format
+					.getSampleSizeInBits()) + 2.0;
+		this.interleaved = null;
+	}
+
+	/* PUBLIC METHODS ********************************************************* */
+
+	/**
+	 * Returns whether audio in the given format can be decoded.
+	 *
+	 * @param format
+	 *            The format to check.
+	 * @return True if the format is supported.
+	 */
+	public static boolean isSupported(AudioFormat format) {
+		int bit_depth = format.getSampleSizeInBits();
+		AudioFormat.Encoding encoding = format.getEncoding();
+		if (format.getChannels() < 1
+				|| format.getFrameSize() != format.getChannels() * (bit_depth / 8))
+			return false;
+		if (encoding == AudioFormat.Encoding.PCM_FLOAT)
+			return bit_depth == 32 || bit_depth == 64;
+		if (encoding == AudioFormat.Encoding.PCM_SIGNED
+				|| encoding == AudioFormat.Encoding.PCM_UNSIGNED)
+			return bit_depth == 8 || bit_depth == 16 || bit_depth == 24
+					|| bit_depth == 32;
+		return false;
+	}
+
+	/**
+	 * Returns the number of channels of the audio.
+	 *
+	 * @return The number of channels.
+	 */
+	public int getNumberChannels() {
+		return this.number_channels;
+	}
+
+	/**
+	 * Returns the number of bytes in each frame of the audio.
+	 *
+	 * @return The number of bytes per frame.
+	 */
+	public int getFrameSize() {
+		return this.number_channels * this.bytes_per_sample;
+	}
+
+	/**
+	 * Decodes the given number of samples, leaving the channels interleaved.
+	 * The byte order of the given buffer is set to that of the audio.
+	 *
+	 * @param bytes
+	 *            The audio bytes.
+	 * @param position
+	 *            The indice in bytes of the first sample.
+	 * @param output
+	 *            The buffer to decode the samples into.
+	 * @param offset
+	 *            The indice in the output to store the first sample at.
+	 * @param number_samples
+	 *            The number of samples to decode, counting each channel of a
+	 *            frame separately.
+	 */
+	public void decode(ByteBuffer bytes, int position, double[] output,
+			int offset, int number_samples) {
+		bytes.order(this.byte_order);
+		double max = this.max_sample_value;
+		int end = offset + number_samples;
+		boolean signed = this.encoding == AudioFormat.Encoding.PCM_SIGNED;
+		switch (this.bytes_per_sample) {
+		case 1:
+			if (signed)
+				for (int samp = offset; samp < end; samp++)
+					output[samp] = bytes.get(position++) / max;
+			else
+				for (int samp = offset; samp < end; samp++)
+					output[samp] = ((bytes.get(position++) & 0xFF) - 128) / max;
+			break;
+		case 2:
+			if (signed)
+				for (int samp = offset; samp < end; samp++, position += 2)
+					output[samp] = bytes.getShort(position) / max;
+			else
+				for (int samp = offset; samp < end; samp++, position += 2)
+					output[samp] = (short) (bytes.getShort(position) ^ 0x8000)
+							/ max;
+			break;
+		case 3:
+			// Put the most significant byte at the top of an int, so that it
+			// is sign extended by the shift back down
+			int high = (this.byte_order == ByteOrder.BIG_ENDIAN) ? 0 : 2;
+			int low = 2 - high;
+			int flip = signed ? 0 : 0x80000000;
+			for (int samp = offset; samp < end; samp++, position += 3) {
+				int value = (bytes.get(position + high) << 24)
+						| ((bytes.get(position + 1) & 0xFF) << 16)
+						| ((bytes.get(position + low) & 0xFF) << 8);
+				output[samp] = ((value ^ flip) >> 8) / max;
+			}
+			break;
+		case 4:
+			if (this.encoding == AudioFormat.Encoding.PCM_FLOAT)
+				for (int samp = offset; samp < end; samp++, position += 4)
+					output[samp] = bytes.getFloat(position);
+			else if (signed)
+				for (int samp = offset; samp < end; samp++, position += 4)
+					output[samp] = bytes.getInt(position) / max;
+			else
+				for (int samp = offset; samp < end; samp++, position += 4)
+					output[samp] = (bytes.getInt(position) ^ 0x80000000) / max;
+			break;
+		default:
+			for (int samp = offset; samp < end; samp++, position += 8)
+				output[samp] = bytes.getDouble(position);
+		}
+	}
+
+	/**
+	 * Decodes the given number of frames, mixing their channels down into one
+	 * as DSPMethods.getSamplesMixedDownIntoOneChannel does. The byte order of
+	 * the given buffer is set to that of the audio.
+	 *
+	 * @param bytes
+	 *            The audio bytes.
+	 * @param position
+	 *            The indice in bytes of the first frame.
+	 * @param output
+	 *            The buffer to decode the samples into.
+	 * @param offset
+	 *            The indice in the output to store the first sample at.
+	 * @param number_frames
+	 *            The number of frames to decode.
+	 */
+	public void decodeMixedDown(ByteBuffer bytes, int position,
+			double[] output, int offset, int number_frames) {
+		if (this.number_channels == 1) {
+			decode(bytes, position, output, offset, number_frames);
+			return;
+		}
+		if (this.interleaved == null)
+			this.interleaved = new double[SAMPLES_PER_BLOCK
+					- SAMPLES_PER_BLOCK % this.number_channels];
+		int frame_size = getFrameSize();
+		int frames_per_block = this.interleaved.length / this.number_channels;
+		double channels = (double) this.number_channels;
+		while (number_frames > 0) {
+			int frames = Math.min(number_frames, frames_per_block);
+			decode(bytes, position, this.interleaved, 0, frames
+					* this.number_channels);
+			int samp = 0;
+			for (int frame = 0; frame < frames; frame++) {
+				double total_so_far = 0.0;
+				for (int chan = 0; chan < this.number_channels; chan++)
+					total_so_far += this.interleaved[samp++];
+				output[offset + frame] = total_so_far / channels;
+			}
+			position += frames * frame_size;
+			offset += frames;
+			number_frames -= frames;
+		}
+	}
+}
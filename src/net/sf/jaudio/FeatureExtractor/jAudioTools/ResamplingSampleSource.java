@@ -0,0 +1,356 @@
+/*
+ * @(#)ResamplingSampleSource.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A SampleSource that converts the samples of another source to a different
+ * sampling rate as they are read, using a polyphase windowed-sinc filter.
+ * <p>
+ * Both sampling rates must be whole numbers of Hz. Their ratio is reduced to
+ * L/M, and output sample n is interpolated at input time n*M/L from the
+ * input samples around it. The filter is a sinc function with its cutoff at
+ * the lower of the two Nyquist frequencies, shaped by a Kaiser window. Its
+ * coefficients are computed once for each of the L phases and kept in a
+ * table, which is shared by all sources with the same ratio and quality. The
+ * coefficients of each phase are scaled to add up to one, so that constant
+ * signals keep their level.
+ * <p>
+ * Samples before the start and after the end of the input are taken to be
+ * zero. The resampled recording has ceil(input_length*L/M) samples.
+ * <p>
+ * Only a block of input samples and the filter table are held in memory, so
+ * recordings of any length can be resampled.
+ */
+public class ResamplingSampleSource implements SampleSource {
+
+	/* FIELDS ***************************************************************** */
+
+	/**
+	 * The quality with the shortest filter. Suitable when speed matters more
+	 * than attenuating aliasing near the Nyquist frequency.
+	 */
+	public static final int FAST_QUALITY = 0;
+
+	/**
+	 * The default quality.
+	 */
+	public static final int MEDIUM_QUALITY = 1;
+
+	/**
+	 * The quality with the longest filter and the sharpest cutoff.
+	 */
+	public static final int BEST_QUALITY = 2;
+
+	/**
+	 * The largest value of L, the number of filter phases, that is supported.
+	 */
+	public static final int MAX_PHASES = 4096;
+
+	// For each quality, the number of zero crossings of the sinc function on
+	// each side of the centre of the filter, the Kaiser window beta and the
+	// cutoff as a fraction of the lower Nyquist frequency.
+	private static final int[] ZERO_CROSSINGS = { 8, 16, 32 };
+
+	private static final double[] KAISER_BETA = { 6.0, 8.0, 10.0 };
+
+	private static final double[] ROLLOFF = { 0.90, 0.94, 0.97 };
+
+	// The number of input samples read from the source at a time.
+	private static final int INPUT_BLOCK_SIZE = 4096;
+
+	// Filter tables already computed, keyed by ratio and quality.
+	private static final ConcurrentHashMap<String, double[][]> FILTER_TABLES = new ConcurrentHashMap<String, double[][]>();
+
+	// The source of the samples at the original rate.
+	private SampleSource source;
+
+	// The reduced ratio of the output rate to the input rate.
+	private int upsampling;
+
+	private int downsampling;
+
+	// The filter coefficients, indexed by phase and then tap, and the number
+	// of taps on each side of the centre of the filter.
+	private double[][] filter;
+
+	private int half_taps;
+
+	// Input samples from index input_start to input_end of the recording.
+	// Indices before 0 and after the end of the recording hold zeros.
+	private double[] input;
+
+	private long input_start;
+
+	private long input_end;
+
+	// The number of input samples in the recording, once the end of the
+	// source has been reached, and -1 before.
+	private long input_length;
+
+	// The number of the next output sample.
+	private long output_index;
+
+	/* CONSTRUCTOR ************************************************************ */
+
+	/**
+	 * Prepares to resample the given source.
+	 *
+	 * @param source
+	 *            The samples to resample.
+	 * @param input_rate
+	 *            The sampling rate of the source.
+	 * @param output_rate
+	 *            The sampling rate to convert to.
+	 * @param quality
+	 *            FAST_QUALITY, MEDIUM_QUALITY or BEST_QUALITY.
+	 * @throws Exception
+	 *             Throws an informative exception if the rates are not
+	 *             supported, as given by isSupported, or the quality is
+	 *             invalid.
+	 */
+	public ResamplingSampleSource(SampleSource source, float input_rate,
+			float output_rate, int quality) throws Exception {
+		if (!isSupported(input_rate, output_rate))
+			throw new Exception("Cannot resample from " + input_rate
+					+ " Hz to " + output_rate + " Hz.");
+		if (quality < FAST_QUALITY || quality > BEST_QUALITY)
+			throw new Exception("Invalid resampling quality: " + quality + ".");
+		int input_hz = (int) input_rate;
+		int output_hz = (int) output_rate;
+		int divisor = greatestCommonDivisor(input_hz, output_hz);
+		this.source = source;
+		this.upsampling = output_hz / divisor;
+		this.downsampling = input_hz / divisor;
+		this.filter = getFilter(this.upsampling, this.downsampling, quality);
+		this.half_taps = this.filter[0].length / 2;
+
+		// Start with the zeros before the recording
+		this.input = new double[INPUT_BLOCK_SIZE + 2 * this.filter[0].length];
+		this.input_start = -this.half_taps;
+		this.input_end = 0;
+		this.input_length = -1;
+		this.output_index = 0;
+	}
+
+	/* PUBLIC METHODS ********************************************************* */
+
+	/**
+	 * Returns whether this class can convert between the given sampling rates.
+	 * Both must be positive whole numbers, and their reduced ratio must have
+	 * a numerator of no more than MAX_PHASES.
+	 *
+	 * @param input_rate
+	 *            The sampling rate to convert from.
+	 * @param output_rate
+	 *            The sampling rate to convert to.
+	 * @return True if the conversion is supported.
+	 */
+	public static boolean isSupported(float input_rate, float output_rate) {
+		if (!(input_rate >= 1.0f) || !(output_rate >= 1.0f)
+				|| input_rate != Math.rint(input_rate)
+				|| output_rate != Math.rint(output_rate)
+				|| input_rate > Integer.MAX_VALUE
+				|| output_rate > Integer.MAX_VALUE)
+			return false;
+		int input_hz = (int) input_rate;
+		int output_hz = (int) output_rate;
+		return output_hz / greatestCommonDivisor(input_hz, output_hz) <= MAX_PHASES;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int read(double[] buffer, int offset, int length) throws Exception {
+		int taps = 2 * this.half_taps;
+		int produced = 0;
+		while (produced < length) {
+			// Find the input sample just before this output sample, and the
+			// phase of the filter for the fraction of a sample after it
+			long step = this.output_index * this.downsampling;
+			long centre = step / this.upsampling;
+			int phase = (int) (step % this.upsampling);
+
+			if ((this.input_length >= 0) && (centre >= this.input_length))
+				break;
+			if (centre + this.half_taps >= this.input_end) {
+				readInput(centre - this.half_taps + 1);
+				continue;
+			}
+
+			double[] coefficients = this.filter[phase];
+			int first = (int) (centre - this.half_taps + 1 - this.input_start);
+			double sum = 0.0;
+			for (int tap = 0; tap < taps; tap++)
+				sum += this.input[first + tap] * coefficients[tap];
+			buffer[offset + produced] = sum;
+			produced++;
+			this.output_index++;
+		}
+		if ((produced == 0) && (length > 0))
+			return -1;
+		return produced;
+	}
+
+	/**
+	 * Returns the number of resampled samples, if the length of the source is
+	 * known.
+	 *
+	 * @return The number of samples, or -1 if it is not known.
+	 */
+	public long getLength() {
+		long length = this.source.getLength();
+		if (length < 0)
+			return -1;
+		return (length * this.upsampling + this.downsampling - 1)
+				/ this.downsampling;
+	}
+
+	/**
+	 * Closes the source.
+	 *
+	 * @throws Exception
+	 *             Throws an exception if the source cannot be closed.
+	 */
+	public void close() throws Exception {
+		this.source.close();
+	}
+
+	/* PRIVATE METHODS ******************************************************** */
+
+	/**
+	 * Discards the input samples before the given index and reads more from
+	 * the source. Once the source is exhausted, zeros are added after the end
+	 * of the recording to cover the last filter.
+	 *
+	 * @param keep_from
+	 *            The index of the first input sample that is still needed.
+	 * @throws Exception
+	 *             Throws an exception if the source cannot be read.
+	 */
+	private void readInput(long keep_from) throws Exception {
+		int discard = (int) Math.min(Math.max(keep_from - this.input_start, 0),
+				this.input_end - this.input_start);
+		int kept = (int) (this.input_end - this.input_start) - discard;
+		System.arraycopy(this.input, discard, this.input, 0, kept);
+		this.input_start += discard;
+
+		if (this.input_length >= 0) {
+			// Pad the end of the recording with zeros
+			int zeros = Math.min(this.input.length - kept, 2 * this.half_taps);
+			Arrays.fill(this.input, kept, kept + zeros, 0.0);
+			this.input_end += zeros;
+			return;
+		}
+		int read = this.source.read(this.input, kept, this.input.length - kept);
+		if (read < 0)
+			this.input_length = this.input_end;
+		else
+			this.input_end += read;
+	}
+
+	/**
+	 * Returns the filter table for the given ratio and quality, computing it
+	 * if it has not been computed already.
+	 *
+	 * @param upsampling
+	 *            L, the number of phases.
+	 * @param downsampling
+	 *            M.
+	 * @param quality
+	 *            The quality of the filter.
+	 * @return The coefficients of the filter, indexed by phase and then tap.
+	 */
+	private static double[][] getFilter(int upsampling, int downsampling,
+			int quality) {
+		String key = upsampling + "/" + downsampling + "/" + quality;
+		double[][] filter = FILTER_TABLES.get(key);
+		if (filter == null) {
+			filter = calculateFilter(upsampling, downsampling, quality);
+			FILTER_TABLES.putIfAbsent(key, filter);
+		}
+		return filter;
+	}
+
+	/**
+	 * Calculates the coefficients of each phase of a Kaiser windowed sinc
+	 * filter for the given ratio and quality.
+	 *
+	 * @param upsampling
+	 *            L, the number of phases.
+	 * @param downsampling
+	 *            M.
+	 * @param quality
+	 *            The quality of the filter.
+	 * @return The coefficients of the filter, indexed by phase and then tap.
+	 *         Tap t of phase p weights the input sample t - half_taps + 1
+	 *         samples after the one before the output sample.
+	 */
+	private static double[][] calculateFilter(int upsampling,
+			int downsampling, int quality) {
+		// The cutoff relative to the Nyquist frequency of the input, and the
+		// half width of the filter in input samples
+		double cutoff = Math.min(1.0, (double) upsampling / downsampling)
+				* ROLLOFF[quality];
+		double half_width = ZERO_CROSSINGS[quality] / cutoff;
+		int half_taps = (int) Math.ceil(half_width);
+		double beta = KAISER_BETA[quality];
+		double window_scale = 1.0 / besselI0(beta);
+
+		double[][] filter = new double[upsampling][2 * half_taps];
+		for (int phase = 0; phase < upsampling; phase++) {
+			double fraction = (double) phase / upsampling;
+			double sum = 0.0;
+			for (int tap = 0; tap < 2 * half_taps; tap++) {
+				// The distance of this input sample from the output sample
+				double distance = fraction + half_taps - 1 - tap;
+				double x = distance / half_width;
+				if (Math.abs(x) >= 1.0)
+					continue;
+				double argument = Math.PI * cutoff * distance;
+				double sinc = (argument == 0.0) ? 1.0 : Math.sin(argument)
+						/ argument;
+				double window = besselI0(beta * Math.sqrt(1.0 - x * x))
+						* window_scale;
+				filter[phase][tap] = cutoff * sinc * window;
+				sum += filter[phase][tap];
+			}
+			for (int tap = 0; tap < 2 * half_taps; tap++)
+				filter[phase][tap] /= sum;
+		}
+		return filter;
+	}
+
+	/**
+	 * Returns the zeroth order modified Bessel function of the first kind of
+	 * the given value, as used by the Kaiser window.
+	 */
+	private static double besselI0(double x) {
+		double sum = 1.0;
+		double term = 1.0;
+		double half = x / 2.0;
+		for (int k = 1; k < 50; k++) {
+			term *= (half / k) * (half / k);
+			sum += term;
+			if (term < sum * 1e-17)
+				break;
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the greatest common divisor of the given positive integers.
+	 */
+	private static int greatestCommonDivisor(int a, int b) {
+		while (b != 0) {
+			int remainder = a % b;
+			a = b;
+			b = remainder;
+		}
+		return a;
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * @(#)SampleSource.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+/**
+ * A source of audio samples, mixed down into one channel, that are read in
+ * blocks from the start of a recording to its end. This allows a recording to
+ * be processed without ever holding all of its samples in memory.
+ * <p>
+ * Sample values should generally be between -1 and +1.
+ */
+public interface SampleSource {
+
+	/**
+	 * Reads up to the given number of samples. Fewer samples may be read,
+	 * even before the end of the recording.
+	 *
+	 * @param buffer
+	 *            The buffer to read the samples into.
+	 * @param offset
+	 *            The indice in the buffer to store the first sample at.
+	 * @param length
+	 *            The largest number of samples to read.
+	 * @return The number of samples read, or -1 if the end of the recording
+	 *         has been reached.
+	 * @throws Exception
+	 *             Throws an informative exception if the samples cannot be
+	 *             read.
+	 */
+	public int read(double[] buffer, int offset, int length) throws Exception;
+
+	/**
+	 * Returns the number of samples in the recording, if this is known in
+	 * advance.
+	 *
+	 * @return The number of samples, or -1 if it is not known.
+	 */
+	public long getLength();
+
+	/**
+	 * Releases the resources used to read the recording.
+	 *
+	 * @throws Exception
+	 *             Throws an exception if a problem occurs.
+	 */
+	public void close() throws Exception;
+}
@@ -0,0 +1,175 @@
+/*
+ * @(#)WindowContext.java	1.0	October 18, 2026.
+ */
+
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+/**
+ * Holds the analysis of a single window of samples that is shared between all
+ * of the features extracted from that window.
+ *
+ * <p>
+ * The spectral representations (Hanning windowed samples, complex FFT output,
+ * magnitude spectrum, power spectrum and phase angles) are only calculated the
+ * first time that they are requested, and are then cached for the remainder
+ * of the window. This means that the FFT is performed at most once per window,
+ * no matter how many features need a spectrum.
+ * </p>
+ *
+ * <p>
+ * The arrays returned by this class are shared. Callers must not modify them.
+ * A context may be reused for a later window with the setSamples method,
+ * which discards the analyses of the previous window.
+ * </p>
+ */
+public class WindowContext {
+    /* FIELDS ***************************************************************** */
+
+    // The samples of this window, before any windowing function is applied.
+    private double[] samples;
+
+    // The sampling rate that the samples are encoded with.
+    private double sampling_rate;
+
+    // The forward FFT of the samples, performed with a Hanning window. Null
+    // until it is first needed.
+    private FFT fft;
+
+    // The samples after the application of a Hanning window. Null until they
+    // are first needed.
+    private double[] windowed_samples;
+
+    // Whether windowed_samples holds the samples of the current window.
+    private boolean windowed_current;
+
+    /* CONSTRUCTOR ************************************************************ */
+
+    /**
+     * Prepares a context for the given window. No analysis is performed until
+     * it is requested.
+     *
+     * @param samples
+     *            The samples in the window.
+     * @param sampling_rate
+     *            The sampling rate that the samples are encoded with.
+     */
+    public WindowContext(double[] samples, double sampling_rate) {
+        this.samples = samples;
+        this.sampling_rate = sampling_rate;
+        this.fft = null;
+        this.windowed_samples = null;
+        this.windowed_current = false;
+    }
+
+    /* PUBLIC METHODS ********************************************************* */
+
+    /**
+     * Prepares this context for a new window. The analyses of the previous
+     * window are discarded, but internal buffers are kept for reuse if the new
+     * window has the same length. This means that arrays returned for the
+     * previous window may be overwritten.
+     *
+     * @param samples
+     *            The samples in the new window.
+     */
+    public void setSamples(double[] samples) {
+        if ((windowed_samples != null)
+                && (samples.length != this.samples.length))
+            windowed_samples = null;
+        this.samples = samples;
+        this.fft = null;
+        this.windowed_current = false;
+    }
+
+    /**
+     * Returns the samples of this window, without any windowing function
+     * applied.
+     *
+     * @return The samples of this window.
+     */
+    public double[] getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the sampling rate that the samples of this window are encoded
+     * with.
+     *
+     * @return The sampling rate.
+     */
+    public double getSamplingRate() {
+        return sampling_rate;
+    }
+
+    /**
+     * Returns the samples of this window after the application of a Hanning
+     * window. These are zero-padded to the same power of 2 length that is used
+     * by the FFT.
+     *
+     * @return The Hanning windowed samples.
+     * @throws Exception
+     *             Throws an exception if the window is too short to analyze.
+     */
+    public double[] getWindowedSamples() throws Exception {
+        if (!windowed_current) {
+            if (windowed_samples == null)
+                windowed_samples = new double[net.sf.jaudio.FeatureExtractor.GeneralTools.Statistics
+                        .ensureIsPowerOfN(samples.length, 2)];
+            System.arraycopy(samples, 0, windowed_samples, 0, samples.length);
+            FFTPlan.getPlan(windowed_samples.length, true).applyWindow(
+                    windowed_samples);
+            windowed_current = true;
+        }
+        return windowed_samples;
+    }
+
+    /**
+     * Returns the forward FFT of this window, performed with a Hanning window.
+     * The transform is performed the first time that this method is called.
+     *
+     * @return The FFT of this window.
+     * @throws Exception
+     *             Throws an exception if the window is too short to analyze.
+     */
+    public FFT getFFT() throws Exception {
+        if (fft == null)
+            fft = new FFT(samples, null, false, true);
+        return fft;
+    }
+
+    /**
+     * Returns the magnitude spectrum of this window.
+     *
+     * @return The magnitude of each frequency bin.
+     * @throws Exception
+     *             Throws an exception if the window is too short to analyze.
+     * @see FFT#getMagnitudeSpectrum()
+     */
+    public double[] getMagnitudeSpectrum() throws Exception {
+        return getFFT().getMagnitudeSpectrum();
+    }
+
+    /**
+     * Returns the power spectrum of this window.
+     *
+     * @return The power of each frequency bin.
+     * @throws Exception
+     *             Throws an exception if the window is too short to analyze.
+     * @see FFT#getPowerSpectrum()
+     */
+    public double[] getPowerSpectrum() throws Exception {
+        return getFFT().getPowerSpectrum();
+    }
+
+    /**
+     * Returns the phase angle of each frequency bin of this window.
+     *
+     * @return The phase angle for each frequency bin in degrees.
+     * @throws Exception
+     *             Throws an exception if the window is too short to analyze.
+     * @see FFT#getPhaseAngles()
+     */
+    public double[] getPhaseAngles() throws Exception {
+        return getFFT().getPhaseAngles();
+    }
+}
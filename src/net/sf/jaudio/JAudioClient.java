@@ -0,0 +1,392 @@
+package net.sf.jaudio;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * The client side of JAudioProtocol. One JAudioClient keeps one connection to
+ * a JAudioServer, over which any number of tracks can be sent at once, from
+ * any number of threads.
+ * <p>
+ * A track is opened with openTrack, its samples are sent with the write
+ * methods of the Track returned, and it is ended with Track.close. The
+ * features of the track are given to its TrackListener as they arrive.
+ * Writing blocks while the server has not given the track enough credit, so
+ * a track can never get further ahead of its analysis than the server
+ * allows.
+ */
+public class JAudioClient {
+    /**
+     * The largest number of sample bytes sent in one frame.
+     */
+    public final static int MAX_DATA_LENGTH = 32 * 1024;
+
+    /**
+     * Receives the features of a track. The methods are called on the thread
+     * that reads from the connection, so they must return quickly, and must
+     * not write samples, since credit cannot arrive until they return.
+     */
+    public interface TrackListener {
+
+        /**
+         * Called when the analysis of the track starts.
+         *
+         * @param names The names of the features of each window.
+         * @param dimensions The number of dimensions of each feature.
+         */
+        public void featuresDefined(String[] names, int[] dimensions);
+
+        /**
+         * Called for each window of the track.
+         *
+         * @param start_sample The indice of the first sample of the window.
+         * @param values The values of each feature, which are empty if the
+         * feature could not be extracted from this window.
+         */
+        public void windowExtracted(int start_sample, double[][] values);
+
+        /**
+         * Called after the last window of the track.
+         *
+         * @param names The names of the overall features.
+         * @param values The values of each overall feature.
+         */
+        public void trackFinished(String[] names, double[][] values);
+
+        /**
+         * Called if the track could not be analyzed.
+         *
+         * @param message Why the track failed.
+         */
+        public void trackFailed(String message);
+    }
+
+    private Socket socket;
+    private DataInputStream input;
+    private DataOutputStream output;
+
+    // The tracks that have not yet finished or failed, by stream ID
+    private final ConcurrentHashMap<Integer,Track> tracks = new ConcurrentHashMap<Integer,Track>();
+
+    private int next_id = 0;
+
+    // Why the connection failed, or null while it works
+    private volatile String failure = null;
+
+    /**
+     * Connects to a server.
+     *
+     * @param host The name of the server.
+     * @param port The port of the server, normally JAudioServer.PORT.
+     * @throws Exception if the server cannot be reached or does not speak
+     * the same version of the protocol.
+     */
+    public JAudioClient(String host, int port) throws Exception{
+        socket = new Socket(host,port);
+        socket.setTcpNoDelay(true);
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                MAX_DATA_LENGTH + JAudioProtocol.FRAME_HEADER_LENGTH + 4));
+        output.writeInt(JAudioProtocol.MULTIPLEX_REQUEST);
+        output.writeInt(JAudioProtocol.VERSION);
+        output.flush();
+        int version = input.readInt();
+        if(version != JAudioProtocol.VERSION){
+            socket.close();
+            throw new Exception("Server speaks protocol version "+version+", not "+JAudioProtocol.VERSION);
+        }
+        Thread reader = new Thread(new Runnable(){
+            public void run(){
+                readFrames();
+            }
+        },"jAudio client "+host+":"+port);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Opens a track whose samples will be written as interleaved floats.
+     *
+     * @param identifier The string identifying the track.
+     * @param sample_rate The sampling rate of the samples.
+     * @param channels The number of channels of the samples.
+     * @param listener Given the features of the track.
+     * @return The track to write the samples to.
+     * @throws Exception if the track cannot be opened.
+     */
+    public Track openTrack(String identifier, float sample_rate, int channels, TrackListener listener) throws Exception{
+        return openTrack(identifier,new AudioFormat(AudioFormat.Encoding.PCM_FLOAT,sample_rate,32,
+                channels,channels * 4,sample_rate,true),listener);
+    }
+
+    /**
+     * Opens a track whose samples will be written as bytes in the given
+     * format.
+     *
+     * @param identifier The string identifying the track.
+     * @param format The format of the sample bytes.
+     * @param listener Given the features of the track.
+     * @return The track to write the samples to.
+     * @throws Exception if the track cannot be opened.
+     */
+    public Track openTrack(String identifier, AudioFormat format, TrackListener listener) throws Exception{
+        Track track;
+        synchronized(this){
+            track = new Track(next_id++,format,listener);
+        }
+        tracks.put(track.id,track);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        JAudioProtocol.writeOpen(new DataOutputStream(payload),format,identifier);
+        send(JAudioProtocol.OPEN,track.id,payload.toByteArray(),0,payload.size());
+        return track;
+    }
+
+    /**
+     * Closes the connection. Tracks that have not finished fail.
+     *
+     * @throws IOException if the connection cannot be closed.
+     */
+    public void close() throws IOException{
+        socket.close();
+    }
+
+    private void send(byte type, int id, byte[] payload, int offset, int length) throws Exception{
+        if(failure != null){
+            throw new Exception(failure);
+        }
+        synchronized(output){
+            output.writeInt(JAudioProtocol.FRAME_HEADER_LENGTH + length);
+            output.writeByte(type);
+            output.writeInt(id);
+            output.write(payload,offset,length);
+            output.flush();
+        }
+    }
+
+    /**
+     * Reads the frames sent by the server until the connection ends, and
+     * hands them to their tracks.
+     */
+    private void readFrames(){
+        try{
+            byte[] payload = new byte[4096];
+            while(true){
+                int length = input.readInt();
+                byte type = input.readByte();
+                int id = input.readInt();
+                int size = length - JAudioProtocol.FRAME_HEADER_LENGTH;
+                if(payload.length < size){
+                    payload = new byte[size];
+                }
+                input.readFully(payload,0,size);
+                DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload,0,size));
+                if((type == JAudioProtocol.ERROR) && (id == JAudioProtocol.CONNECTION_STREAM)){
+                    throw new Exception(frame.readUTF());
+                }
+                Track track = tracks.get(id);
+                if(track != null){
+                    track.receive(type,frame);
+                }
+            }
+        }catch(Exception e){
+            failure = (e instanceof IOException) ? "Connection closed" : e.getMessage();
+            for(Track track : tracks.values()){
+                track.fail(failure);
+            }
+            try{
+                socket.close();
+            }catch(IOException f){
+            }
+        }
+    }
+
+    /**
+     * A track being sent to the server.
+     */
+    public class Track {
+        private int id;
+        private int frame_size;
+        private TrackListener listener;
+
+        // The number of bytes that may still be sent
+        private int credit = 0;
+
+        private boolean input_closed = false;
+        private boolean ended = false;
+        private String error = null;
+
+        // The number of features of each window, once known
+        private int number_features = 0;
+
+        // Holds the bytes of floats being written
+        private byte[] encoded = null;
+
+        private Track(int id, AudioFormat format, TrackListener listener){
+            this.id = id;
+            this.frame_size = format.getFrameSize();
+            this.listener = listener;
+        }
+
+        /**
+         * Sends interleaved samples. The track must have been opened with
+         * floats as its format.
+         *
+         * @param samples The samples to send.
+         * @param offset The indice of the first sample to send.
+         * @param length The number of samples to send, counting each channel separately.
+         * @throws Exception if the track has failed or ended, or the samples cannot be sent.
+         */
+        public void write(float[] samples, int offset, int length) throws Exception{
+            if(encoded == null){
+                encoded = new byte[MAX_DATA_LENGTH];
+            }
+            while(length > 0){
+                int count = Math.min(length,encoded.length / 4);
+                for(int i=0;i<count;++i){
+                    int bits = Float.floatToRawIntBits(samples[offset + i]);
+                    encoded[4 * i] = (byte)(bits >>> 24);
+                    encoded[4 * i + 1] = (byte)(bits >>> 16);
+                    encoded[4 * i + 2] = (byte)(bits >>> 8);
+                    encoded[4 * i + 3] = (byte)bits;
+                }
+                write(encoded,0,4 * count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        /**
+         * Sends sample bytes in the format the track was opened with,
+         * waiting for credit from the server as needed.
+         *
+         * @param bytes The bytes to send.
+         * @param offset The indice of the first byte to send.
+         * @param length The number of bytes to send.
+         * @throws Exception if the track has failed or ended, or the bytes cannot be sent.
+         */
+        public void write(byte[] bytes, int offset, int length) throws Exception{
+            while(length > 0){
+                int count;
+                synchronized(this){
+                    while((credit == 0) && !ended){
+                        wait();
+                    }
+                    if(ended){
+                        throw new Exception((error != null) ? error : "Track "+id+" has ended");
+                    }
+                    count = Math.min(Math.min(length,credit),MAX_DATA_LENGTH);
+                    credit -= count;
+                }
+                send(JAudioProtocol.DATA,id,bytes,offset,count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        /**
+         * Marks the end of the samples of the track. The features of the
+         * last windows and the overall features follow.
+         *
+         * @throws Exception if the connection has failed.
+         */
+        public void close() throws Exception{
+            synchronized(this){
+                if(input_closed){
+                    return;
+                }
+                input_closed = true;
+            }
+            send(JAudioProtocol.CLOSE,id,new byte[0],0,0);
+        }
+
+        /**
+         * Waits until the track has finished or failed.
+         *
+         * @throws Exception with the reason if the track failed.
+         */
+        public synchronized void waitFor() throws Exception{
+            while(!ended){
+                wait();
+            }
+            if(error != null){
+                throw new Exception(error);
+            }
+        }
+
+        /**
+         * Returns the number of bytes in each frame of samples.
+         *
+         * @return The frame size.
+         */
+        public int getFrameSize(){
+            return frame_size;
+        }
+
+        private void receive(byte type, DataInputStream frame) throws Exception{
+            if(type == JAudioProtocol.CREDIT){
+                synchronized(this){
+                    credit += frame.readInt();
+                    notifyAll();
+                }
+            }else if(type == JAudioProtocol.FEATURES){
+                number_features = frame.readInt();
+                String[] names = new String[number_features];
+                int[] dimensions = new int[number_features];
+                for(int i=0;i<number_features;++i){
+                    names[i] = frame.readUTF();
+                    dimensions[i] = frame.readInt();
+                }
+                listener.featuresDefined(names,dimensions);
+            }else if(type == JAudioProtocol.WINDOW){
+                int start_sample = frame.readInt();
+                double[][] values = new double[number_features][];
+                for(int i=0;i<number_features;++i){
+                    values[i] = JAudioProtocol.readValues(frame);
+                }
+                listener.windowExtracted(start_sample,values);
+            }else if(type == JAudioProtocol.OVERALL){
+                String[] names = new String[frame.readInt()];
+                double[][] values = new double[names.length][];
+                for(int i=0;i<names.length;++i){
+                    names[i] = frame.readUTF();
+                    values[i] = JAudioProtocol.readValues(frame);
+                }
+                tracks.remove(id);
+                listener.trackFinished(names,values);
+                end(null);
+            }else if(type == JAudioProtocol.ERROR){
+                fail(frame.readUTF());
+
+                // The server keeps the stream until it is closed
+                boolean closed;
+                synchronized(this){
+                    closed = input_closed;
+                    input_closed = true;
+                }
+                if(!closed){
+                    send(JAudioProtocol.CLOSE,id,new byte[0],0,0);
+                }
+            }
+        }
+
+        private void fail(String message){
+            tracks.remove(id);
+            listener.trackFailed(message);
+            end(message);
+        }
+
+        private synchronized void end(String message){
+            ended = true;
+            error = message;
+            notifyAll();
+        }
+    }
+}
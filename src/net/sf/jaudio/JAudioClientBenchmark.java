@@ -0,0 +1,117 @@
+package net.sf.jaudio;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how fast a JAudioServer analyzes tracks sent over one
+ * JAudioClient connection.
+ * <p>
+ * Arguments are, all optionally, the name of the server (localhost), the
+ * number of tracks sent at once (8), the length of each track in seconds
+ * (60) and its sampling rate (22050). The tracks are synthetic stereo audio,
+ * sent as floats as fast as the server gives credit for them. The time
+ * taken, the amount of audio analyzed per second and the number of windows
+ * received per second are printed once every track has finished. If any
+ * track fails, the number that failed is printed instead and the benchmark
+ * exits with status 1.
+ */
+public class JAudioClientBenchmark {
+    // The number of frames sent by each call to write
+    private final static int FRAMES_PER_WRITE = 4096;
+
+    public static void main(String[] args) throws Exception{
+        String host = (args.length > 0) ? args[0] : "localhost";
+        int number_tracks = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        double seconds = (args.length > 2) ? Double.parseDouble(args[2]) : 60.0;
+        final float sample_rate = (args.length > 3) ? Float.parseFloat(args[3]) : 22050.0f;
+        final int frames = (int)(seconds * sample_rate);
+
+        JAudioClient client = new JAudioClient(host,JAudioServer.PORT);
+        final AtomicLong windows = new AtomicLong();
+        JAudioClient.TrackListener listener = new JAudioClient.TrackListener(){
+            public void featuresDefined(String[] names, int[] dimensions){
+            }
+            public void windowExtracted(int start_sample, double[][] values){
+                windows.incrementAndGet();
+            }
+            public void trackFinished(String[] names, double[][] values){
+            }
+            public void trackFailed(String message){
+                System.out.println("Track failed: "+message);
+            }
+        };
+
+        long start = System.nanoTime();
+        final JAudioClient.Track[] tracks = new JAudioClient.Track[number_tracks];
+        final AtomicBoolean[] failed = new AtomicBoolean[number_tracks];
+        Thread[] writers = new Thread[number_tracks];
+        for(int i=0;i<number_tracks;++i){
+            final JAudioClient.Track track = client.openTrack("benchmark"+i,sample_rate,2,listener);
+            final long seed = i;
+            final AtomicBoolean track_failed = new AtomicBoolean();
+            tracks[i] = track;
+            failed[i] = track_failed;
+            writers[i] = new Thread(new Runnable(){
+                public void run(){
+                    try{
+                        writeTrack(track,frames,sample_rate,seed);
+                    }catch(Exception e){
+                        System.out.println("Exception: "+e.getMessage());
+                        track_failed.set(true);
+                    }
+                }
+            });
+            writers[i].start();
+        }
+        for(int i=0;i<number_tracks;++i){
+            writers[i].join();
+            try{
+                tracks[i].waitFor();
+            }catch(Exception e){
+                failed[i].set(true);
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        client.close();
+
+        int number_failed = 0;
+        for(int i=0;i<number_tracks;++i){
+            if(failed[i].get()){
+                number_failed++;
+            }
+        }
+        if(number_failed > 0){
+            System.out.println(number_failed+" of "+number_tracks+" tracks failed");
+            System.exit(1);
+        }
+
+        double audio_seconds = (double)number_tracks * frames / sample_rate;
+        double megabytes = (double)number_tracks * frames * 8 / (1024.0 * 1024.0);
+        System.out.println(number_tracks+" tracks of "+seconds+" s at "+sample_rate+" Hz in "
+                +String.format("%.2f",elapsed)+" s");
+        System.out.println(String.format("%.1f",audio_seconds / elapsed)+" times real time, "
+                +String.format("%.1f",megabytes / elapsed)+" MB/s of samples, "
+                +String.format("%.0f",windows.get() / elapsed)+" windows/s");
+    }
+
+    /**
+     * Sends a tone with some noise, so that the features vary.
+     */
+    private static void writeTrack(JAudioClient.Track track, int frames, float sample_rate, long seed) throws Exception{
+        Random random = new Random(seed);
+        double frequency = 110.0 * (1 + seed % 8);
+        float[] block = new float[2 * FRAMES_PER_WRITE];
+        for(int frame=0;frame<frames;frame+=FRAMES_PER_WRITE){
+            int count = Math.min(FRAMES_PER_WRITE,frames - frame);
+            for(int i=0;i<count;++i){
+                float value = (float)(0.5 * Math.sin(2.0 * Math.PI * frequency * (frame + i) / sample_rate)
+                        + 0.1 * (random.nextDouble() - 0.5));
+                block[2 * i] = value;
+                block[2 * i + 1] = value;
+            }
+            track.write(block,0,2 * count);
+        }
+        track.close();
+    }
+}
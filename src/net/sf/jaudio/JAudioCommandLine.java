@@ -144,6 +144,8 @@ public class JAudioCommandLine {
         String outputName = ((String) data[6]);
         if (outputName.equals("ACE")) {
             outputType = 0;
+        } else if (outputName.equals("JSON")) {
+            outputType = 2;
         } else {
             outputType = 1;
         }
@@ -153,6 +155,9 @@ public class JAudioCommandLine {
         if (outputType == 0) {
             destinationFK = new FileOutputStream(new File(args[2] + "FK.xml"));
             destinationFV = new FileOutputStream(new File(args[2] + "FV.xml"));
+        } else if (outputType == 2) {
+            destinationFK = new FileOutputStream(new File(args[2] + "FK.json"));
+            destinationFV = new FileOutputStream(new File(args[2] + "FV.json"));
         } else {
             destinationFK = new FileOutputStream(new File("definitions.arff"));
             destinationFV = new FileOutputStream(new File(args[2] + ".arff"));
@@ -187,6 +192,8 @@ public class JAudioCommandLine {
                 .toArray(new String[][] {});
         String[][] aggParameters = ((LinkedList<String[]>) data[11])
                 .toArray(new String[][] {});
+        boolean streaming = ((Boolean) data[12]).booleanValue();
+        int workers = ((Integer) data[13]).intValue();
         LinkedList<Aggregator> aggregator = new LinkedList<Aggregator>();
         for (int i = 0; i < aggNames.length; ++i) {
             if (dm.aggregatorMap.containsKey(aggNames[i])) {
@@ -225,6 +232,8 @@ public class JAudioCommandLine {
             b.setOverall(saveOverall);
             b.setRecording(recording_info);
             b.setOutputType(outputType);
+            b.setStreaming(streaming);
+            b.setWorkers(workers);
             b.setFeatures(active, attribute);
             b.setAggregators(aggNames, aggFeatures, aggParameters);
 
@@ -0,0 +1,500 @@
+package net.sf.jaudio;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.sound.sampled.AudioFormat;
+
+import net.sf.jaudio.FeatureExtractor.AudioStreamProcessor;
+import net.sf.jaudio.FeatureExtractor.AudioStreamProcessorPool;
+import net.sf.jaudio.FeatureExtractor.FeatureListener;
+import net.sf.jaudio.FeatureExtractor.Aggregators.AggregatorContainer;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.ChannelSampleSource;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.PCMDecoder;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.ResamplingSampleSource;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.SampleSource;
+
+/**
+ * The server side of a connection that uses JAudioProtocol.
+ * <p>
+ * The thread running the connection only reads frames and copies the bytes
+ * of DATA frames into the buffer of their stream, which always has room for
+ * them because the client may only send as many bytes as it has credit for.
+ * Each stream is analyzed by a task on the workers of the server, which
+ * reads its samples from the buffer and gives credit back to the client as
+ * the buffer empties. Frames written by the tasks are sent whole, one at a
+ * time.
+ * <p>
+ * The socket is read and written through a TimedChannel, so that reading
+ * and writing from different threads do not block each other. A client that
+ * does not read what is sent to it for JAudioServer.READ_TIMEOUT is
+ * disconnected, as is one that sends nothing for as long while none of its
+ * streams is waiting for credit.
+ */
+class JAudioConnection implements Runnable{
+    /**
+     * The number of bytes buffered for each stream, which is also the most
+     * credit that a client can have for a stream.
+     */
+    final static int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    // The number of bytes decoded from a stream buffer at a time
+    private final static int DECODE_BUFFER_SIZE = 16 * 1024;
+
+    private SocketChannel socket;
+    private TimedChannel channel;
+    private DataInputStream input;
+    private DataOutputStream output;
+    private ExecutorService workers;
+    private AudioStreamProcessorPool engines;
+    private String features;
+    private String settings;
+
+    // The streams that have been opened and not yet ended and closed, by ID
+    private final ConcurrentHashMap<Integer,Stream> streams = new ConcurrentHashMap<Integer,Stream>();
+
+    /**
+     * Prepares to serve a connection.
+     *
+     * @param socket The connection.
+     * @param channel Reads and writes the connection, and is closed with it.
+     * @param received Bytes already read from the connection after MULTIPLEX_REQUEST, ready to be read.
+     * @param workers Where to run the analysis of each stream.
+     * @param engines Where to get the processor of each stream from.
+     * @param features The features file.
+     * @param settings The settings file.
+     */
+    JAudioConnection(SocketChannel socket,TimedChannel channel,ByteBuffer received,ExecutorService workers,AudioStreamProcessorPool engines,String features,String settings){
+        this.socket = socket;
+        this.channel = channel;
+        this.input = new DataInputStream(new BufferedInputStream(new ChannelInput(received)));
+        this.output = new DataOutputStream(new BufferedOutputStream(new ChannelOutput(channel)));
+        this.workers = workers;
+        this.engines = engines;
+        this.features = features;
+        this.settings = settings;
+    }
+
+    public void run(){
+        try{
+            int version = input.readInt();
+            synchronized(output){
+                output.writeInt(JAudioProtocol.VERSION);
+                output.flush();
+            }
+            if(version != JAudioProtocol.VERSION){
+                throw new Exception("Protocol version "+version+" is not supported");
+            }
+            byte[] payload = new byte[DECODE_BUFFER_SIZE];
+            while(true){
+                int length;
+                try{
+                    length = input.readInt();
+                }catch(EOFException e){
+                    break;
+                }
+                if((length < JAudioProtocol.FRAME_HEADER_LENGTH) || (length > JAudioProtocol.MAX_FRAME_LENGTH)){
+                    throw new Exception("Invalid frame length "+length);
+                }
+                byte type = input.readByte();
+                int id = input.readInt();
+                int size = length - JAudioProtocol.FRAME_HEADER_LENGTH;
+                if(payload.length < size){
+                    payload = new byte[size];
+                }
+                input.readFully(payload,0,size);
+
+                Stream stream = streams.get(id);
+                if(type == JAudioProtocol.OPEN){
+                    if(stream != null){
+                        throw new Exception("Stream "+id+" is already open");
+                    }
+                    open(id,new DataInputStream(new ByteArrayInputStream(payload,0,size)));
+                }else if(stream == null){
+                    throw new Exception("Stream "+id+" is not open");
+                }else if(type == JAudioProtocol.DATA){
+                    stream.offer(payload,0,size);
+                }else if(type == JAudioProtocol.CLOSE){
+                    stream.closeInput();
+                }else{
+                    throw new Exception("Unknown frame type "+type);
+                }
+            }
+
+            // The client has finished sending, so abandon the streams it did
+            // not close and wait for the others to finish
+            for(Stream stream : streams.values()){
+                stream.abort();
+            }
+            synchronized(streams){
+                while(!streams.isEmpty()){
+                    streams.wait();
+                }
+            }
+        }catch(Exception e){
+            System.out.println("Exception: "+e.getMessage());
+            for(Stream stream : streams.values()){
+                stream.abort();
+            }
+            try{
+                send(JAudioProtocol.ERROR,JAudioProtocol.CONNECTION_STREAM,message(e));
+            }catch(IOException f){
+            }
+        }finally{
+            try{
+                channel.close();
+                socket.close();
+            }catch(IOException e){
+                System.out.println("Exception: "+e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Opens a stream and queues its analysis.
+     */
+    private void open(int id,DataInputStream payload) throws Exception{
+        AudioFormat format = JAudioProtocol.readOpenFormat(payload);
+        String identifier = payload.readUTF();
+        Stream stream = new Stream(id,format,identifier);
+        streams.put(id,stream);
+        if(!PCMDecoder.isSupported(format)){
+            stream.finish();
+            send(JAudioProtocol.ERROR,id,message("Unsupported sample format "+format));
+            return;
+        }
+        try{
+            workers.execute(stream);
+        }catch(RejectedExecutionException e){
+            stream.finish();
+            send(JAudioProtocol.ERROR,id,message("Too many tracks waiting"));
+            return;
+        }
+        sendInt(JAudioProtocol.CREDIT,id,STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Returns whether the client may be waiting for credit for one of its
+     * streams, in which case it is not expected to send anything.
+     */
+    private boolean waitingForCredit(){
+        for(Stream stream : streams.values()){
+            if(stream.waitingForCredit()){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends a frame with the given payload, which may be null.
+     */
+    private void send(byte type,int id,ByteArrayOutputStream payload) throws IOException{
+        synchronized(output){
+            int size = (payload == null) ? 0 : payload.size();
+            output.writeInt(JAudioProtocol.FRAME_HEADER_LENGTH + size);
+            output.writeByte(type);
+            output.writeInt(id);
+            if(payload != null){
+                payload.writeTo(output);
+            }
+            output.flush();
+        }
+    }
+
+    /**
+     * Sends a frame whose payload is one int.
+     */
+    private void sendInt(byte type,int id,int value) throws IOException{
+        synchronized(output){
+            output.writeInt(JAudioProtocol.FRAME_HEADER_LENGTH + 4);
+            output.writeByte(type);
+            output.writeInt(id);
+            output.writeInt(value);
+            output.flush();
+        }
+    }
+
+    /**
+     * Returns the payload of an ERROR frame giving the message of the given
+     * exception.
+     */
+    private static ByteArrayOutputStream message(Exception e) throws IOException{
+        return message(String.valueOf(e.getMessage()));
+    }
+
+    private static ByteArrayOutputStream message(String text) throws IOException{
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        new DataOutputStream(payload).writeUTF(text);
+        return payload;
+    }
+
+    /**
+     * One track of the connection. The bytes of its samples are held in a
+     * ring buffer between the connection thread, which adds them, and the
+     * analysis task, which reads them as a ReadableByteChannel.
+     */
+    private class Stream implements ReadableByteChannel,Runnable,FeatureListener{
+        private int id;
+        private AudioFormat format;
+        private String identifier;
+
+        private byte[] ring = new byte[STREAM_BUFFER_SIZE];
+        private int start = 0;
+        private int count = 0;
+
+        // The number of bytes the client may still send, and the number read
+        // since credit was last given back
+        private int credit = STREAM_BUFFER_SIZE;
+        private int consumed = 0;
+
+        private boolean input_closed = false;
+        private boolean aborted = false;
+        private boolean finished = false;
+
+        // The indices of the features sent in each window
+        private int[] saved;
+
+        // Reused to build the payloads of frames
+        private ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        private DataOutputStream frame_output = new DataOutputStream(frame);
+
+        Stream(int id,AudioFormat format,String identifier){
+            this.id = id;
+            this.format = format;
+            this.identifier = identifier;
+        }
+
+        public void run(){
+            AudioStreamProcessor processor = null;
+            try{
+                processor = engines.acquire(features,settings);
+                SampleSource source = new ChannelSampleSource(this,format,ByteBuffer.allocate(DECODE_BUFFER_SIZE));
+                float sample_rate = (float)processor.getSampleRate();
+                if(format.getSampleRate() != sample_rate){
+                    source = new ResamplingSampleSource(source,format.getSampleRate(),sample_rate,
+                            ResamplingSampleSource.MEDIUM_QUALITY);
+                }
+                frame.reset();
+                processor.process(source,identifier,this);
+                engines.release(processor);
+                processor = null;
+
+                // End the stream before the client learns that it has ended,
+                // so that it cannot reopen it too soon
+                finish();
+                send(JAudioProtocol.OVERALL,id,frame);
+            }catch(Exception e){
+                if(processor != null){
+                    engines.release(processor);
+                }
+                finish();
+                try{
+                    send(JAudioProtocol.ERROR,id,message(e));
+                }catch(IOException f){
+                }
+            }
+        }
+
+        synchronized void offer(byte[] bytes,int offset,int length) throws Exception{
+            if(input_closed){
+                throw new Exception("Data for stream "+id+" after it was closed");
+            }
+            if(length > credit){
+                throw new Exception("Stream "+id+" sent more data than its credit");
+            }
+            credit -= length;
+            if(finished){
+                return;
+            }
+            int end = (start + count) % ring.length;
+            int first = Math.min(length,ring.length - end);
+            System.arraycopy(bytes,offset,ring,end,first);
+            System.arraycopy(bytes,offset + first,ring,0,length - first);
+            count += length;
+            notifyAll();
+        }
+
+        public int read(ByteBuffer destination) throws IOException{
+            int grant = 0;
+            int length;
+            synchronized(this){
+                while((count == 0) && !input_closed){
+                    try{
+                        wait();
+                    }catch(InterruptedException e){
+                        throw new IOException("Interrupted");
+                    }
+                }
+                if(aborted){
+                    throw new IOException("Connection closed before the end of the track");
+                }
+                if(count == 0){
+                    return -1;
+                }
+                length = Math.min(destination.remaining(),count);
+                int first = Math.min(length,ring.length - start);
+                destination.put(ring,start,first);
+                destination.put(ring,0,length - first);
+                start = (start + length) % ring.length;
+                count -= length;
+                consumed += length;
+                if((consumed >= ring.length / 2) && !input_closed){
+                    grant = consumed;
+                    credit += grant;
+                    consumed = 0;
+                }
+            }
+            if(grant > 0){
+                sendInt(JAudioProtocol.CREDIT,id,grant);
+            }
+            return length;
+        }
+
+        public boolean isOpen(){
+            return true;
+        }
+
+        public void close(){
+        }
+
+        /**
+         * Returns whether the client cannot send more samples until it is
+         * given credit. It is not given any more once the stream has ended.
+         */
+        synchronized boolean waitingForCredit(){
+            return !input_closed && !finished && (credit == 0);
+        }
+
+        /**
+         * Marks the end of the samples of the track.
+         */
+        synchronized void closeInput(){
+            input_closed = true;
+            notifyAll();
+            if(finished){
+                remove();
+            }
+        }
+
+        /**
+         * Stops the track, because the connection has ended before the
+         * track was closed.
+         */
+        synchronized void abort(){
+            if(!input_closed){
+                aborted = true;
+                closeInput();
+            }
+        }
+
+        /**
+         * Marks the end of the analysis, discarding any samples still
+         * buffered along with the buffer.
+         */
+        synchronized void finish(){
+            finished = true;
+            count = 0;
+            ring = null;
+            if(input_closed){
+                remove();
+            }
+        }
+
+        private void remove(){
+            streams.remove(id);
+            synchronized(streams){
+                streams.notifyAll();
+            }
+        }
+
+        public void recordingStarted(String identifier, FeatureExtractor[] features, boolean[] save) throws Exception{
+            frame.reset();
+            saved = JAudioProtocol.writeFeatures(frame_output,features,save);
+            send(JAudioProtocol.FEATURES,id,frame);
+        }
+
+        public void windowExtracted(int start_sample, double[][] values) throws Exception{
+            frame.reset();
+            JAudioProtocol.writeWindow(frame_output,start_sample,values,saved);
+            send(JAudioProtocol.WINDOW,id,frame);
+        }
+
+        public void recordingFinished(AggregatorContainer aggregators) throws Exception{
+            frame.reset();
+            JAudioProtocol.writeOverall(frame_output,aggregators);
+        }
+    }
+
+    /**
+     * Reads bytes already received, and then reads from the connection,
+     * waiting for as long as the client is waiting for credit.
+     */
+    private class ChannelInput extends InputStream{
+        private ByteBuffer received;
+
+        ChannelInput(ByteBuffer received){
+            this.received = received;
+        }
+
+        public int read() throws IOException{
+            byte[] b = new byte[1];
+            return (read(b,0,1) < 0) ? -1 : (b[0] & 0xFF);
+        }
+
+        public int read(byte[] b,int offset,int length) throws IOException{
+            if(received.hasRemaining()){
+                length = Math.min(length,received.remaining());
+                received.get(b,offset,length);
+                return length;
+            }
+            while(true){
+                try{
+                    return channel.read(ByteBuffer.wrap(b,offset,length));
+                }catch(SocketTimeoutException e){
+                    if(!waitingForCredit()){
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes to a channel.
+     */
+    private static class ChannelOutput extends OutputStream{
+        private WritableByteChannel channel;
+
+        ChannelOutput(WritableByteChannel channel){
+            this.channel = channel;
+        }
+
+        public void write(int b) throws IOException{
+            write(new byte[]{(byte)b},0,1);
+        }
+
+        public void write(byte[] b,int offset,int length) throws IOException{
+            ByteBuffer buffer = ByteBuffer.wrap(b,offset,length);
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+    }
+}
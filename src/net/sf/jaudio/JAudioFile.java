@@ -16,6 +16,7 @@ import java.lang.ProcessBuilder;
 import java.lang.Process;
 
 import net.sf.jaudio.FeatureExtractor.AudioStreamProcessor;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.SampleSource;
 /**
  * Created with IntelliJ IDEA.
  * User: dmcennis
@@ -34,7 +35,7 @@ public class JAudioFile {
 	String base_prefix =args[2];
 	base_prefix += args[4];
 
-	ProcessBuilder gstreamerBuilder = new ProcessBuilder("gst-launch-1.0", "-q", "filesrc", "location="+args[3], "!", "decodebin", "!", "audioconvert", "!", "audio/x-raw,format=F32LE", "!", "fdsink");
+	ProcessBuilder gstreamerBuilder = new ProcessBuilder("gst-launch-1.0", "-q", "filesrc", "location="+args[3], "!", "decodebin", "!", "audioconvert", "!", "audioresample", "!", "audio/x-raw,format=F32LE,channels=2,rate="+(int)processor.getSampleRate(), "!", "fdsink");
 	Process gstreamer =  gstreamerBuilder.start();
         DataInputStream input = new DataInputStream(gstreamer.getInputStream());
 	ByteBuffer buffer = ByteBuffer.allocateDirect(1000000000);
@@ -74,12 +75,32 @@ public class JAudioFile {
 	if(!okay){
 		throw new Exception("Data is artificially small - probable endianess problem");
 	}
-//	processor.process(samples);
 
 	Date date = new Date();
         String attach = date.toString();
         attach = Pattern.compile("\\s").matcher(attach).replaceAll("_");
         base_prefix += Pattern.compile(":").matcher(attach).replaceAll("-");
-        processor.output(base_prefix);
+        final double[] track = samples;
+        processor.process(new SampleSource(){
+            private int position = 0;
+
+            public int read(double[] buffer, int offset, int length){
+                if(position == track.length){
+                    return -1;
+                }
+                int count = Math.min(length,track.length - position);
+                System.arraycopy(track,position,buffer,offset,count);
+                position += count;
+                return count;
+            }
+
+            public long getLength(){
+                return track.length;
+            }
+
+            public void close(){
+            }
+        },base_prefix);
+	System.out.println("Analysis of "+base_prefix+" finished");
     }
 }
@@ -0,0 +1,244 @@
+package net.sf.jaudio;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+
+import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.Aggregators.AggregatorContainer;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
+
+/**
+ * The multiplexed binary protocol spoken by JAudioServer and JAudioClient,
+ * which carries any number of tracks at once over one connection.
+ * <p>
+ * The client opens the connection by sending MULTIPLEX_REQUEST and VERSION
+ * as ints, and the server answers with its VERSION. After that, both sides
+ * send frames. A frame is an int giving the number of bytes that follow it,
+ * a byte giving its type, an int stream ID chosen by the client, and a
+ * payload that depends on the type. All numbers are big-endian, as written
+ * by DataOutputStream.
+ * <p>
+ * The client sends:
+ * <ul>
+ * <li>OPEN: the sampling rate as a float, the number of channels, the
+ * number of bits per sample, the encoding (ENCODING_SIGNED, ENCODING_UNSIGNED
+ * or ENCODING_FLOAT) as a byte, whether samples are big-endian as a boolean,
+ * and an identifier for the track as writeUTF. The stream ID must not be in
+ * use.</li>
+ * <li>DATA: interleaved sample bytes in the format given by OPEN. Frames do
+ * not need to end on a sample boundary.</li>
+ * <li>CLOSE: no payload. Marks the end of the track's samples. The stream ID
+ * can be used again once the server has ended the stream.</li>
+ * </ul>
+ * The server sends:
+ * <ul>
+ * <li>CREDIT: a number of bytes. The client may only send as many DATA
+ * bytes for a stream as it has been given credit for. The first credit
+ * answers OPEN, and more is given as the samples are analyzed. A stream
+ * whose analysis is slow therefore stops its own client, without holding
+ * up the other streams of the connection.</li>
+ * <li>FEATURES: sent once the analysis of the stream starts, before its
+ * first WINDOW. The number of features saved, and the name and number of
+ * dimensions of each.</li>
+ * <li>WINDOW: the indice of the first sample of a window, then for each
+ * feature the number of values followed by the values as doubles. The
+ * number is 0 for windows that a feature cannot be extracted from.</li>
+ * <li>OVERALL: sent after the last window, and ends the stream. The number
+ * of overall features, then for each its name, number of values and
+ * values.</li>
+ * <li>ERROR: a message as writeUTF. Ends the stream, or the whole connection
+ * if the stream ID is CONNECTION_STREAM.</li>
+ * </ul>
+ * The server ends a connection with an ERROR if the client sends nothing for
+ * JAudioServer.READ_TIMEOUT milliseconds while it has credit for all of its
+ * open streams, and closes it if the client does not read what is sent to it
+ * for as long.
+ */
+public class JAudioProtocol {
+    /**
+     * Sent by a client in place of a track ID to start a multiplexed
+     * connection.
+     */
+    public final static int MULTIPLEX_REQUEST = 0x4A41554D;
+
+    /**
+     * The version of the protocol.
+     */
+    public final static int VERSION = 1;
+
+    /**
+     * The largest number of bytes that can follow the length of a frame.
+     */
+    public final static int MAX_FRAME_LENGTH = 1024 * 1024;
+
+    /**
+     * The number of bytes in a frame between its length and its payload.
+     */
+    public final static int FRAME_HEADER_LENGTH = 5;
+
+    /**
+     * The stream ID of errors about the whole connection.
+     */
+    public final static int CONNECTION_STREAM = -1;
+
+    public final static byte OPEN = 1;
+    public final static byte DATA = 2;
+    public final static byte CLOSE = 3;
+    public final static byte FEATURES = 4;
+    public final static byte CREDIT = 5;
+    public final static byte WINDOW = 6;
+    public final static byte OVERALL = 7;
+    public final static byte ERROR = 8;
+
+    public final static byte ENCODING_SIGNED = 0;
+    public final static byte ENCODING_UNSIGNED = 1;
+    public final static byte ENCODING_FLOAT = 2;
+
+    /**
+     * Writes the payload of an OPEN frame.
+     *
+     * @param output Where to write the payload.
+     * @param format The format of the samples of the track.
+     * @param identifier The string identifying the track.
+     * @throws IOException if the payload cannot be written.
+     */
+    public static void writeOpen(DataOutputStream output, AudioFormat format, String identifier) throws IOException{
+        output.writeFloat(format.getSampleRate());
+        output.writeInt(format.getChannels());
+        output.writeInt(format.getSampleSizeInBits());
+        if(format.getEncoding() == AudioFormat.Encoding.PCM_FLOAT){
+            output.writeByte(ENCODING_FLOAT);
+        }else if(format.getEncoding() == AudioFormat.Encoding.PCM_UNSIGNED){
+            output.writeByte(ENCODING_UNSIGNED);
+        }else{
+            output.writeByte(ENCODING_SIGNED);
+        }
+        output.writeBoolean(format.isBigEndian());
+        output.writeUTF(identifier);
+    }
+
+    /**
+     * Reads the format of the samples from the payload of an OPEN frame,
+     * leaving the identifier to be read with readUTF.
+     *
+     * @param input The payload.
+     * @return The format of the samples of the track.
+     * @throws Exception if the payload cannot be read or the encoding is unknown.
+     */
+    public static AudioFormat readOpenFormat(DataInputStream input) throws Exception{
+        float sample_rate = input.readFloat();
+        int channels = input.readInt();
+        int bits = input.readInt();
+        byte encoding = input.readByte();
+        boolean big_endian = input.readBoolean();
+        AudioFormat.Encoding type;
+        if(encoding == ENCODING_SIGNED){
+            type = AudioFormat.Encoding.PCM_SIGNED;
+        }else if(encoding == ENCODING_UNSIGNED){
+            type = AudioFormat.Encoding.PCM_UNSIGNED;
+        }else if(encoding == ENCODING_FLOAT){
+            type = AudioFormat.Encoding.PCM_FLOAT;
+        }else{
+            throw new Exception("Unknown encoding "+encoding);
+        }
+        return new AudioFormat(type, sample_rate, bits, channels, channels * (bits / 8),
+                sample_rate, big_endian);
+    }
+
+    /**
+     * Writes the number of features saved, and the name and number of
+     * dimensions of each.
+     *
+     * @param output Where to write the definitions.
+     * @param features The features extracted from each window.
+     * @param save Which of the features are saved.
+     * @return The indices in features of the features saved.
+     * @throws IOException if the definitions cannot be written.
+     */
+    public static int[] writeFeatures(DataOutputStream output, FeatureExtractor[] features, boolean[] save) throws IOException{
+        int count = 0;
+        for(int i=0;i<save.length;++i){
+            if(save[i]){
+                count++;
+            }
+        }
+        int[] saved = new int[count];
+        output.writeInt(count);
+        count = 0;
+        for(int i=0;i<save.length;++i){
+            if(save[i]){
+                saved[count++] = i;
+                FeatureDefinition definition = features[i].getFeatureDefinition();
+                output.writeUTF(definition.name);
+                output.writeInt(definition.dimensions);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Writes the first sample and the feature values of a window.
+     *
+     * @param output Where to write the window.
+     * @param start_sample The indice of the first sample of the window.
+     * @param values The values of all features extracted from the window.
+     * @param saved The indices in values of the features saved.
+     * @throws IOException if the window cannot be written.
+     */
+    public static void writeWindow(DataOutputStream output, int start_sample, double[][] values, int[] saved) throws IOException{
+        output.writeInt(start_sample);
+        for(int i=0;i<saved.length;++i){
+            writeValues(output,values[saved[i]]);
+        }
+    }
+
+    /**
+     * Writes the number of overall features, and the name and values of
+     * each.
+     *
+     * @param output Where to write the values.
+     * @param aggregators The aggregators holding the values, or null if there are none.
+     * @throws IOException if the values cannot be written.
+     */
+    public static void writeOverall(DataOutputStream output, AggregatorContainer aggregators) throws IOException{
+        if(aggregators == null){
+            output.writeInt(0);
+            return;
+        }
+        FeatureDefinition[] definitions = aggregators.getFeatureDefinitions();
+        double[][] results = aggregators.getResults();
+        output.writeInt(results.length);
+        for(int i=0;i<results.length;++i){
+            output.writeUTF(definitions[i].name);
+            writeValues(output,results[i]);
+        }
+    }
+
+    /**
+     * Reads the values written by writeValues.
+     *
+     * @param input Where to read the values.
+     * @return The values, which are empty if null was written.
+     * @throws IOException if the values cannot be read.
+     */
+    public static double[] readValues(DataInputStream input) throws IOException{
+        double[] values = new double[input.readInt()];
+        for(int i=0;i<values.length;++i){
+            values[i] = input.readDouble();
+        }
+        return values;
+    }
+
+    private static void writeValues(DataOutputStream output, double[] values) throws IOException{
+        if(values == null){
+            output.writeInt(0);
+            return;
+        }
+        output.writeInt(values.length);
+        for(int i=0;i<values.length;++i){
+            output.writeDouble(values[i]);
+        }
+    }
+}
@@ -1,16 +1,32 @@
 package net.sf.jaudio;
-import java.io.DataInputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
-import java.text.DateFormat;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+
 import net.sf.jaudio.FeatureExtractor.AudioStreamProcessor;
+import net.sf.jaudio.FeatureExtractor.AudioStreamProcessorPool;
+import net.sf.jaudio.FeatureExtractor.FeatureListener;
+import net.sf.jaudio.FeatureExtractor.Aggregators.AggregatorContainer;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.ChannelSampleSource;
+import net.sf.jaudio.FeatureExtractor.jAudioTools.SampleSource;
 
 /**
  * Created with IntelliJ IDEA.
@@ -18,95 +34,380 @@ import net.sf.jaudio.FeatureExtractor.AudioStreamProcessor;
  * Date: 9/26/13
  * Time: 9:19 AM
  * To change this template use File | Settings | File Templates.
+ * <p>
+ * Listens for tracks on PORT. A client sends an int track ID followed by
+ * interleaved big-endian float stereo samples, and closes the connection at
+ * the end of the track. Features are extracted while the samples arrive.
+ * <p>
+ * A client that sends STREAMING_REQUEST before the track ID gets the
+ * features back on the same connection instead of having them saved to
+ * files. All numbers are big-endian, as written by DataOutputStream. The
+ * server first sends the number of features saved, and the name (as
+ * writeUTF) and number of dimensions of each. Then, as soon as each window
+ * has been extracted, it sends WINDOW_RECORD, the indice of the first sample
+ * of the window, and for each feature the number of values followed by the
+ * values as doubles. The number is 0 for windows that a feature cannot be
+ * extracted from. At the end of the track, it sends OVERALL_RECORD, the
+ * number of overall features, and for each its name, number of values and
+ * values, or ERROR_RECORD and a message if the track could not be
+ * processed. The client must read the features while it is still sending
+ * samples, otherwise both ends can end up waiting for the other to read.
+ * <p>
+ * A client that sends JAudioProtocol.MULTIPLEX_REQUEST instead of a track
+ * ID can send any number of tracks, in any sample format, over the same
+ * connection, as described by JAudioProtocol. JAudioClient implements the
+ * client side. Up to MAX_MULTIPLEXED_CONNECTIONS such connections are read
+ * at once, further ones wait in a queue of up to MAX_QUEUED_CONNECTIONS, and
+ * are closed when the queue is full. Their tracks are processed by the same
+ * workers as other tracks.
+ * <p>
+ * Arguments are the features file, the settings file, the prefix of the
+ * output files and, optionally, the number of tracks to process at once
+ * (the number of processors by default). Connections beyond that number wait
+ * in a queue of up to MAX_QUEUED_CONNECTIONS, and are closed when the queue
+ * is full. Each track being processed reads into one of a fixed set of
+ * BUFFER_SIZE buffers, so memory use does not depend on the length of the
+ * tracks.
+ * <p>
+ * A connection that sends nothing for READ_TIMEOUT milliseconds, or does
+ * not read what is sent to it for as long, is closed, so that idle and
+ * stalled clients do not keep tracks from being processed.
+ * <p>
+ * The features and settings are loaded into one AudioStreamProcessor per
+ * track processed at once, which are warmed up with synthetic audio before
+ * the server starts listening and then reused from track to track. Editing
+ * either file while the server runs takes effect from the next track.
  */
 public class JAudioServer {
     public final static int PORT = 3759;
 
+    /**
+     * The number of accepted connections, and tracks of multiplexed
+     * connections, that can wait for a track being processed to finish.
+     */
+    public final static int MAX_QUEUED_CONNECTIONS = 64;
+
+    /**
+     * The number of multiplexed connections that can be read at once.
+     */
+    public final static int MAX_MULTIPLEXED_CONNECTIONS = 64;
+
+    /**
+     * The size in bytes of the buffer that each track is read into.
+     */
+    public final static int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The time in milliseconds that a connection may go without sending
+     * anything, or without reading what is sent to it, before it is closed.
+     */
+    public final static int READ_TIMEOUT = 30 * 1000;
+
+    /**
+     * The most bytes of a streaming track that are read and discarded after
+     * an error, so that the client sees the error rather than a reset
+     * connection.
+     */
+    public final static int MAX_DRAINED = 16 * BUFFER_SIZE;
+
+    /**
+     * Sent by a client before the track ID to get the features back on the
+     * connection.
+     */
+    public final static int STREAMING_REQUEST = 0x4A415346;
+
+    /**
+     * Starts the values of a window.
+     */
+    public final static byte WINDOW_RECORD = 1;
+
+    /**
+     * Starts the overall values of the track, after the last window.
+     */
+    public final static byte OVERALL_RECORD = 2;
+
+    /**
+     * Starts the message of an error that stopped the track.
+     */
+    public final static byte ERROR_RECORD = 3;
+
+    // The format of the samples sent by clients
+    private final static AudioFormat FORMAT = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT,
+            AudioSystem.NOT_SPECIFIED, 32, 2, 8, AudioSystem.NOT_SPECIFIED, true);
+
+    // The fewest samples a track can have, one window of the default size
+    private final static int MIN_SAMPLES = 512;
+
     public static AudioStreamProcessor processor;
 
-    public static void main(String[] args){
-        while(true){
-            try  {
-               ServerSocket server = new ServerSocket(PORT);
-               Thread task = new JAudioServerThread(server.accept(),args[0],args[1],args[2]);
-               task.start();
-            }catch (IOException e){
+    public static void main(String[] args) throws IOException{
+        int max_connections = Runtime.getRuntime().availableProcessors();
+        if(args.length > 3){
+            max_connections = Integer.parseInt(args[3]);
+        }
 
+        // Allocate the buffers once and share them between connections
+        BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<ByteBuffer>(max_connections);
+        for(int i=0;i<max_connections;++i){
+            buffers.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+        // Load and warm up the processors before the first track arrives
+        AudioStreamProcessorPool engines = new AudioStreamProcessorPool(max_connections);
+        try{
+            long start = System.currentTimeMillis();
+            engines.prewarm(args[0],args[1],max_connections);
+            System.out.println("Prepared "+max_connections+" processors in "
+                    +(System.currentTimeMillis() - start)+" ms");
+        }catch(Exception e){
+            System.out.println("Exception: "+e.getMessage());
+        }
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(max_connections, max_connections,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED_CONNECTIONS));
+        ThreadPoolExecutor connections = new ThreadPoolExecutor(MAX_MULTIPLEXED_CONNECTIONS, MAX_MULTIPLEXED_CONNECTIONS,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED_CONNECTIONS));
+
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().setReuseAddress(true);
+        server.socket().bind(new InetSocketAddress(PORT));
+        while(true){
+            SocketChannel client = null;
+            try{
+                client = server.accept();
+                workers.execute(new JAudioServerTask(client,buffers,workers,connections,engines,args[0],args[1],args[2]));
+            }catch(RejectedExecutionException e){
+                System.out.println("Too many connections waiting - closing "+client.socket().getRemoteSocketAddress());
+                client.close();
+            }catch(IOException e){
+                System.out.println("Exception: "+e.getMessage());
             }
         }
     }
 
-    private static class JAudioServerThread extends Thread{
-        private Socket socket;
+    private static class JAudioServerTask implements Runnable{
+        private SocketChannel socket;
+        private BlockingQueue<ByteBuffer> buffers;
+        private ExecutorService workers;
+        private ExecutorService connections;
+        private AudioStreamProcessorPool engines;
         private String features;
         private String settings;
         private String base_prefix;
-        private AudioStreamProcessor processor;
 
-        JAudioServerThread(Socket s,String features,String settings,String prefix){
+        JAudioServerTask(SocketChannel s,BlockingQueue<ByteBuffer> buffers,ExecutorService workers,ExecutorService connections,AudioStreamProcessorPool engines,String features,String settings,String prefix){
             socket = s;
+            this.buffers = buffers;
+            this.workers = workers;
+            this.connections = connections;
+            this.engines = engines;
             this.features = features;
             this.settings = settings;
             base_prefix=prefix;
         }
 
-        @Override
         public void run() {
+            TimedChannel channel = null;
+            ByteBuffer buffer = null;
+            AudioStreamProcessor processor = null;
+            boolean multiplexed = false;
             try{
-                processor = new AudioStreamProcessor(features,settings);
-                DataInputStream input = new DataInputStream(socket.getInputStream());
-                java.nio.ByteBuffer buffer = ByteBuffer.allocateDirect(1000000000);
-		int trackID  = input.readInt();
-		base_prefix += Integer.toString(trackID);
-                int total_read = 0;
-                int this_read = 0;
-                byte[] buff = new byte[1000000];
-                while(this_read > -1 ){
-			this_read = input.read(buff);
-			if(this_read > 0){
-                    		if(this_read + total_read < 1000000000)
-                        		buffer.put(buff,0,this_read);
-                    	}
-			total_read += this_read;
+                channel = new TimedChannel(socket,READ_TIMEOUT);
+
+                // There is one buffer for each worker, so one is always free
+                buffer = buffers.take();
+                buffer.clear();
+                buffer.order(ByteOrder.BIG_ENDIAN);
+
+                // Read the track ID, keeping any samples that follow it
+                int trackID = readInt(channel,buffer);
+                if(trackID == JAudioProtocol.MULTIPLEX_REQUEST){
+                    // Serve the connection on a thread of its own pool, so that
+                    // it does not hold on to a worker that its tracks may need
+                    buffer.flip();
+                    ByteBuffer received = ByteBuffer.allocate(buffer.remaining());
+                    received.put(buffer);
+                    received.flip();
+                    try{
+                        connections.execute(new JAudioConnection(socket,channel,received,workers,engines,features,settings));
+                        multiplexed = true;
+                    }catch(RejectedExecutionException e){
+                        System.out.println("Too many connections waiting - closing "+socket.socket().getRemoteSocketAddress());
+                    }
+                    return;
                 }
-                input.close();
-                socket.close();
-		buffer.flip();
-                FloatBuffer content = buffer.asFloatBuffer();
-                double[] samples = new double[total_read/8];
-		for(int i=0;i<samples.length;++i){
-			samples[i] = (content.get()+content.get())/2.0;
-		}
-                content = null;
-		buffer = null;
-	        double max=0.0;
-	        double min=0.0;
-	        boolean okay = false;
-	        if(samples.length < 512){
-			throw new Exception("Data is less than one window in size (512 samples)");
-		}
-		for(int i=0;i<samples.length;++i){
-	                if((samples[i] > 1.0) || (samples[i] < -1.0)){
-                        throw new Exception("Badly formatted data "+ samples[i]+" at "+i);
-	                }
-	                if((samples[i] > 0.7)){
-	                        okay = true;
-	                }
-	        }
-       		if(!okay){
-        	        throw new Exception("Data is artificially small - probable endianess problem");
-        	}
-
-//		processor.process(samples);
+                processor = engines.acquire(features,settings);
+                boolean streaming = trackID == STREAMING_REQUEST;
+                if(streaming){
+                    trackID = readInt(channel,buffer);
+                }
+                CheckedSampleSource source = new CheckedSampleSource(
+                        new ChannelSampleSource(channel,FORMAT,buffer));
+
+                if(streaming){
+                    DataOutputStream output = new DataOutputStream(
+                            new BufferedOutputStream(Channels.newOutputStream(channel)));
+                    try{
+                        processor.process(source,Integer.toString(trackID),
+                                new StreamingListener(output,source));
+                    }catch(Exception e){
+                        // Send the error and let the client finish sending
+                        // before closing, so that the error is not lost when
+                        // the connection is reset, unless it sends too much or
+                        // too slowly
+                        try{
+                            output.writeByte(ERROR_RECORD);
+                            output.writeUTF(String.valueOf(e.getMessage()));
+                            output.flush();
+                            socket.socket().shutdownOutput();
+                            buffer.clear();
+                            int drained = 0;
+                            int read;
+                            while((drained < MAX_DRAINED) && ((read = channel.read(buffer)) >= 0)){
+                                drained += read;
+                                buffer.clear();
+                            }
+                        }catch(IOException f){
+                        }
+                        throw e;
+                    }
+                    return;
+                }
+
                 Date date = new Date();
                 String attach = date.toString();
                 attach = Pattern.compile("\\s").matcher(attach).replaceAll("_");
-                base_prefix += Pattern.compile(":").matcher(attach).replaceAll("-");
-                processor.output(base_prefix);
+                String prefix = base_prefix + Integer.toString(trackID)
+                        + Pattern.compile(":").matcher(attach).replaceAll("-");
+
+                processor.process(source,prefix);
+                System.out.println("Analysis of "+prefix+" finished");
             }catch(Exception e){
-		System.out.println("Exception: "+e.getMessage());
+                System.out.println("Exception: "+e.getMessage());
+            }finally{
+                try{
+                    if(!multiplexed){
+                        if(channel != null){
+                            channel.close();
+                        }
+                        socket.close();
+                    }
+                }catch(IOException e){
+                    System.out.println("Exception: "+e.getMessage());
+                }
+                if(buffer != null){
+                    buffers.add(buffer);
+                }
+                if(processor != null){
+                    engines.release(processor);
+                }
+            }
+        }
+
+        /**
+         * Reads a big-endian int from the start of the buffer, reading from
+         * the connection until it has arrived, and removes it from the buffer.
+         */
+        private int readInt(TimedChannel channel,ByteBuffer buffer) throws Exception{
+            while(buffer.position() < 4){
+                if(channel.read(buffer) < 0){
+                    throw new Exception("Connection closed before the track ID was sent");
+                }
             }
+            int value = buffer.getInt(0);
+            buffer.flip();
+            buffer.position(4);
+            buffer.compact();
+            return value;
+        }
+    }
+
+    /**
+     * Sends the features of a track back to the client as they are extracted,
+     * flushing after each window.
+     */
+    private static class StreamingListener implements FeatureListener{
+        private DataOutputStream output;
+        private CheckedSampleSource source;
+        private int[] saved;
+
+        StreamingListener(DataOutputStream output,CheckedSampleSource source){
+            this.output = output;
+            this.source = source;
+        }
+
+        public void recordingStarted(String identifier, FeatureExtractor[] features, boolean[] save) throws Exception{
+            saved = JAudioProtocol.writeFeatures(output,features,save);
+            output.flush();
+        }
+
+        public void windowExtracted(int start_sample, double[][] values) throws Exception{
+            output.writeByte(WINDOW_RECORD);
+            JAudioProtocol.writeWindow(output,start_sample,values,saved);
+            output.flush();
+        }
+
+        public void recordingFinished(AggregatorContainer aggregators) throws Exception{
+            source.check();
+            output.writeByte(OVERALL_RECORD);
+            JAudioProtocol.writeOverall(output,aggregators);
+            output.flush();
         }
+    }
 
+    /**
+     * Checks the samples of a track as they are read. Samples outside -1 to
+     * +1 stop the track immediately. Whether the track was long enough and
+     * loud enough to have been sent with the right byte order can only be
+     * checked once it has all been read, so reaching the end of a track that
+     * fails these checks stops it before its last window and its overall
+     * values are extracted.
+     */
+    private static class CheckedSampleSource implements SampleSource{
+        private SampleSource source;
+        private long samples = 0;
+        private boolean okay = false;
+
+        CheckedSampleSource(SampleSource source){
+            this.source = source;
+        }
+
+        public int read(double[] buffer, int offset, int length) throws Exception{
+            int read = source.read(buffer,offset,length);
+            if(read < 0){
+                check();
+            }
+            for(int i=offset;i<offset+read;++i){
+                if((buffer[i] > 1.0) || (buffer[i] < -1.0)){
+                    throw new Exception("Badly formatted data "+ buffer[i]+" at "+(samples+i-offset));
+                }
+                if(buffer[i] > 0.7){
+                    okay = true;
+                }
+            }
+            if(read > 0){
+                samples += read;
+            }
+            return read;
+        }
+
+        public long getLength(){
+            return source.getLength();
+        }
+
+        public void close() throws Exception{
+            source.close();
+        }
+
+        /**
+         * Throws an exception if the whole track was too short or too quiet.
+         */
+        void check() throws Exception{
+            if(samples < MIN_SAMPLES){
+                throw new Exception("Data is less than one window in size ("+MIN_SAMPLES+" samples)");
+            }
+            if(!okay){
+                throw new Exception("Data is artificially small - probable endianess problem");
+            }
+        }
     }
 }
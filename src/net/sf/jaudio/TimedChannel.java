@@ -0,0 +1,112 @@
+package net.sf.jaudio;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Reads and writes a socket channel, giving up with a SocketTimeoutException
+ * when a read or a write makes no progress for a given time, so that an idle
+ * or stalled client cannot hold on to a thread of the server forever.
+ * <p>
+ * The socket channel is put in non-blocking mode, and reads and writes wait
+ * for it on a selector each, so one thread can read while another writes.
+ * A read that times out can be tried again, but a write that times out
+ * closes the socket channel, since the other end may have received only
+ * part of what was written.
+ */
+class TimedChannel implements ByteChannel{
+    private SocketChannel channel;
+    private long timeout;
+    private Selector read_selector;
+    private Selector write_selector;
+
+    /**
+     * Prepares to read and write a connection.
+     *
+     * @param channel The connection.
+     * @param timeout The time in milliseconds that a read or write may wait.
+     * @throws IOException if the selectors cannot be opened.
+     */
+    TimedChannel(SocketChannel channel,long timeout) throws IOException{
+        this.channel = channel;
+        this.timeout = timeout;
+        read_selector = Selector.open();
+        try{
+            write_selector = Selector.open();
+            channel.configureBlocking(false);
+            channel.register(read_selector,SelectionKey.OP_READ);
+            channel.register(write_selector,SelectionKey.OP_WRITE);
+        }catch(IOException e){
+            close();
+            throw e;
+        }
+    }
+
+    public int read(ByteBuffer destination) throws IOException{
+        synchronized(read_selector){
+            long deadline = System.currentTimeMillis() + timeout;
+            while(true){
+                int read = channel.read(destination);
+                if((read != 0) || !destination.hasRemaining()){
+                    return read;
+                }
+                await(read_selector,deadline,"Nothing received for "+timeout+" ms");
+            }
+        }
+    }
+
+    public int write(ByteBuffer source) throws IOException{
+        synchronized(write_selector){
+            int written = 0;
+            long deadline = System.currentTimeMillis() + timeout;
+            while(source.hasRemaining()){
+                int count = channel.write(source);
+                if(count > 0){
+                    written += count;
+                    deadline = System.currentTimeMillis() + timeout;
+                }else{
+                    try{
+                        await(write_selector,deadline,"Nothing sent for "+timeout+" ms");
+                    }catch(SocketTimeoutException e){
+                        channel.close();
+                        throw e;
+                    }
+                }
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Waits until the channel is ready for the selector, throwing an
+     * exception with the given message if the deadline passes first.
+     */
+    private void await(Selector selector,long deadline,String message) throws IOException{
+        long remaining = deadline - System.currentTimeMillis();
+        if(remaining <= 0){
+            throw new SocketTimeoutException(message);
+        }
+        selector.select(remaining);
+        selector.selectedKeys().clear();
+    }
+
+    public boolean isOpen(){
+        return channel.isOpen();
+    }
+
+    /**
+     * Closes the selectors, but not the socket channel.
+     */
+    public void close() throws IOException{
+        if(read_selector != null){
+            read_selector.close();
+        }
+        if(write_selector != null){
+            write_selector.close();
+        }
+    }
+}
@@ -44,6 +44,10 @@ Please visit http://ocvolume.sourceforge.net.
 
 package org.oc.ocvolume.dsp;
 
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.jaudio.FeatureExtractor.jAudioTools.FFTPlan;
+
 /**
  * last updated on June 15, 2002<br>
  * <b>description:</b> feature extraction class used to extract mel-frequency cepstral coefficients from input signal<br>
@@ -103,6 +107,10 @@ public class featureExtraction{
      * Fast Fourier Transformation
      */
     protected fft FFT;
+    /**
+     * MFCC engines built so far, keyed by sampling rate, frame size and number of cepstra
+     */
+    private static final ConcurrentHashMap<String, mfccEngine> engines = new ConcurrentHashMap<String, mfccEngine>();
     /**
      * takes a speech signal and returns the Mel-Frequency Cepstral Coefficient (MFCC)<br>
      * calls: fft<br>
@@ -137,21 +145,9 @@ public class featureExtraction{
             // Magnitude Spectrum
             double bin[] = magnitudeSpectrum(frames[k]);
 
-            // Mel Filtering
-            int cbin[] = fftBinIndices(samplingRate,512);
-            // get Mel Filterbank
-            double fbank[] = melFilter(bin, cbin);
-
-            // Non-linear transformation
-            double f[] = nonLinearTransformation(fbank);
-
-            // Cepstral coefficients
-            double cepc[] = cepCoefficients(f);
-
-            // Add resulting MFCC to array
-            for (int i = 0; i < numCepstra; i++){
-                MFCC[k][i] = cepc[i];
-            }
+            // Mel Filtering, Non-linear transformation and Cepstral coefficients,
+            // with the resulting MFCC stored directly in the array
+            getEngine(samplingRate,512).process(bin, MFCC[k]);
         }
 
         return MFCC;
@@ -179,6 +175,27 @@ public class featureExtraction{
         
         return cbin;
     }
+    /**
+     * returns the MFCC engine for the given sampling rate, frame size and the current number of
+     * cepstra, building its filterbank and DCT tables the first time that they are needed.
+     * The engine performs the same calculations as melFilter, nonLinearTransformation and
+     * cepCoefficients with the bin indices of fftBinIndices.<br>
+     * calls: mfccEngine<br>
+     * called by: featureExtraction
+     * @param samplingRate sampling rate of the signal
+     * @param frameSize frame size passed to fftBinIndices
+     * @return the MFCC engine
+     */
+    public mfccEngine getEngine(double samplingRate,int frameSize){
+        String key = samplingRate + " " + frameSize + " " + numCepstra;
+        mfccEngine engine = engines.get(key);
+        if (engine == null){
+            engine = new mfccEngine(fftBinIndices(samplingRate, frameSize), numMelFilters, numCepstra);
+            mfccEngine existing = engines.putIfAbsent(key, engine);
+            if (existing != null) engine = existing;
+        }
+        return engine;
+    }
     /**
      * Calculate the output of the mel filter<br>
      * calls: none
@@ -301,6 +318,27 @@ public class featureExtraction{
     public double[] magnitudeSpectrum(double frame[]){
         double magSpectrum[] = new double[frame.length];
         
+        // frames whose length is a power of 2 are transformed with a real-input
+        // FFT of half the size. Only the left side of the spectrum is calculated,
+        // as the right side is its mirror image.
+        int numPoints = frame.length;
+        if (numPoints >= 4 && (numPoints & (numPoints - 1)) == 0){
+            double real[] = new double[numPoints / 2 + 1];
+            double imag[] = new double[numPoints / 2 + 1];
+            try {
+                FFTPlan.getPlan(numPoints, false).transformReal(frame, real, imag);
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            for (int k = 0; k <= numPoints / 2; k++){
+                magSpectrum[k] = Math.pow(real[k] * real[k] + imag[k] * imag[k], 0.5);
+            }
+            for (int k = numPoints / 2 + 1; k < numPoints; k++){
+                magSpectrum[k] = magSpectrum[numPoints - k];
+            }
+            return magSpectrum;
+        }
+        
         // calculate FFT for current frame
         fft.computeFFT( frame );
         
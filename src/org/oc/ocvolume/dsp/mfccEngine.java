@@ -0,0 +1,147 @@
+/*
+ * @(#)mfccEngine.java	1.0	October 18, 2026.
+ */
+
+package org.oc.ocvolume.dsp;
+
+/**
+ * <b>description:</b> precomputed tables for calculating mel-frequency cepstral coefficients from a magnitude spectrum.
+ * The mel filterbank is stored as a sparse weight matrix and the DCT as a dense table, so each frame only needs
+ * two small matrix-vector products and a logarithm per filter. The results are identical to those of
+ * featureExtraction's melFilter, nonLinearTransformation and cepCoefficients methods.<br>
+ * Engines are immutable and are shared between threads. They are obtained from featureExtraction.getEngine,
+ * which builds one per sampling rate, frame size and number of cepstra.<br>
+ * <b>calls:</b> none<br>
+ * <b>called by:</b> featureExtraction<br>
+ * <b>input:</b> magnitude spectrum<br>
+ * <b>output:</b> mel-frequency cepstral coefficients
+ */
+public final class mfccEngine{
+    /**
+     * for each mel filter, the spectrum bins of its rising edge and their weights
+     */
+    private final int risingBins[][];
+    private final double risingWeights[][];
+    /**
+     * for each mel filter, the spectrum bins of its falling edge and their weights
+     */
+    private final int fallingBins[][];
+    private final double fallingWeights[][];
+    /**
+     * DCT-II table, indexed by cepstrum and then by mel filter
+     */
+    private final double dct[][];
+
+    /**
+     * builds the filterbank and DCT tables<br>
+     * calls: none<br>
+     * called by: featureExtraction
+     * @param cbin FFT bin indices of the filter edges, as returned by featureExtraction.fftBinIndices
+     * @param numMelFilters number of mel filters
+     * @param numCepstra number of cepstral coefficients
+     */
+    mfccEngine(int cbin[], int numMelFilters, int numCepstra){
+        risingBins = new int[numMelFilters][];
+        risingWeights = new double[numMelFilters][];
+        fallingBins = new int[numMelFilters][];
+        fallingWeights = new double[numMelFilters][];
+
+        // the weights follow the integer arithmetic of featureExtraction.melFilter,
+        // and bins with a weight of zero are left out
+        for (int k = 1; k <= numMelFilters; k++){
+            int count = 0;
+            for (int i = cbin[k - 1]; i <= cbin[k]; i++){
+                if ((i - cbin[k - 1] + 1) / (cbin[k] - cbin[k-1] + 1) != 0) count++;
+            }
+            risingBins[k - 1] = new int[count];
+            risingWeights[k - 1] = new double[count];
+            count = 0;
+            for (int i = cbin[k - 1]; i <= cbin[k]; i++){
+                int weight = (i - cbin[k - 1] + 1) / (cbin[k] - cbin[k-1] + 1);
+                if (weight != 0){
+                    risingBins[k - 1][count] = i;
+                    risingWeights[k - 1][count] = weight;
+                    count++;
+                }
+            }
+
+            count = 0;
+            for (int i = cbin[k] + 1; i <= cbin[k + 1]; i++){
+                if (1 - ((i - cbin[k]) / (cbin[k + 1] - cbin[k] + 1)) != 0) count++;
+            }
+            fallingBins[k - 1] = new int[count];
+            fallingWeights[k - 1] = new double[count];
+            count = 0;
+            for (int i = cbin[k] + 1; i <= cbin[k + 1]; i++){
+                int weight = 1 - ((i - cbin[k]) / (cbin[k + 1] - cbin[k] + 1));
+                if (weight != 0){
+                    fallingBins[k - 1][count] = i;
+                    fallingWeights[k - 1][count] = weight;
+                    count++;
+                }
+            }
+        }
+
+        dct = new double[numCepstra][numMelFilters];
+        for (int i = 0; i < numCepstra; i++){
+            for (int j = 1; j <= numMelFilters; j++){
+                dct[i][j - 1] = Math.cos(Math.PI * i / numMelFilters * (j - 0.5));
+            }
+        }
+    }
+
+    /**
+     * returns the number of cepstral coefficients calculated by this engine<br>
+     * calls: none<br>
+     * called by: featureExtraction
+     * @return number of cepstral coefficients
+     */
+    public int getNumCepstra(){
+        return dct.length;
+    }
+
+    /**
+     * calculates the mel-frequency cepstral coefficients of a magnitude spectrum<br>
+     * calls: none<br>
+     * called by: featureExtraction
+     * @param bin magnitude spectrum
+     * @param cepc filled with the cepstral coefficients. Must have a length of getNumCepstra()
+     * @return the cepc parameter
+     */
+    public double[] process(double bin[], double cepc[]){
+        final double FLOOR = -50;
+
+        // mel filtering followed by the non-linear transformation
+        double f[] = new double[risingBins.length];
+        for (int k = 0; k < f.length; k++){
+            double num1 = 0, num2 = 0;
+
+            int bins[] = risingBins[k];
+            double weights[] = risingWeights[k];
+            for (int i = 0; i < bins.length; i++){
+                num1 += weights[i] * bin[bins[i]];
+            }
+
+            bins = fallingBins[k];
+            weights = fallingWeights[k];
+            for (int i = 0; i < bins.length; i++){
+                num2 += weights[i] * bin[bins[i]];
+            }
+
+            f[k] = Math.log(num1 + num2);
+            if (f[k] < FLOOR) f[k] = FLOOR;
+        }
+
+        // cepstral coefficients
+        for (int i = 0; i < cepc.length; i++){
+            double row[] = dct[i];
+            double sum = 0;
+            for (int j = 0; j < row.length; j++){
+                sum += f[j] * row[j];
+            }
+            cepc[i] = sum;
+        }
+
+        return cepc;
+    }
+}
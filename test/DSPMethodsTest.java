@@ -0,0 +1,109 @@
+/**
+ *
+ */
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that the FFT auto-correlation gives the same values as the direct
+ * one up to rounding error, and that getAutoCorrelation agrees with both.
+ */
+public class DSPMethodsTest extends TestCase {
+
+	Random random;
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(DSPMethodsTest.class);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		random = new Random(11);
+	}
+
+	double[] noise(int length) {
+		double[] signal = new double[length];
+		for (int i = 0; i < length; ++i) {
+			signal[i] = 2.0 * random.nextDouble() - 1.0;
+		}
+		return signal;
+	}
+
+	/**
+	 * Every lag is a sum of at most signal.length products, so the rounding
+	 * error of either method is bounded by a small multiple of the energy of
+	 * the signal.
+	 */
+	void assertSameAutoCorrelation(double[] signal, int min_lag, int max_lag) {
+		double[] direct = DSPMethods.getAutoCorrelationDirect(signal, min_lag, max_lag);
+		double[] fft = DSPMethods.getAutoCorrelationFFT(signal, min_lag, max_lag);
+		double[] chosen = DSPMethods.getAutoCorrelation(signal, min_lag, max_lag);
+		double energy = 0.0;
+		for (int i = 0; i < signal.length; ++i) {
+			energy += signal[i] * signal[i];
+		}
+		double tolerance = 1e-12 * Math.max(energy, 1.0);
+		assertEquals(max_lag - min_lag + 1, direct.length);
+		assertEquals(direct.length, fft.length);
+		assertEquals(direct.length, chosen.length);
+		for (int i = 0; i < direct.length; ++i) {
+			String lag = "length " + signal.length + " lag " + (min_lag + i);
+			assertEquals(lag, direct[i], fft[i], tolerance);
+			assertEquals(lag, direct[i], chosen[i], tolerance);
+		}
+	}
+
+	public void testShortSignals() {
+		for (int length = 1; length < 40; ++length) {
+			assertSameAutoCorrelation(noise(length), 0, length - 1);
+			assertSameAutoCorrelation(noise(length), length / 2, length + 3);
+		}
+	}
+
+	public void testLongSignals() {
+		assertSameAutoCorrelation(noise(512), 0, 511);
+		assertSameAutoCorrelation(noise(1000), 5, 300);
+		assertSameAutoCorrelation(noise(8192), 20, 1200);
+		assertSameAutoCorrelation(noise(22050), 0, 100);
+	}
+
+	public void testSingleLag() {
+		double[] signal = noise(2048);
+		for (int lag = 0; lag < 2048; lag += 97) {
+			assertSameAutoCorrelation(signal, lag, lag);
+		}
+	}
+
+	public void testLagsBeyondSignal() {
+		double[] signal = noise(64);
+		double[] fft = DSPMethods.getAutoCorrelationFFT(signal, 60, 100);
+		for (int lag = 64; lag <= 100; ++lag) {
+			assertEquals(0.0, fft[lag - 60], 0.0);
+		}
+		assertSameAutoCorrelation(signal, 60, 100);
+		assertSameAutoCorrelation(signal, 64, 100);
+	}
+
+	public void testLargeAmplitude() {
+		double[] signal = noise(4096);
+		for (int i = 0; i < signal.length; ++i) {
+			signal[i] *= 32768.0;
+		}
+		assertSameAutoCorrelation(signal, 0, 2000);
+	}
+
+	public void testLagZeroIsEnergy() {
+		double[] signal = noise(3000);
+		double energy = 0.0;
+		for (int i = 0; i < signal.length; ++i) {
+			energy += signal[i] * signal[i];
+		}
+		assertEquals(energy, DSPMethods.getAutoCorrelationFFT(signal, 0, 0)[0], 1e-12 * energy);
+	}
+}
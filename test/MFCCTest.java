@@ -0,0 +1,74 @@
+/**
+ * 
+ */
+package net.sf.jaudio.FeatureExtractor.Aggregators;
+
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.MagnitudeSpectrum;
+import junit.framework.TestCase;
+
+/**
+ * @author mcennis
+ *
+ */
+public class MFCCTest extends TestCase {
+
+	MFCC test;
+	MagnitudeSpectrum feature;
+	double[][][] values;
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(MFCCTest.class);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		test = new MFCC();
+		feature = new MagnitudeSpectrum();
+		test.setSource(feature);
+		test.init(new int[]{1});
+		values = new double[16][2][];
+		for(int i=0;i<values.length;++i){
+			values[i][1] = new double[]{Math.sin(i),Math.cos(i),i};
+		}
+	}
+
+	public void testAggregateLastWindowMissing() throws Exception{
+		values[values.length-1][1] = null;
+		test.aggregate(values);
+		assertEquals(12,test.result.length);
+		assertEquals(12,test.definition.dimensions);
+	}
+
+	public void testAggregateMiddleWindowMissing() throws Exception{
+		values[0][1] = null;
+		values[7][1] = null;
+		test.aggregate(values);
+		assertEquals(12,test.result.length);
+		for(int i=0;i<test.result.length;++i){
+			assertFalse(Double.isNaN(test.result[i]));
+		}
+	}
+
+	public void testOnlineMatchesAggregate() throws Exception{
+		values[0][1] = null;
+		values[values.length-1][1] = null;
+		test.aggregate(values);
+		double[] expected = test.result.clone();
+
+		MFCC online = new MFCC();
+		online.setSource(feature);
+		online.init(new int[]{1});
+		online.begin();
+		for(int i=0;i<values.length;++i){
+			online.accept(values[i]);
+		}
+		online.finish();
+		assertEquals(expected.length,online.result.length);
+		for(int i=0;i<expected.length;++i){
+			assertEquals(expected[i],online.result[i],0.0);
+		}
+	}
+}
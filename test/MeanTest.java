@@ -1,13 +1,14 @@
 /**
  * 
  */
-package jAudioFeatureExtractor.Aggregators;
+package net.sf.jaudio.FeatureExtractor.Aggregators;
 
-import jAudioFeatureExtractor.ACE.DataTypes.FeatureDefinition;
-import jAudioFeatureExtractor.AudioFeatures.FeatureExtractor;
-import jAudioFeatureExtractor.AudioFeatures.LPC;
-import jAudioFeatureExtractor.AudioFeatures.MagnitudeSpectrum;
-import jAudioFeatureExtractor.AudioFeatures.RMS;
+import java.util.Random;
+
+import net.sf.jaudio.FeatureExtractor.ACE.DataTypes.FeatureDefinition;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.LPC;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.MagnitudeSpectrum;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.RMS;
 import junit.framework.TestCase;
 
 /**
@@ -143,4 +144,84 @@ public class MeanTest extends TestCase {
 		assertEquals(7.0,test.result[1],0.001);
 	}
 
+	public void testAggregateEmpty() throws Exception{
+		featureIndex = new int[]{2};
+		test.setSource(feature1);
+		test.init(featureIndex);
+
+		test.aggregate(new double[0][][]);
+		assertEquals(1,test.result.length);
+		assertTrue(Double.isNaN(test.result[0]));
+
+		test.begin();
+		test.finish();
+		assertEquals(1,test.result.length);
+		assertTrue(Double.isNaN(test.result[0]));
+	}
+
+	public void testAggregateAllNull() throws Exception{
+		featureIndex = new int[]{2};
+		test.setSource(feature1);
+		test.init(featureIndex);
+
+		values = new double[10][3][];
+		test.aggregate(values);
+		assertEquals(1,test.result.length);
+		assertEquals(0.0,test.result[0],0.0);
+		assertEquals(1,test.definition.dimensions);
+	}
+
+	public void testOnlineMatchesAggregate() throws Exception{
+		featureIndex = new int[]{1};
+		test.setSource(feature2);
+		test.init(featureIndex);
+
+		Random random = new Random(25);
+		values = new double[1000][3][];
+		for(int i=3;i<values.length;++i){
+			values[i][1] = new double[1+random.nextInt(4)];
+			for(int j=0;j<values[i][1].length;++j){
+				values[i][1][j] = random.nextGaussian()*100.0;
+			}
+			values[i][0] = new double[]{random.nextDouble()};
+		}
+		test.aggregate(values);
+		double[] batch = test.result.clone();
+
+		// the window given to accept is overwritten once it returns
+		test.begin();
+		double[][] window = new double[3][];
+		for(int i=0;i<values.length;++i){
+			for(int j=0;j<window.length;++j){
+				window[j] = (values[i][j] == null) ? null : values[i][j].clone();
+			}
+			test.accept(window);
+			for(int j=0;j<window.length;++j){
+				if(window[j] != null){
+					java.util.Arrays.fill(window[j],Double.NaN);
+				}
+			}
+		}
+		test.finish();
+		assertEquals(batch.length,test.result.length);
+		assertEquals(batch.length,test.definition.dimensions);
+		for(int i=0;i<batch.length;++i){
+			assertEquals(batch[i],test.result[i],0.0);
+		}
+	}
+
+	public void testAggregateLargeOffset() throws Exception{
+		featureIndex = new int[]{0};
+		test.setSource(feature1);
+		test.init(featureIndex);
+
+		// a running sum of these loses the small differences between them
+		values = new double[100000][1][1];
+		for(int i=0;i<values.length;++i){
+			values[i][0][0] = 1e12 + (i % 10) * 0.001;
+		}
+		test.aggregate(values);
+		assertEquals(1e12 + 0.0045,test.result[0],3e-4);
+	}
+
 }
@@ -0,0 +1,148 @@
+/**
+ *
+ */
+package net.sf.jaudio.FeatureExtractor.GeneralTools;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that ScientificNotationFormatter writes exactly the text that a
+ * DecimalFormat does, so that ACE and ARFF files are unchanged by it.
+ */
+public class ScientificNotationFormatterTest extends TestCase {
+
+	Random random;
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(ScientificNotationFormatterTest.class);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		random = new Random(14);
+	}
+
+	/**
+	 * Checks both format methods against a DecimalFormat, for every supported
+	 * number of significant digits.
+	 */
+	void assertSameAsDecimalFormat(double value) {
+		for (int digits = 1; digits <= ScientificNotationFormatter.MAX_SIGNIFICANT_DIGITS; ++digits) {
+			assertSameAsDecimalFormat(value, digits);
+		}
+	}
+
+	void assertSameAsDecimalFormat(double value, int digits) {
+		String expected = StringMethods.formatWithDecimalFormat(value, digits);
+		String name = digits + " digits of " + value;
+		assertEquals(name, expected, ScientificNotationFormatter.format(value, digits));
+
+		byte[] buffer = new byte[ScientificNotationFormatter.MAX_LENGTH + 3];
+		int end = ScientificNotationFormatter.format(value, digits, buffer, 3);
+		assertEquals(name, expected, new String(buffer, 3, end - 3));
+	}
+
+	public void testSimpleValues() {
+		assertEquals("1.235E-3", ScientificNotationFormatter.format(0.00123456, 4));
+		assertEquals("1.2E3", ScientificNotationFormatter.format(1200.0, 4));
+		assertEquals("0E0", ScientificNotationFormatter.format(0.0, 4));
+		double[] values = { 0.0, 1.0, -1.0, 0.5, 0.1, 0.3, 2.0 / 3.0, 10.0, 100.0,
+				123456789.0, 987654321.0, 1e-300, 1e300, Math.PI, -Math.E };
+		for (int i = 0; i < values.length; ++i) {
+			assertSameAsDecimalFormat(values[i]);
+		}
+	}
+
+	public void testNegativeZero() {
+		assertSameAsDecimalFormat(-0.0);
+	}
+
+	public void testNotFinite() {
+		// Written as StringMethods.getDoubleInScientificNotation always has
+		for (int digits = 1; digits <= ScientificNotationFormatter.MAX_SIGNIFICANT_DIGITS; ++digits) {
+			assertEquals("NaN", ScientificNotationFormatter.format(Double.NaN, digits));
+			assertEquals("Infinity", ScientificNotationFormatter.format(Double.POSITIVE_INFINITY, digits));
+			assertEquals("Infinity", ScientificNotationFormatter.format(Double.NEGATIVE_INFINITY, digits));
+			assertEquals("NaN", StringMethods.getDoubleInScientificNotation(Double.NaN, digits));
+			assertEquals("Infinity", StringMethods.getDoubleInScientificNotation(Double.NEGATIVE_INFINITY, digits));
+		}
+	}
+
+	public void testSubnormals() {
+		assertSameAsDecimalFormat(Double.MIN_VALUE);
+		assertSameAsDecimalFormat(-Double.MIN_VALUE);
+		assertSameAsDecimalFormat(Double.MIN_NORMAL);
+		assertSameAsDecimalFormat(Math.nextDown(Double.MIN_NORMAL));
+		for (int i = 0; i < 2000; ++i) {
+			double value = Double.longBitsToDouble(random.nextLong() & 0x000FFFFFFFFFFFFFL);
+			assertSameAsDecimalFormat(random.nextBoolean() ? value : -value);
+		}
+	}
+
+	public void testExtremes() {
+		assertSameAsDecimalFormat(Double.MAX_VALUE);
+		assertSameAsDecimalFormat(-Double.MAX_VALUE);
+		for (int exponent = -320; exponent <= 308; ++exponent) {
+			double power = Double.parseDouble("1E" + exponent);
+			assertSameAsDecimalFormat(power);
+			assertSameAsDecimalFormat(Math.nextUp(power));
+			assertSameAsDecimalFormat(Math.nextDown(power));
+		}
+	}
+
+	/**
+	 * Values whose shortest decimal representation is exactly halfway
+	 * between two roundings, and their neighbours, which round differently.
+	 */
+	public void testTieAdjacentValues() {
+		for (int digits = 1; digits <= ScientificNotationFormatter.MAX_SIGNIFICANT_DIGITS; ++digits) {
+			for (int i = 0; i < 500; ++i) {
+				StringBuilder mantissa = new StringBuilder();
+				mantissa.append(1 + random.nextInt(9));
+				for (int j = 1; j < digits; ++j) {
+					mantissa.append(random.nextInt(10));
+				}
+				mantissa.append('5');
+				int exponent = random.nextInt(60) - 30;
+				double tie = new BigDecimal(mantissa.toString()).scaleByPowerOfTen(exponent).doubleValue();
+				assertSameAsDecimalFormat(tie, digits);
+				assertSameAsDecimalFormat(Math.nextUp(tie), digits);
+				assertSameAsDecimalFormat(Math.nextDown(tie), digits);
+				assertSameAsDecimalFormat(-tie, digits);
+			}
+		}
+	}
+
+	/**
+	 * Values that round up to the next power of ten, such as 9.9996 with 4
+	 * significant digits.
+	 */
+	public void testCarryIntoExponent() {
+		for (int digits = 1; digits <= ScientificNotationFormatter.MAX_SIGNIFICANT_DIGITS; ++digits) {
+			for (int exponent = -10; exponent <= 10; ++exponent) {
+				double below = Math.pow(10.0, exponent) * (1.0 - 0.4 * Math.pow(10.0, -digits));
+				assertSameAsDecimalFormat(below, digits);
+				assertSameAsDecimalFormat(Math.pow(10.0, exponent) * (1.0 - 0.6 * Math.pow(10.0, -digits)), digits);
+			}
+		}
+	}
+
+	public void testRandomValues() {
+		for (int i = 0; i < 20000; ++i) {
+			double value = (2.0 * random.nextDouble() - 1.0) * Math.pow(10.0, random.nextInt(40) - 20);
+			assertSameAsDecimalFormat(value);
+		}
+		for (int i = 0; i < 5000; ++i) {
+			double value = Double.longBitsToDouble(random.nextLong());
+			if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+				assertSameAsDecimalFormat(value);
+			}
+		}
+	}
+}
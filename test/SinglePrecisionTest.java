@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package net.sf.jaudio.FeatureExtractor.jAudioTools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import net.sf.jaudio.FeatureExtractor.Cancel;
+import net.sf.jaudio.FeatureExtractor.Aggregators.Aggregator;
+import net.sf.jaudio.FeatureExtractor.Aggregators.AggregatorContainer;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.Compactness;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.Derivative;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.FeatureExtractor;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.LPC;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.MFCC;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.MagnitudeSpectrum;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.Moments;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.PowerSpectrum;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.RMS;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.SpectralCentroid;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.SpectralFlux;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.SpectralRolloffPoint;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.ZeroCrossings;
+import junit.framework.TestCase;
+
+/**
+ * Extracts the same 16 bit recording with and without single precision and
+ * checks that the values written agree within the bound documented by
+ * FeatureProcessor.setSinglePrecision.
+ */
+public class SinglePrecisionTest extends TestCase {
+
+	// Values are written with 4 significant digits, so values that differ by
+	// less than the rounding of single precision can be written one unit apart
+	// in the last digit
+	static final double WRITTEN_UNIT = 1e-3;
+
+	File recording;
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(SinglePrecisionTest.class);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		recording = File.createTempFile("single", ".wav");
+		recording.deleteOnExit();
+		writeRecording(recording, 22050.0f, 5.0);
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		recording.delete();
+		super.tearDown();
+	}
+
+	/**
+	 * Writes tones, noise and near silence as 16 bit mono samples.
+	 */
+	static void writeRecording(File file, float sampling_rate, double seconds) throws Exception {
+		int frames = (int) (sampling_rate * seconds);
+		byte[] bytes = new byte[2 * frames];
+		Random random = new Random(19);
+		for (int i = 0; i < frames; ++i) {
+			double time = i / sampling_rate;
+			double value = 0.4 * Math.sin(2.0 * Math.PI * 440.0 * time)
+					* (0.5 + 0.5 * Math.sin(2.0 * Math.PI * 2.0 * time))
+					+ 0.2 * Math.sin(2.0 * Math.PI * 3000.0 * time)
+					+ 0.05 * (2.0 * random.nextDouble() - 1.0);
+			if (((int) (time * 4.0)) % 4 == 0) {
+				value *= 0.01;
+			}
+			short sample = (short) Math.round(value * 32767.0);
+			bytes[2 * i] = (byte) sample;
+			bytes[2 * i + 1] = (byte) (sample >> 8);
+		}
+		AudioFormat format = new AudioFormat(sampling_rate, 16, 1, true, false);
+		AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(bytes), format, frames),
+				AudioFileFormat.Type.WAVE, file);
+	}
+
+	String extract(boolean single_precision) throws Exception {
+		FeatureExtractor mfcc = new MFCC();
+		FeatureExtractor[] features = { new MagnitudeSpectrum(), new PowerSpectrum(),
+				new SpectralCentroid(), new SpectralRolloffPoint(), new SpectralFlux(),
+				new Compactness(), new RMS(), new ZeroCrossings(), mfcc, new LPC(),
+				new Moments(), new Derivative().defineFeature((FeatureExtractor) mfcc.clone()) };
+		boolean[] save = new boolean[features.length];
+		java.util.Arrays.fill(save, true);
+		AggregatorContainer container = new AggregatorContainer();
+		container.add(new Aggregator[] {
+				new net.sf.jaudio.FeatureExtractor.Aggregators.Mean(),
+				new net.sf.jaudio.FeatureExtractor.Aggregators.StandardDeviation() });
+		container.add(features, save);
+
+		ByteArrayOutputStream values = new ByteArrayOutputStream();
+		ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+		FeatureProcessor processor = new FeatureProcessor(512, 0.5, 22050.0, false,
+				features, save, true, true, values, definitions, 0,
+				new Cancel(), container);
+		processor.setSinglePrecision(single_precision);
+		processor.extractFeatures(recording, null);
+		processor.finalize();
+		return values.toString("US-ASCII");
+	}
+
+	/**
+	 * Checks that the two outputs have the same text apart from numbers, and
+	 * that each pair of numbers differs by at most one unit in the last
+	 * digit written.
+	 */
+	void assertWithinBound(String expected, String actual) {
+		Pattern number = Pattern.compile("-?\\d(\\.\\d*)?E-?\\d+");
+		assertEquals(number.matcher(expected).replaceAll("#"), number.matcher(actual).replaceAll("#"));
+		ArrayList<String> expected_values = new ArrayList<String>();
+		Matcher matcher = number.matcher(expected);
+		while (matcher.find()) {
+			expected_values.add(matcher.group());
+		}
+		matcher = number.matcher(actual);
+		int count = 0;
+		int differing = 0;
+		while (matcher.find()) {
+			double a = Double.parseDouble(expected_values.get(count));
+			double b = Double.parseDouble(matcher.group());
+			double tolerance = WRITTEN_UNIT * Math.max(Math.abs(a), Math.abs(b)) * (1.0 + 1e-9);
+			assertEquals("value " + count, a, b, tolerance);
+			if (a != b) {
+				differing++;
+			}
+			count++;
+		}
+		assertEquals(expected_values.size(), count);
+		assertTrue(count > 100000);
+
+		// Only values within the rounding of single precision of a boundary
+		// of the last digit should differ
+		assertTrue(differing + " of " + count + " differ", differing * 1000 < count);
+	}
+
+	public void testACE() throws Exception {
+		assertWithinBound(extract(false), extract(true));
+	}
+}
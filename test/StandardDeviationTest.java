@@ -1,8 +1,12 @@
 /**
  * 
  */
-package jAudioFeatureExtractor.Aggregators;
+package net.sf.jaudio.FeatureExtractor.Aggregators;
 
+import java.util.Random;
+
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.MagnitudeSpectrum;
+import net.sf.jaudio.FeatureExtractor.AudioFeatures.RMS;
 import junit.framework.TestCase;
 
 /**
@@ -11,6 +15,11 @@ import junit.framework.TestCase;
  */
 public class StandardDeviationTest extends TestCase {
 
+	StandardDeviation test;
+	RMS feature1;
+	MagnitudeSpectrum feature2;
+	double[][][] values;
+
 	public static void main(String[] args) {
 		junit.textui.TestRunner.run(StandardDeviationTest.class);
 	}
@@ -20,6 +29,130 @@ public class StandardDeviationTest extends TestCase {
 	 */
 	protected void setUp() throws Exception {
 		super.setUp();
+		test = new StandardDeviation();
+		feature1 = new RMS();
+		feature2 = new MagnitudeSpectrum();
+		test.setSource(feature1);
+		test.init(new int[]{2});
+	}
+
+	public void testAggregateBasic() throws Exception{
+		values = new double[10][3][1];
+		for(int i=0;i<10;++i){
+			values[i][2][0]=i;
+		}
+
+		test.aggregate(values);
+		assertEquals(1,test.result.length);
+		assertEquals(3.0276503540974917,test.result[0],1e-12);
+	}
+
+	public void testAggregateWithNulls() throws Exception {
+		values = new double[10][3][1];
+		values[0][2] = null;
+		values[1][2] = null;
+		for(int i=2;i<10;++i){
+			values[i][2][0] = i;
+		}
+
+		test.aggregate(values);
+		assertEquals(1,test.result.length);
+		assertEquals(2.449489742783178,test.result[0],1e-12);
+	}
+
+	public void testAggregateConstant() throws Exception {
+		values = new double[1000][3][1];
+		for(int i=0;i<values.length;++i){
+			values[i][2][0] = 0.1;
+		}
+
+		test.aggregate(values);
+		assertEquals(0.0,test.result[0],0.0);
+	}
+
+	public void testAggregateSingleWindow() throws Exception {
+		values = new double[][][]{{null,null,{4.0,5.0}}};
+
+		test.aggregate(values);
+		assertEquals(2,test.result.length);
+		assertEquals(0.0,test.result[0],0.0);
+		assertEquals(0.0,test.result[1],0.0);
+	}
+
+	public void testAggregateLastWindowNull() throws Exception {
+		values = new double[10][3][1];
+		values[9][2] = null;
+
+		test.aggregate(values);
+		assertEquals(1,test.result.length);
+		assertEquals(1,test.definition.dimensions);
+		assertEquals(0.0,test.result[0],0.0);
+	}
+
+	public void testAggregateDimensionsOfLastWindow() throws Exception {
+		values = new double[10][3][];
+		for(int i=0;i<10;++i){
+			values[i][2] = new double[(i < 5) ? 3 : 2];
+			for(int j=0;j<values[i][2].length;++j){
+				values[i][2][j] = i*(j+1);
+			}
+		}
+
+		test.aggregate(values);
+		assertEquals(2,test.result.length);
+		assertEquals(2,test.definition.dimensions);
+		assertEquals(3.0276503540974917,test.result[0],1e-12);
+		assertEquals(2*3.0276503540974917,test.result[1],1e-12);
+	}
+
+	public void testAggregateLargeOffset() throws Exception {
+		// the difference between the sum of squares and the square of the sum
+		// of these is lost entirely
+		values = new double[10][3][1];
+		for(int i=0;i<10;++i){
+			values[i][2][0] = 1e9 + i;
+		}
+
+		test.aggregate(values);
+		assertEquals(3.0276503540974917,test.result[0],1e-6);
+	}
+
+	public void testOnlineMatchesAggregate() throws Exception {
+		test.setSource(feature2);
+		test.init(new int[]{1});
+
+		Random random = new Random(25);
+		values = new double[1000][3][];
+		for(int i=3;i<values.length;++i){
+			values[i][1] = new double[1+random.nextInt(4)];
+			for(int j=0;j<values[i][1].length;++j){
+				values[i][1][j] = 50.0+random.nextGaussian()*10.0;
+			}
+			values[i][0] = new double[]{random.nextDouble()};
+		}
+		test.aggregate(values);
+		double[] batch = test.result.clone();
+
+		// the window given to accept is overwritten once it returns
+		test.begin();
+		double[][] window = new double[3][];
+		for(int i=0;i<values.length;++i){
+			for(int j=0;j<window.length;++j){
+				window[j] = (values[i][j] == null) ? null : values[i][j].clone();
+			}
+			test.accept(window);
+			for(int j=0;j<window.length;++j){
+				if(window[j] != null){
+					java.util.Arrays.fill(window[j],Double.NaN);
+				}
+			}
+		}
+		test.finish();
+		assertEquals(batch.length,test.result.length);
+		for(int i=0;i<batch.length;++i){
+			assertEquals(batch[i],test.result[i],0.0);
+			assertEquals(10.0,test.result[i],1.5);
+		}
 	}
 
 }